@@ -0,0 +1,101 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.benchmark;
+
+import com.timvisee.beamercontroller.beamer.Beamer;
+import com.timvisee.beamercontroller.beamer.BeamerManager;
+import com.timvisee.beamercontroller.resource.ResourceManager;
+import com.timvisee.yamlwrapper.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+
+/**
+ * Benchmarks loading beamer types from their YAML configuration, as done on startup.
+ */
+@State(Scope.Thread)
+public class BeamerLoadBenchmark {
+
+    /**
+     * Path of the bundled beamer type to load.
+     */
+    private static final String BEAMER_PATH = "beamer/benq.yml";
+
+    /**
+     * Raw YAML of the beamer type.
+     */
+    private byte[] yaml;
+
+    /**
+     * Parsed YAML of the beamer type.
+     */
+    private YamlConfiguration config;
+
+    @Setup
+    public void setup() throws IOException, URISyntaxException {
+        // Read the raw YAML
+        try(InputStream in = ResourceManager.getResourceStream(BEAMER_PATH)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while((read = in.read(buffer)) >= 0)
+                out.write(buffer, 0, read);
+            this.yaml = out.toByteArray();
+        }
+
+        // Parse it once for the loading benchmark
+        this.config = YamlConfiguration.loadFromStream(new ByteArrayInputStream(this.yaml));
+    }
+
+    /**
+     * Parse the YAML of a beamer type.
+     */
+    @Benchmark
+    public YamlConfiguration parseYaml() {
+        return YamlConfiguration.loadFromStream(new ByteArrayInputStream(this.yaml));
+    }
+
+    /**
+     * Load a beamer type from parsed YAML, including its interfaces and commands.
+     */
+    @Benchmark
+    public Beamer loadBeamer() {
+        return Beamer.load(this.config);
+    }
+
+    /**
+     * Load all bundled beamer types from the resources, as done on startup.
+     */
+    @Benchmark
+    public BeamerManager loadBeamerManager() {
+        final BeamerManager beamerManager = new BeamerManager();
+        beamerManager.load();
+        return beamerManager;
+    }
+}
@@ -0,0 +1,87 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks with the allocation profiler, and stores the results as JSON.
+ * Usage: {@code java -jar benchmarks.jar [result file] [benchmark regex]}
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Default file the results are written to.
+     */
+    public static final String DEFAULT_RESULT_FILE = "baseline/baseline.json";
+
+    /**
+     * Default regular expression selecting the benchmarks to run.
+     */
+    public static final String DEFAULT_INCLUDE = BenchmarkRunner.class.getPackage().getName() + ".*Benchmark.*";
+
+    /**
+     * Main method.
+     *
+     * @param args Result file and benchmark regex, both optional.
+     *
+     * @throws RunnerException Throws if running the benchmarks failed.
+     */
+    public static void main(String[] args) throws RunnerException {
+        // Get the result file and benchmarks to run
+        final File resultFile = new File(args.length > 0 ? args[0] : DEFAULT_RESULT_FILE);
+        final String include = args.length > 1 ? args[1] : DEFAULT_INCLUDE;
+
+        // Make sure the result directory exists
+        if(resultFile.getAbsoluteFile().getParentFile() != null)
+            resultFile.getAbsoluteFile().getParentFile().mkdirs();
+
+        // Measure the average time per operation, and the allocation rate with the GC profiler
+        final Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .warmupIterations(5)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .forks(2)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.getPath())
+                .build();
+
+        // Run the benchmarks
+        new Runner(options).run();
+        System.out.println("Benchmark results written to: " + resultFile.getAbsolutePath());
+    }
+}
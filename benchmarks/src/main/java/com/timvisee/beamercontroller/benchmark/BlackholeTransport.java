@@ -0,0 +1,70 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.benchmark;
+
+import com.timvisee.beamercontroller.beamer.transport.Transport;
+import com.timvisee.beamercontroller.beamer.transport.TransportReceiver;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Transport that consumes written data into a JMH blackhole, so writes are measured without IO.
+ */
+public class BlackholeTransport implements Transport {
+
+    /**
+     * Blackhole consuming the written data.
+     */
+    private final Blackhole blackhole;
+
+    /**
+     * Constructor.
+     *
+     * @param blackhole Blackhole consuming the written data.
+     */
+    public BlackholeTransport(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public String getName() {
+        return "blackhole";
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void write(byte[] data) {
+        this.blackhole.consume(data);
+    }
+
+    @Override
+    public void setReceiver(TransportReceiver receiver) {}
+
+    @Override
+    public void close() {}
+}
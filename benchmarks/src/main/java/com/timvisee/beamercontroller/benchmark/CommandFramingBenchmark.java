@@ -0,0 +1,89 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.benchmark;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandFraming;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.iface.SerialBeamerInterface;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmarks framing and writing a command, as done for every executed command.
+ */
+@State(Scope.Thread)
+public class CommandFramingBenchmark {
+
+    /**
+     * Serial beamer interface with the BenQ framing.
+     */
+    private SerialBeamerInterface serialInterface;
+
+    /**
+     * Command to frame.
+     */
+    private Command command;
+
+    /**
+     * Transport consuming the written frames.
+     */
+    private BlackholeTransport transport;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.serialInterface = new SerialBeamerInterface("\r*", "#\r", null);
+        this.command = new Command("powerGet", "Power: Get status", CommandType.READ, "pow=?");
+        this.transport = new BlackholeTransport(blackhole);
+    }
+
+    /**
+     * Execute a command through the interface, writing its cached pre-encoded frame.
+     */
+    @Benchmark
+    public void executeCommand() throws IOException {
+        this.serialInterface.executeCommand(this.command, this.transport);
+    }
+
+    /**
+     * Encode a new frame for the command, as done once when a command is loaded.
+     */
+    @Benchmark
+    public Object encodeFrame() {
+        return this.serialInterface.getFraming().frame(this.command.getCommand());
+    }
+
+    /**
+     * Frame the command by concatenating and encoding strings, as a reference.
+     */
+    @Benchmark
+    public byte[] concatenateFrame() {
+        final CommandFraming framing = this.serialInterface.getFraming();
+        return (framing.getCommandPrefix() + this.command.getCommand() + framing.getCommandSuffix()).getBytes(StandardCharsets.US_ASCII);
+    }
+}
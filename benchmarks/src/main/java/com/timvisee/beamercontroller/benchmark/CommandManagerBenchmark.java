@@ -0,0 +1,77 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.benchmark;
+
+import com.timvisee.beamercontroller.beamer.Beamer;
+import com.timvisee.beamercontroller.beamer.BeamerManager;
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks looking up commands, as done for every command requested by ID.
+ */
+@State(Scope.Thread)
+public class CommandManagerBenchmark {
+
+    /**
+     * Command manager of the bundled BenQ beamer.
+     */
+    private CommandManager commandManager;
+
+    /**
+     * ID of the command to look up, in a different case than configured.
+     */
+    public String commandId = "SOURCESETHDMI";
+
+    /**
+     * Handle of the command to look up.
+     */
+    private int handle;
+
+    @Setup
+    public void setup() {
+        final BeamerManager beamerManager = new BeamerManager();
+        beamerManager.load();
+        final Beamer beamer = beamerManager.getBeamer("benq");
+        this.commandManager = beamer.getCommandManager();
+        this.handle = this.commandManager.getCommandHandle(this.commandId);
+    }
+
+    @Benchmark
+    public Command getCommandById() {
+        return this.commandManager.getCommand(this.commandId);
+    }
+
+    @Benchmark
+    public Command getCommandByHandle() {
+        return this.commandManager.getCommand(this.handle);
+    }
+
+    @Benchmark
+    public int getCommandHandle() {
+        return this.commandManager.getCommandHandle(this.commandId);
+    }
+}
@@ -0,0 +1,59 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.benchmark;
+
+import com.timvisee.beamercontroller.util.CommandUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks formatting commands for display, as done when logging commands and responses.
+ */
+@State(Scope.Thread)
+public class CommandUtilsBenchmark {
+
+    /**
+     * Framed command with non-printable characters.
+     */
+    public String framedCommand = "\r*pow=?#\r";
+
+    /**
+     * Command without non-printable characters.
+     */
+    public String plainCommand = "sour=hdmi";
+
+    @Benchmark
+    public String formatFramedCommand() {
+        return CommandUtils.formatCommand(this.framedCommand);
+    }
+
+    @Benchmark
+    public String formatPlainCommand() {
+        return CommandUtils.formatCommand(this.plainCommand);
+    }
+
+    @Benchmark
+    public String getCommandKey() {
+        return CommandUtils.getCommandKey(this.plainCommand);
+    }
+}
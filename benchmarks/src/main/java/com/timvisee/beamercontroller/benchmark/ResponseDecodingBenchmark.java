@@ -0,0 +1,85 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.benchmark;
+
+import com.timvisee.beamercontroller.beamer.response.FrameDecoder;
+import com.timvisee.beamercontroller.beamer.response.FrameListener;
+import com.timvisee.beamercontroller.util.ByteRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmarks decoding received data into frames, as done for all data received from a beamer.
+ */
+@State(Scope.Thread)
+public class ResponseDecodingBenchmark {
+
+    /**
+     * Received data: an echoed read command and its response.
+     */
+    private static final byte[] RECEIVED = "*pow=?#\r\r*POW=ON#\r".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Number of bytes passed to the decoder at once, real serial ports often deliver small chunks.
+     */
+    @Param({"1", "4", "19"})
+    public int chunkSize;
+
+    /**
+     * Ring buffer holding received data.
+     */
+    private ByteRingBuffer buffer;
+
+    /**
+     * Frame decoder.
+     */
+    private FrameDecoder decoder;
+
+    /**
+     * Listener consuming decoded frames.
+     */
+    private FrameListener listener;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.buffer = new ByteRingBuffer(1024);
+        this.decoder = FrameDecoder.forCommandDelimiters("\r*", "#\r");
+        this.listener = (frame, offset, length) -> blackhole.consume(length);
+    }
+
+    /**
+     * Receive and decode an echo and response, in chunks.
+     */
+    @Benchmark
+    public void decode() {
+        for(int offset = 0; offset < RECEIVED.length; offset += this.chunkSize) {
+            this.buffer.write(RECEIVED, offset, Math.min(this.chunkSize, RECEIVED.length - offset));
+            this.decoder.decode(this.buffer, this.listener);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.benchmark.load;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent latency histogram with logarithmic buckets, each split in linear sub-buckets.
+ * Recorded values are reported with a precision of about 3%, and recording doesn't allocate.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of bits for the sub-buckets in each power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Number of sub-buckets in each power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets, enough for any positive long value.
+     */
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Count of recorded values in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Total number of recorded values.
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Highest recorded value.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a value.
+     *
+     * @param value Value to record, negative values are recorded as zero.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        this.counts.incrementAndGet(index(value));
+        this.total.increment();
+        this.max.accumulate(value);
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return Count.
+     */
+    public long getCount() {
+        return this.total.sum();
+    }
+
+    /**
+     * Get the highest recorded value.
+     *
+     * @return Highest value.
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Get the value at the given percentile.
+     *
+     * @param percentile Percentile, from 0 to 100.
+     *
+     * @return Upper bound of the bucket holding the percentile, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        // Determine the rank of the requested value
+        final long count = getCount();
+        if(count == 0)
+            return 0;
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+
+        // Find the bucket holding the rank
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if(seen >= rank)
+                return Math.min(upperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Clear all recorded values.
+     * Values recorded concurrently may be partially kept.
+     */
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++)
+            this.counts.set(i, 0);
+        this.total.reset();
+        this.max.reset();
+    }
+
+    /**
+     * Get the bucket index for a value.
+     *
+     * @param value Positive value.
+     *
+     * @return Bucket index.
+     */
+    private static int index(long value) {
+        // Small values have their own bucket
+        if(value < SUB_BUCKETS)
+            return (int) value;
+
+        // Select the power of two, and the linear sub-bucket within it
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get the highest value of a bucket.
+     *
+     * @param index Bucket index.
+     *
+     * @return Highest value in the bucket.
+     */
+    private static long upperBound(int index) {
+        if(index < SUB_BUCKETS)
+            return index;
+        final int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        final int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
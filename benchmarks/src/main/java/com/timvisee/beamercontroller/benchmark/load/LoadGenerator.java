@@ -0,0 +1,571 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.benchmark.load;
+
+import com.timvisee.beamercontroller.beamer.Beamer;
+import com.timvisee.beamercontroller.beamer.BeamerManager;
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.iface.BeamerInterface;
+import com.timvisee.beamercontroller.beamer.iface.InterfaceType;
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
+import com.timvisee.beamercontroller.beamer.session.SessionManager;
+import com.timvisee.beamercontroller.beamer.transport.NetworkTransport;
+import com.timvisee.beamercontroller.beamer.transport.Transport;
+import com.timvisee.beamercontroller.emulator.BeamerEmulator;
+import com.timvisee.beamercontroller.emulator.EmulatorConfig;
+import com.timvisee.beamercontroller.emulator.EmulatorServer;
+import com.timvisee.beamercontroller.emulator.EmulatorTransport;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator, driving a fleet of emulated projectors through the real session, executor and correlator stack.
+ * Each projector runs a closed loop of mixed read and write commands, and the fleet size is stepped up to find the
+ * point where throughput, latency, heap or thread usage stop scaling.
+ * Usage: {@code java -cp benchmarks.jar com.timvisee.beamercontroller.benchmark.load.LoadGenerator [--option value]...}
+ */
+public class LoadGenerator {
+
+    /**
+     * ID of the beamer type the emulated projectors are controlled as.
+     */
+    private static final String BEAMER_ID = "benq";
+
+    /**
+     * Command key that is never written, so the emulated projectors stay powered on.
+     */
+    private static final String POWER_KEY = "pow";
+
+    /**
+     * Default options.
+     */
+    private static final String[][] DEFAULT_OPTIONS = {
+            {"devices", "10,100,1000,10000"},
+            {"transport", "memory"},
+            {"duration", "10"},
+            {"warmup", "3"},
+            {"read-ratio", "0.8"},
+            {"outstanding", "1"},
+            {"baud", "0"},
+            {"response-delay", "0"},
+            {"paced", "false"},
+            {"workers", String.valueOf(SessionManager.DEFAULT_WORKER_COUNT)},
+            {"output", ""},
+    };
+
+    /**
+     * Parsed options.
+     */
+    private final Map<String, String> options;
+
+    /**
+     * Beamer type the emulated projectors are controlled as.
+     */
+    private final Beamer beamer;
+
+    /**
+     * Read commands to send.
+     */
+    private final List<Command> reads = new ArrayList<>();
+
+    /**
+     * Write commands to send.
+     */
+    private final List<Command> writes = new ArrayList<>();
+
+    /**
+     * Fraction of the commands that are read commands.
+     */
+    private final double readRatio;
+
+    /**
+     * Latency of successful commands in the current step, in nanoseconds.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Number of commands that failed in the current step.
+     */
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Number of commands that timed out in the current step.
+     */
+    private final LongAdder timedOut = new LongAdder();
+
+    /**
+     * Number of commands rejected because the command queue was full, in the current step.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Number of commands currently in flight.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * True while commands should be sent.
+     */
+    private volatile boolean running;
+
+    /**
+     * True while command results should be recorded.
+     */
+    private volatile boolean measuring;
+
+    /**
+     * Constructor.
+     *
+     * @param options Parsed options.
+     * @param beamer Beamer type the emulated projectors are controlled as.
+     */
+    public LoadGenerator(Map<String, String> options, Beamer beamer) {
+        this.options = options;
+        this.beamer = beamer;
+        this.readRatio = Double.parseDouble(options.get("read-ratio"));
+
+        // Collect the commands to send, never switching the power
+        for(Command command : beamer.getCommandManager().getCommands()) {
+            if(command.getCommandType() == CommandType.READ)
+                this.reads.add(command);
+            else if(!command.getKey().equalsIgnoreCase(POWER_KEY))
+                this.writes.add(command);
+        }
+        if(this.reads.isEmpty() || this.writes.isEmpty())
+            throw new IllegalStateException("beamer type " + beamer.getId() + " has no read or write commands to send");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args Options, as {@code --name value} pairs.
+     *
+     * @throws Exception Throws if the load generator failed.
+     */
+    public static void main(String[] args) throws Exception {
+        // Parse the options
+        final Map<String, String> options = parseOptions(args);
+
+        // Load the beamer type
+        final BeamerManager beamerManager = new BeamerManager();
+        beamerManager.load();
+        final Beamer beamer = beamerManager.getBeamer(BEAMER_ID);
+        if(beamer == null)
+            throw new IllegalStateException("unknown beamer type: " + BEAMER_ID);
+
+        // Run all steps
+        final LoadGenerator generator = new LoadGenerator(options, beamer);
+        final List<StepResult> results = new ArrayList<>();
+        System.out.println(StepResult.HEADER);
+        for(String devices : options.get("devices").split(",")) {
+            final StepResult result = generator.runStep(Integer.parseInt(devices.trim()));
+            System.out.println(result);
+            results.add(result);
+        }
+
+        // Write the results as JSON
+        final String output = options.get("output");
+        if(!output.isEmpty()) {
+            writeJson(new File(output), options, results);
+            System.out.println("Load results written to: " + new File(output).getAbsolutePath());
+        }
+    }
+
+    /**
+     * Run a step with the given number of emulated projectors.
+     *
+     * @param deviceCount Number of emulated projectors.
+     *
+     * @return Step result.
+     *
+     * @throws IOException Throws if setting up the projectors failed.
+     * @throws InterruptedException Throws if interrupted.
+     */
+    public StepResult runStep(int deviceCount) throws IOException, InterruptedException {
+        final boolean network = this.options.get("transport").equalsIgnoreCase("tcp");
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+        // Measure the baseline heap, and reset the peak thread count
+        System.gc();
+        final long baselineHeap = memoryBean.getHeapMemoryUsage().getUsed();
+        threadBean.resetPeakThreadCount();
+
+        // Create the emulated projectors and their sessions
+        final SessionManager sessionManager = new SessionManager(Integer.parseInt(this.options.get("workers")));
+        final List<EmulatorServer> servers = new ArrayList<>();
+        final BeamerInterface beamerInterface = getInterface(network);
+        if(!Boolean.parseBoolean(this.options.get("paced"))) {
+            // Measure the controller itself, rather than the rate limit of the beamer profile
+            beamerInterface.setCommandsPerSecond(0);
+            beamerInterface.setMinimumGap(0);
+        }
+        final EmulatorConfig config = new EmulatorConfig();
+        config.setBaudRate(Integer.parseInt(this.options.get("baud")));
+        config.setResponseDelay(Integer.parseInt(this.options.get("response-delay")));
+        for(int i = 0; i < deviceCount; i++) {
+            final BeamerEmulator emulator = new BeamerEmulator(config, new Random(i));
+            emulator.setPowered(true);
+
+            // Connect in memory, or through an emulator server on loopback
+            final Transport transport;
+            if(network) {
+                final EmulatorServer server = new EmulatorServer(emulator);
+                server.start(0);
+                servers.add(server);
+                transport = new NetworkTransport("127.0.0.1", server.getPort());
+            } else
+                transport = new EmulatorTransport("emulator:" + i, emulator);
+
+            sessionManager.createSession("projector-" + i, this.beamer, transport, beamerInterface);
+        }
+
+        // Open all sessions
+        for(BeamerSession session : sessionManager.getSessions())
+            session.open();
+
+        // Start sending commands, and warm up
+        this.rejected.reset();
+        this.running = true;
+        for(BeamerSession session : sessionManager.getSessions())
+            for(int i = 0, outstanding = Integer.parseInt(this.options.get("outstanding")); i < outstanding; i++)
+                sendNext(session);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(Long.parseLong(this.options.get("warmup"))));
+        if(this.rejected.sum() > 0)
+            System.out.println("Warning: " + this.rejected.sum() + " commands were rejected by full command queues, lower --outstanding to at most the queue size of the beamer interface");
+
+        // Measure
+        this.latency.reset();
+        this.failed.reset();
+        this.timedOut.reset();
+        this.measuring = true;
+        final long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(Long.parseLong(this.options.get("duration"))));
+        this.measuring = false;
+        final long elapsed = System.nanoTime() - start;
+        final int threads = threadBean.getThreadCount();
+        final int peakThreads = threadBean.getPeakThreadCount();
+
+        // Stop sending commands, and wait for the outstanding ones
+        this.running = false;
+        final long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Command.DEFAULT_TIMEOUT * 2);
+        while(this.inFlight.get() > 0 && System.nanoTime() < drainDeadline)
+            Thread.sleep(10);
+
+        // Measure the heap retained by the fleet
+        System.gc();
+        final long retainedHeap = Math.max(0, memoryBean.getHeapMemoryUsage().getUsed() - baselineHeap);
+
+        // Tear down the fleet
+        sessionManager.close();
+        for(EmulatorServer server : servers)
+            server.stop();
+
+        return new StepResult(
+                deviceCount,
+                this.latency.getCount(),
+                this.failed.sum(),
+                this.timedOut.sum(),
+                elapsed,
+                this.latency,
+                retainedHeap,
+                threads,
+                peakThreads
+        );
+    }
+
+    /**
+     * Send the next command to a session, and send another one when it completes.
+     * Commands are submitted to the executor of the session directly, so every command reaches the projector rather than
+     * being answered from the state cache. A command rejected because the queue is full isn't replaced, as it completes
+     * right away and replacing it would recurse until the stack overflows.
+     *
+     * @param session Session to send the command to.
+     */
+    private void sendNext(BeamerSession session) {
+        // Stop when the step finished
+        if(!this.running)
+            return;
+
+        // Pick a read or write command
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final List<Command> commands = random.nextDouble() < this.readRatio ? this.reads : this.writes;
+        final Command command = commands.get(random.nextInt(commands.size()));
+
+        // Submit the command, and record its result
+        final long start = System.nanoTime();
+        this.inFlight.incrementAndGet();
+        session.getExecutor().submit(command).whenComplete((response, throwable) -> {
+            this.inFlight.decrementAndGet();
+            if(this.measuring) {
+                if(throwable == null)
+                    this.latency.record(System.nanoTime() - start);
+                else if(isTimeout(throwable))
+                    this.timedOut.increment();
+                else
+                    this.failed.increment();
+            }
+
+            // Stop this loop if the queue is full, such as when more commands are outstanding than the queue holds
+            if(throwable instanceof RejectedExecutionException) {
+                this.rejected.increment();
+                return;
+            }
+            sendNext(session);
+        });
+    }
+
+    /**
+     * Get the beamer interface the sessions connect to, for its framing.
+     *
+     * @param network True for the network interface, false for the serial interface.
+     *
+     * @return Beamer interface.
+     */
+    private BeamerInterface getInterface(boolean network) {
+        final BeamerInterface beamerInterface = this.beamer.getBeamerInterfaceManager().getInterface(network ? InterfaceType.NETWORK : InterfaceType.SERIAL);
+        if(beamerInterface == null)
+            throw new IllegalStateException("beamer type " + this.beamer.getId() + " has no " + (network ? "network" : "serial") + " interface");
+        return beamerInterface;
+    }
+
+    /**
+     * Check whether a command failed because it timed out.
+     *
+     * @param throwable Failure.
+     *
+     * @return True if timed out, false if not.
+     */
+    private static boolean isTimeout(Throwable throwable) {
+        for(Throwable cause = throwable; cause != null; cause = cause.getCause())
+            if(cause instanceof TimeoutException)
+                return true;
+        return false;
+    }
+
+    /**
+     * Parse the given options, filling in the defaults.
+     *
+     * @param args Options, as {@code --name value} pairs.
+     *
+     * @return Parsed options.
+     *
+     * @throws IllegalArgumentException Throws if an option is unknown or has no value.
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        // Fill in the defaults
+        final Map<String, String> options = new HashMap<>();
+        for(String[] option : DEFAULT_OPTIONS)
+            options.put(option[0], option[1]);
+
+        // Parse the given options
+        for(int i = 0; i < args.length; i += 2) {
+            final String name = args[i].startsWith("--") ? args[i].substring(2) : args[i];
+            if(!options.containsKey(name))
+                throw new IllegalArgumentException("unknown option: " + args[i]);
+            if(i + 1 >= args.length)
+                throw new IllegalArgumentException("missing value for option: " + args[i]);
+            options.put(name, args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Write the results as JSON.
+     *
+     * @param file File to write to.
+     * @param options Options the results were measured with.
+     * @param results Step results.
+     *
+     * @throws IOException Throws if writing failed.
+     */
+    private static void writeJson(File file, Map<String, String> options, List<StepResult> results) throws IOException {
+        // Make sure the directory exists
+        if(file.getAbsoluteFile().getParentFile() != null)
+            file.getAbsoluteFile().getParentFile().mkdirs();
+
+        try(Writer writer = new FileWriter(file)) {
+            // Write the options
+            writer.write("{\n  \"options\": {");
+            boolean first = true;
+            for(String[] option : DEFAULT_OPTIONS) {
+                writer.write((first ? "" : ",") + "\n    \"" + option[0] + "\": \"" + options.get(option[0]) + "\"");
+                first = false;
+            }
+
+            // Write the step results
+            writer.write("\n  },\n  \"steps\": [");
+            for(int i = 0; i < results.size(); i++)
+                writer.write((i == 0 ? "" : ",") + "\n    " + results.get(i).toJson());
+            writer.write("\n  ]\n}\n");
+        }
+    }
+
+    /**
+     * Result of a single step.
+     */
+    public static class StepResult {
+
+        /**
+         * Header of the table the results are printed in.
+         */
+        static final String HEADER = String.format(Locale.ROOT, "%8s %12s %10s %10s %10s %10s %8s %8s %10s %8s",
+                "devices", "ops/s", "p50 us", "p99 us", "p999 us", "max us", "failed", "timeout", "heap MB", "threads");
+
+        /**
+         * Number of emulated projectors.
+         */
+        final int devices;
+
+        /**
+         * Number of successful commands.
+         */
+        final long completed;
+
+        /**
+         * Number of failed commands.
+         */
+        final long failed;
+
+        /**
+         * Number of timed out commands.
+         */
+        final long timedOut;
+
+        /**
+         * Measured time in nanoseconds.
+         */
+        final long elapsed;
+
+        /**
+         * Median latency in nanoseconds.
+         */
+        final long p50;
+
+        /**
+         * 99th percentile latency in nanoseconds.
+         */
+        final long p99;
+
+        /**
+         * 99.9th percentile latency in nanoseconds.
+         */
+        final long p999;
+
+        /**
+         * Maximum latency in nanoseconds.
+         */
+        final long max;
+
+        /**
+         * Heap retained by the fleet in bytes.
+         */
+        final long heap;
+
+        /**
+         * Live threads at the end of the measurement.
+         */
+        final int threads;
+
+        /**
+         * Peak live threads during the step.
+         */
+        final int peakThreads;
+
+        /**
+         * Constructor.
+         *
+         * @param devices Number of emulated projectors.
+         * @param completed Number of successful commands.
+         * @param failed Number of failed commands.
+         * @param timedOut Number of timed out commands.
+         * @param elapsed Measured time in nanoseconds.
+         * @param latency Latency histogram of the successful commands.
+         * @param heap Heap retained by the fleet in bytes.
+         * @param threads Live threads at the end of the measurement.
+         * @param peakThreads Peak live threads during the step.
+         */
+        StepResult(int devices, long completed, long failed, long timedOut, long elapsed, LatencyHistogram latency, long heap, int threads, int peakThreads) {
+            this.devices = devices;
+            this.completed = completed;
+            this.failed = failed;
+            this.timedOut = timedOut;
+            this.elapsed = elapsed;
+            this.p50 = latency.getPercentile(50);
+            this.p99 = latency.getPercentile(99);
+            this.p999 = latency.getPercentile(99.9);
+            this.max = latency.getMax();
+            this.heap = heap;
+            this.threads = threads;
+            this.peakThreads = peakThreads;
+        }
+
+        /**
+         * Get the throughput of successful commands.
+         *
+         * @return Commands per second.
+         */
+        public double getThroughput() {
+            return this.completed * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsed;
+        }
+
+        /**
+         * Format the result as JSON object.
+         *
+         * @return JSON object.
+         */
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"devices\": %d, \"completed\": %d, \"failed\": %d, \"timedOut\": %d, \"throughput\": %.1f, "
+                            + "\"p50Nanos\": %d, \"p99Nanos\": %d, \"p999Nanos\": %d, \"maxNanos\": %d, "
+                            + "\"heapBytes\": %d, \"threads\": %d, \"peakThreads\": %d}",
+                    this.devices, this.completed, this.failed, this.timedOut, getThroughput(),
+                    this.p50, this.p99, this.p999, this.max, this.heap, this.threads, this.peakThreads);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%8d %12.1f %10.1f %10.1f %10.1f %10.1f %8d %8d %10.1f %8s",
+                    this.devices, getThroughput(), this.p50 / 1000.0, this.p99 / 1000.0, this.p999 / 1000.0, this.max / 1000.0,
+                    this.failed, this.timedOut, this.heap / (1024.0 * 1024.0), this.threads + "/" + this.peakThreads);
+        }
+    }
+}
@@ -24,18 +24,18 @@ package com.timvisee.beamercontroller;
 import com.timvisee.beamercontroller.beamer.Beamer;
 import com.timvisee.beamercontroller.beamer.BeamerManager;
 import com.timvisee.beamercontroller.beamer.iface.SerialBeamerInterface;
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
+import com.timvisee.beamercontroller.beamer.transport.SerialTransport;
 import com.timvisee.beamercontroller.gui.ConnectDialog;
 import com.timvisee.beamercontroller.gui.DashboardFrame;
 import com.timvisee.beamercontroller.gui.SerialSelectDialog;
 import com.timvisee.beamercontroller.serial.BaudRateType;
-import com.timvisee.beamercontroller.util.CommandUtils;
 import com.timvisee.beamercontroller.util.ProgressDialog;
 import com.timvisee.beamercontroller.util.swing.SwingUtils;
-import jssc.SerialPort;
-import jssc.SerialPortException;
 import jssc.SerialPortList;
 
 import javax.swing.*;
+import java.io.IOException;
 
 public class App {
 
@@ -108,50 +108,32 @@ public class App {
         dialog.setShowProgress(false);
         dialog.setVisible(true);
 
-        // Set up the serial port
-        final SerialPort port = new SerialPort(serialPortName);
+        // Find the beamer to use
+        final Beamer beamer = beamerManager.getBeamers().get(0);
 
-        try {
-            // Open the serial port
-            dialog.setStatus("Opening port...");
-            port.openPort();
-
-            // Configure the port
-            dialog.setStatus("Configuring port...");
-
-            // Find the beamer to use
-            final Beamer beamer = beamerManager.getBeamers().get(0);
+        // Find the serial interface configuration for the beamer
+        SerialBeamerInterface serialBeamerInterface = (SerialBeamerInterface) beamer.getBeamerInterfaceManager().getInterfaces().get(0);
 
-            // Find the serial interface configuration for the beamer
-            SerialBeamerInterface serialBeamerInterface = (SerialBeamerInterface) beamer.getBeamerInterfaceManager().getInterfaces().get(0);
+        // Set the custom baud rate
+        serialBeamerInterface.getSerialConfig().setBaudRateType(BaudRateType.getByRate(this.baud));
 
-            // Set the custom baud rate
-            serialBeamerInterface.getSerialConfig().setBaudRateType(BaudRateType.getByRate(this.baud));
+        // Set up the serial transport
+        final SerialTransport transport = new SerialTransport(serialPortName, serialBeamerInterface.getSerialConfig());
 
-            // Apply the serial beamer configuration to the selected port
-            serialBeamerInterface.getSerialConfig().applyToPort(port);
-
-            // Read data from the beamer and print it to the console
-            port.addEventListener(event -> {
-                if(event.isRXCHAR() && event.getEventValue() > 0) {
-                    try {
-                        final String receivedData = port.readString(event.getEventValue());
-                        System.out.println("Received from beamer: " + CommandUtils.formatCommand(receivedData));
-
-                    } catch (SerialPortException ex) {
-                        System.out.println("Error in receiving string from COM-port: " + ex);
-                    }
-                }
-            });
+        try {
+            // Open and configure the serial port, and start executing commands on it
+            dialog.setStatus("Opening port...");
+            final BeamerSession session = new BeamerSession(serialPortName, beamer, transport, serialBeamerInterface);
+            session.open();
 
             // Hide the progress dialog
             dialog.setStatus("Loading dashboard...");
             dialog.setVisible(false);
 
             // Show the dashboard
-            DashboardFrame.showFrame(port, beamer);
+            DashboardFrame.showFrame(session, beamer);
 
-        } catch(SerialPortException e) {
+        } catch(IOException e) {
             // Hide the progress dialog
             dialog.setVisible(false);
 
@@ -21,6 +21,11 @@
 
 package com.timvisee.beamercontroller;
 
+import com.timvisee.beamercontroller.daemon.Daemon;
+
+import java.io.File;
+import java.io.IOException;
+
 public class BeamerController {
 
     /**
@@ -48,6 +53,11 @@ public class BeamerController {
      */
     public static final String APP_SOURCE_URL = "https://github.com/timvisee/beamer-controller";
 
+    /**
+     * Program argument to start the headless daemon, instead of the GUI.
+     */
+    public static final String ARG_DAEMON = "--daemon";
+
     /**
      * Main method, called on start.
      *
@@ -59,6 +69,12 @@ public class BeamerController {
         System.out.println("Developed by " + APP_ABOUT + "\n");
         System.out.println("Starting " + APP_NAME + "...");
 
+        // Start the headless daemon if requested
+        if(args.length > 0 && args[0].equals(ARG_DAEMON)) {
+            startDaemon(args.length > 1 ? new File(args[1]) : Daemon.getDefaultConfigFile());
+            return;
+        }
+
         // Get the application instance
         App app = App.getInstance();
 
@@ -74,4 +90,31 @@ public class BeamerController {
         // Initialize the app
         app.init();
     }
+
+    /**
+     * Start the headless daemon.
+     * This doesn't load any AWT or Swing classes, so it can run on machines without a display.
+     *
+     * @param configFile Daemon configuration file.
+     */
+    private static void startDaemon(File configFile) {
+        // Never initialize a display
+        System.setProperty("java.awt.headless", "true");
+
+        // Create the daemon
+        final Daemon daemon = new Daemon();
+
+        try {
+            // Start the daemon
+            daemon.start(configFile);
+
+        } catch(IOException e) {
+            // Show an error message, and quit
+            System.out.println("Failed to start daemon: " + e.getMessage());
+            System.exit(1);
+        }
+
+        // Serve commands until the daemon is stopped
+        daemon.serve();
+    }
 }
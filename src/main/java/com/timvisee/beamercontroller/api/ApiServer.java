@@ -0,0 +1,616 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.timvisee.beamercontroller.beamer.circuit.CircuitOpenException;
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.event.StateChangeEvent;
+import com.timvisee.beamercontroller.beamer.event.StateEventBus;
+import com.timvisee.beamercontroller.beamer.executor.CommandExecutor;
+import com.timvisee.beamercontroller.beamer.executor.CommandPriority;
+import com.timvisee.beamercontroller.beamer.executor.QueueWait;
+import com.timvisee.beamercontroller.beamer.response.Response;
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
+import com.timvisee.beamercontroller.beamer.session.SessionManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ApiServer {
+
+    /**
+     * Base path of all API endpoints.
+     */
+    public static final String BASE_PATH = "/api/";
+
+    /**
+     * Number of handler threads, if virtual threads aren't available.
+     */
+    private static final int HANDLER_THREADS = 16;
+
+    /**
+     * Maximum number of state changes queued for an event stream client, before the client is disconnected as too slow.
+     */
+    private static final int EVENT_QUEUE_SIZE = 256;
+
+    /**
+     * Time in milliseconds without state changes after which an empty line is sent on event streams,
+     * to detect clients that disconnected.
+     */
+    private static final int EVENT_KEEP_ALIVE_INTERVAL = 15000;
+
+    /**
+     * Maximum number of event streams open at the same time, each holding a stream writer thread.
+     */
+    private static final int MAX_EVENT_STREAMS = 32;
+
+    /**
+     * Address the server binds to.
+     */
+    private final InetSocketAddress address;
+
+    /**
+     * Session manager holding the beamer sessions to expose.
+     */
+    private final SessionManager sessionManager;
+
+    /**
+     * HTTP server, or null if not started.
+     */
+    private HttpServer server;
+
+    /**
+     * Executor running the request handlers.
+     */
+    private ExecutorService handlerExecutor;
+
+    /**
+     * Executor running the writers of event streams, separate from the handlers so open streams never hold a handler.
+     */
+    private ExecutorService streamExecutor;
+
+    /**
+     * Number of open event streams.
+     */
+    private final AtomicInteger streamCount = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param address Address to bind to.
+     * @param sessionManager Session manager holding the beamer sessions to expose.
+     */
+    public ApiServer(InetSocketAddress address, SessionManager sessionManager) {
+        this.address = address;
+        this.sessionManager = sessionManager;
+    }
+
+    /**
+     * Start the HTTP server.
+     *
+     * @throws IOException Throws if the server couldn't bind to its address.
+     */
+    public synchronized void start() throws IOException {
+        // Create the server and handler executor
+        this.server = HttpServer.create(this.address, 0);
+        this.handlerExecutor = createHandlerExecutor();
+        this.server.setExecutor(this.handlerExecutor);
+        this.streamExecutor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "api-event-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Route all API requests
+        this.server.createContext(BASE_PATH, this::handle);
+
+        // Start the server
+        this.server.start();
+        System.out.println("HTTP API listening on http://" + this.address.getHostString() + ":" + this.server.getAddress().getPort() + BASE_PATH);
+    }
+
+    /**
+     * Stop the HTTP server.
+     */
+    public synchronized void stop() {
+        // Don't stop if not started
+        if(this.server == null)
+            return;
+
+        // Stop the server and handlers
+        this.server.stop(0);
+        this.handlerExecutor.shutdownNow();
+        this.streamExecutor.shutdownNow();
+        this.server = null;
+    }
+
+    /**
+     * Create the executor to run request handlers on.
+     * This uses a virtual thread per request when running on Java 21 or newer, and a bounded thread pool otherwise.
+     *
+     * @return Handler executor.
+     */
+    private static ExecutorService createHandlerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+
+        } catch(ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(HANDLER_THREADS, runnable -> {
+                final Thread thread = new Thread(runnable, "api-handler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Handle an API request.
+     *
+     * @param exchange HTTP exchange.
+     *
+     * @throws IOException Throws if sending the response failed.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        // Split the path into its segments, after the base path
+        final String path = exchange.getRequestURI().getPath().substring(BASE_PATH.length());
+        final String[] segments = path.isEmpty() ? new String[0] : path.split("/");
+        final String method = exchange.getRequestMethod();
+
+        try {
+            // GET /api/beamers
+            if(segments.length == 1 && segments[0].equals("beamers")) {
+                requireMethod(exchange, "GET");
+                send(exchange, 200, listSessions());
+                return;
+            }
+
+            // GET /api/events
+            if(segments.length == 1 && segments[0].equals("events")) {
+                requireMethod(exchange, "GET");
+                streamEvents(exchange, null);
+                return;
+            }
+
+            // POST /api/groups/{group}/commands/{command}
+            if(segments.length == 4 && segments[0].equals("groups") && segments[2].equals("commands")) {
+                requireMethod(exchange, "POST");
+                broadcastCommand(exchange, segments[1], segments[3]);
+                return;
+            }
+
+            // Find the session for all other beamer endpoints
+            if(segments.length < 2 || !segments[0].equals("beamers")) {
+                sendError(exchange, 404, "not found");
+                return;
+            }
+            final BeamerSession session = this.sessionManager.getSession(segments[1]);
+            if(session == null) {
+                sendError(exchange, 404, "unknown beamer: " + segments[1]);
+                return;
+            }
+
+            // GET /api/beamers/{id}
+            if(segments.length == 2) {
+                requireMethod(exchange, "GET");
+                send(exchange, 200, sessionToJson(session));
+                return;
+            }
+
+            // GET /api/beamers/{id}/commands
+            if(segments.length == 3 && segments[2].equals("commands")) {
+                requireMethod(exchange, "GET");
+                send(exchange, 200, listCommands(session));
+                return;
+            }
+
+            // GET /api/beamers/{id}/events
+            if(segments.length == 3 && segments[2].equals("events")) {
+                requireMethod(exchange, "GET");
+                streamEvents(exchange, session.getId());
+                return;
+            }
+
+            // POST /api/beamers/{id}/commands/{command}
+            if(segments.length == 4 && segments[2].equals("commands")) {
+                requireMethod(exchange, "POST");
+                executeCommand(exchange, session, segments[3]);
+                return;
+            }
+
+            // Unknown endpoint
+            sendError(exchange, 404, "not found");
+
+        } catch(MethodNotAllowedException e) {
+            sendError(exchange, 405, "method " + method + " not allowed");
+        }
+    }
+
+    /**
+     * Execute a command on a session, and send the result when the command completes.
+     * The handler thread isn't blocked while the command is queued or waiting for a response.
+     *
+     * @param exchange HTTP exchange.
+     * @param session Beamer session.
+     * @param commandId Command ID.
+     *
+     * @throws IOException Throws if sending the response failed.
+     */
+    private void executeCommand(HttpExchange exchange, BeamerSession session, String commandId) throws IOException {
+        // Find the command
+        final Command command = session.getBeamer().getCommandManager().getCommand(commandId);
+        if(command == null) {
+            sendError(exchange, 404, "unknown command: " + commandId);
+            return;
+        }
+
+        // Submit the command, and respond from a handler thread when it completes
+        session.submit(command).whenCompleteAsync((response, throwable) -> {
+            try {
+                // Tell the client to back off if the command queue is full or the device is unreachable
+                if(throwable != null) {
+                    final Throwable cause = unwrap(throwable);
+                    sendError(exchange, cause instanceof RejectedExecutionException || cause instanceof CircuitOpenException ? 503 : 502, cause.toString());
+                } else
+                    send(exchange, 200, resultToJson(session, command.getId(), response));
+            } catch(IOException e) {
+                exchange.close();
+            }
+        }, this.handlerExecutor);
+    }
+
+    /**
+     * Broadcast a command to all sessions in a group.
+     * The result of each session is streamed as a line of JSON as soon as it finishes, without blocking the handler thread.
+     *
+     * @param exchange HTTP exchange.
+     * @param group Group name.
+     * @param commandId Command ID.
+     *
+     * @throws IOException Throws if sending the response failed.
+     */
+    private void broadcastCommand(HttpExchange exchange, String group, String commandId) throws IOException {
+        // Make sure the group has sessions
+        if(this.sessionManager.getGroup(group).isEmpty()) {
+            sendError(exchange, 404, "unknown or empty group: " + group);
+            return;
+        }
+
+        // Start a chunked response, with a line of JSON for each session
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        final OutputStream out = exchange.getResponseBody();
+
+        // Broadcast the command, stream each result, and close the response when all finished
+        this.sessionManager.broadcast(group, commandId, result -> {
+            final String json = result.isSuccess()
+                    ? resultToJson(result.getSession(), commandId, result.getResponse())
+                    : "{\"beamer\":" + quote(result.getSession().getId()) + ",\"command\":" + quote(commandId) + ",\"error\":" + quote(result.getFailure().toString()) + "}";
+            try {
+                synchronized(out) {
+                    out.write((json + "\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } catch(IOException ignored) {}
+        }).whenComplete((results, throwable) -> exchange.close());
+    }
+
+    /**
+     * Stream state changes as they happen, with a line of JSON for each change, and an empty line when idle.
+     * The stream stays open until the client disconnects, on a stream writer thread rather than this handler thread.
+     * Changes are queued for the writer thread, so a slow client never blocks the thread publishing them.
+     * A client that falls too far behind is disconnected.
+     *
+     * @param exchange HTTP exchange.
+     * @param sessionId ID of the session to stream changes of, or null for all sessions.
+     *
+     * @throws IOException Throws if sending the response failed.
+     */
+    private void streamEvents(HttpExchange exchange, String sessionId) throws IOException {
+        // Limit the number of open streams
+        if(this.streamCount.incrementAndGet() > MAX_EVENT_STREAMS) {
+            this.streamCount.decrementAndGet();
+            sendError(exchange, 503, "too many event streams");
+            return;
+        }
+
+        // Start a chunked response
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+        } catch(IOException e) {
+            this.streamCount.decrementAndGet();
+            throw e;
+        }
+
+        // Queue each change, and mark the client as too slow if its queue is full
+        final BlockingQueue<StateChangeEvent> events = new ArrayBlockingQueue<>(EVENT_QUEUE_SIZE);
+        final AtomicBoolean overflowed = new AtomicBoolean(false);
+        final StateEventBus.Subscription subscription = this.sessionManager.getEventBus().subscribe(sessionId, null, event -> {
+            if(!events.offer(event))
+                overflowed.set(true);
+        });
+
+        // Write the changes on a stream writer thread
+        try {
+            this.streamExecutor.execute(() -> writeEvents(exchange, events, overflowed, subscription));
+        } catch(RejectedExecutionException e) {
+            subscription.unsubscribe();
+            exchange.close();
+            this.streamCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Write the queued state changes of an event stream until the client disconnects, falls behind, or the server stops.
+     *
+     * @param exchange HTTP exchange of the stream.
+     * @param events Queued state changes.
+     * @param overflowed Set if the queue overflowed because the client fell behind.
+     * @param subscription Subscription feeding the queue, removed when the stream ends.
+     */
+    private void writeEvents(HttpExchange exchange, BlockingQueue<StateChangeEvent> events, AtomicBoolean overflowed, StateEventBus.Subscription subscription) {
+        final OutputStream out = exchange.getResponseBody();
+        try {
+            // Write queued changes until the client disconnects, falls behind, or the server stops
+            while(!overflowed.get()) {
+                final StateChangeEvent event = events.poll(EVENT_KEEP_ALIVE_INTERVAL, TimeUnit.MILLISECONDS);
+                out.write(((event != null ? eventToJson(event) : "") + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch(IOException ignored) {
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscription.unsubscribe();
+            exchange.close();
+            this.streamCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Build the JSON object of a state change event.
+     *
+     * @param event State change event.
+     *
+     * @return JSON.
+     */
+    private static String eventToJson(StateChangeEvent event) {
+        return "{\"beamer\":" + quote(event.getSessionId()) +
+                ",\"attribute\":" + quote(event.getAttribute().getId()) +
+                ",\"oldValue\":" + (event.getOldValue() != null ? quote(event.getOldValue()) : "null") +
+                ",\"newValue\":" + quote(event.getNewValue()) +
+                ",\"time\":" + event.getTime() +
+                "}";
+    }
+
+    /**
+     * Build the JSON list of sessions.
+     *
+     * @return JSON.
+     */
+    private String listSessions() {
+        final StringBuilder json = new StringBuilder("[");
+        for(BeamerSession session : this.sessionManager.getSessions()) {
+            if(json.length() > 1)
+                json.append(',');
+            json.append(sessionToJson(session));
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Build the JSON list of commands of a session.
+     *
+     * @param session Beamer session.
+     *
+     * @return JSON.
+     */
+    private static String listCommands(BeamerSession session) {
+        final StringBuilder json = new StringBuilder("[");
+        for(Command command : session.getBeamer().getCommandManager().getCommands()) {
+            if(json.length() > 1)
+                json.append(',');
+            json.append("{\"id\":").append(quote(command.getId()))
+                    .append(",\"name\":").append(quote(command.getName()))
+                    .append(",\"type\":").append(quote(command.getCommandType().getId()))
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Build the JSON object of a session.
+     *
+     * @param session Beamer session.
+     *
+     * @return JSON.
+     */
+    private static String sessionToJson(BeamerSession session) {
+        return "{\"id\":" + quote(session.getId()) +
+                ",\"beamer\":" + quote(session.getBeamer().getId()) +
+                ",\"name\":" + quote(session.getBeamer().getName()) +
+                ",\"transport\":" + quote(session.getTransport().getName()) +
+                ",\"state\":" + quote(session.getState().getId()) +
+                ",\"queued\":" + session.getExecutor().getQueueSize() +
+                ",\"rejected\":" + session.getExecutor().getRejectedCount() +
+                ",\"retries\":" + session.getRetryCount() +
+                ",\"queueWait\":" + queueWaitToJson(session.getExecutor()) +
+                ",\"minimumGap\":" + session.getExecutor().getMinimumGap() +
+                ",\"skippedWrites\":" + session.getSkippedWriteCount() +
+                ",\"power\":" + quote(session.getPowerState().getId()) +
+                ",\"heldCommands\":" + session.getHeldCount() +
+                ",\"circuit\":" + quote(session.getCircuitState().getId()) +
+                ",\"fastFailed\":" + session.getCircuitBreaker().getFastFailCount() +
+                ",\"attributes\":" + valuesToJson(session.getStateCache().getValues()) +
+                "}";
+    }
+
+    /**
+     * Build the JSON object of the time commands of each priority waited in the queue of a beamer.
+     *
+     * @param executor Command executor of the beamer.
+     *
+     * @return JSON.
+     */
+    private static String queueWaitToJson(CommandExecutor executor) {
+        final StringBuilder json = new StringBuilder("{");
+        for(CommandPriority priority : CommandPriority.values()) {
+            final QueueWait queueWait = executor.getQueueWait(priority);
+            if(json.length() > 1)
+                json.append(',');
+            json.append(quote(priority.getId()))
+                    .append(":{\"count\":").append(queueWait.getCount())
+                    .append(",\"averageMs\":").append(queueWait.getAverageMillis())
+                    .append(",\"maxMs\":").append(queueWait.getMaxMillis())
+                    .append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Build the JSON object of the last known attribute values of a beamer.
+     *
+     * @param values Attribute values, by their command key.
+     *
+     * @return JSON.
+     */
+    private static String valuesToJson(Map<String, String> values) {
+        final StringBuilder json = new StringBuilder("{");
+        for(Map.Entry<String, String> entry : values.entrySet()) {
+            if(json.length() > 1)
+                json.append(',');
+            json.append(quote(entry.getKey())).append(':').append(quote(entry.getValue()));
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Build the JSON object of a command result.
+     *
+     * @param session Beamer session.
+     * @param commandId ID of the executed command.
+     * @param response Command response, or null.
+     *
+     * @return JSON.
+     */
+    private static String resultToJson(BeamerSession session, String commandId, Response response) {
+        return "{\"beamer\":" + quote(session.getId()) +
+                ",\"command\":" + quote(commandId) +
+                ",\"response\":" + (response != null ? "{\"key\":" + quote(response.getKey()) + ",\"value\":" + quote(response.getValue()) + "}" : "null") +
+                "}";
+    }
+
+    /**
+     * Quote and escape the given string as JSON string.
+     *
+     * @param value String value.
+     *
+     * @return JSON string.
+     */
+    static String quote(String value) {
+        final StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for(int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if(c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if(c < 0x20)
+                json.append(String.format("\\u%04x", (int) c));
+            else
+                json.append(c);
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * Make sure the request uses the given method.
+     *
+     * @param exchange HTTP exchange.
+     * @param method Required method.
+     *
+     * @throws MethodNotAllowedException Throws if the request uses a different method.
+     */
+    private static void requireMethod(HttpExchange exchange, String method) throws MethodNotAllowedException {
+        if(!exchange.getRequestMethod().equalsIgnoreCase(method))
+            throw new MethodNotAllowedException();
+    }
+
+    /**
+     * Unwrap the cause of a completion exception.
+     *
+     * @param throwable Throwable.
+     *
+     * @return Cause.
+     */
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    /**
+     * Send an error response.
+     *
+     * @param exchange HTTP exchange.
+     * @param status HTTP status code.
+     * @param message Error message.
+     *
+     * @throws IOException Throws if sending failed.
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + quote(message) + "}");
+    }
+
+    /**
+     * Send a JSON response, and close the exchange.
+     *
+     * @param exchange HTTP exchange.
+     * @param status HTTP status code.
+     * @param json JSON body.
+     *
+     * @throws IOException Throws if sending failed.
+     */
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Thrown when a request uses a method that isn't allowed for its endpoint.
+     */
+    private static class MethodNotAllowedException extends Exception {}
+}
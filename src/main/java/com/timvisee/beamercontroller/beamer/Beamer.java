@@ -21,10 +21,18 @@
 
 package com.timvisee.beamercontroller.beamer;
 
+import com.timvisee.beamercontroller.beamer.iface.BeamerInterface;
 import com.timvisee.beamercontroller.beamer.iface.BeamerInterfaceManager;
 import com.timvisee.beamercontroller.beamer.command.CommandManager;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.delivery.DeliveryPolicy;
+import com.timvisee.beamercontroller.beamer.power.PowerProfile;
 import com.timvisee.yamlwrapper.ConfigurationSection;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 public class Beamer {
 
     /**
@@ -47,6 +55,11 @@ public class Beamer {
      */
     private CommandManager commandManager = new CommandManager();
 
+    /**
+     * Power profile, describing how the beamer warms up and cools down, or null if it switches instantly.
+     */
+    private PowerProfile powerProfile;
+
     /**
      * Constructor.
      *
@@ -94,6 +107,24 @@ public class Beamer {
         return this.commandManager;
     }
 
+    /**
+     * Get the power profile, describing how the beamer warms up and cools down.
+     *
+     * @return Power profile, or null if the beamer switches instantly.
+     */
+    public PowerProfile getPowerProfile() {
+        return this.powerProfile;
+    }
+
+    /**
+     * Set the power profile, describing how the beamer warms up and cools down.
+     *
+     * @param powerProfile Power profile, or null if the beamer switches instantly.
+     */
+    public void setPowerProfile(PowerProfile powerProfile) {
+        this.powerProfile = powerProfile;
+    }
+
     /**
      * Load the beamer from the given configuration section.
      *
@@ -112,8 +143,26 @@ public class Beamer {
         // Load the beamer interfaces
         beamer.beamerInterfaceManager.load(beamerSection.getConfigurationSection("interfaces"));
 
-        // Load the beamer commands
-        beamer.commandManager.load(beamerSection.getConfigurationSection("commands"));
+        // Load the delivery policies of each command type
+        final Map<CommandType, DeliveryPolicy> deliveryPolicies = new EnumMap<>(CommandType.class);
+        if(beamerSection.isConfigurationSection("delivery")) {
+            final ConfigurationSection deliverySection = beamerSection.getConfigurationSection("delivery");
+            for(CommandType type : CommandType.values())
+                if(deliverySection.isConfigurationSection(type.getId()))
+                    deliveryPolicies.put(type, DeliveryPolicy.load(deliverySection.getConfigurationSection(type.getId()), DeliveryPolicy.getDefault(type)));
+        }
+
+        // Load the beamer commands, and encode them for the primary interface
+        final List<BeamerInterface> interfaces = beamer.beamerInterfaceManager.getInterfaces();
+        beamer.commandManager.load(
+                beamerSection.getConfigurationSection("commands"),
+                !interfaces.isEmpty() ? interfaces.get(0).getFraming() : null,
+                deliveryPolicies
+        );
+
+        // Load the power profile
+        if(beamerSection.isConfigurationSection("power"))
+            beamer.powerProfile = PowerProfile.load(beamerSection.getConfigurationSection("power"));
 
         // Return the beamer instance
         return beamer;
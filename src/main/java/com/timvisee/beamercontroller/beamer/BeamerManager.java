@@ -48,6 +48,23 @@ public class BeamerManager {
         return this.beamers;
     }
 
+    /**
+     * Get a loaded beamer type by its ID.
+     *
+     * @param id Beamer type ID.
+     *
+     * @return Beamer type, or null if no beamer type with this ID is loaded.
+     */
+    public Beamer getBeamer(String id) {
+        // Loop through the beamers and return the one with the same ID
+        for(Beamer beamer : this.beamers)
+            if(beamer.getId().equalsIgnoreCase(id))
+                return beamer;
+
+        // No beamer found
+        return null;
+    }
+
     /**
      * Get the number of loaded beamer configurations.
      *
@@ -0,0 +1,99 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.broadcast;
+
+import com.timvisee.beamercontroller.beamer.response.Response;
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
+
+public class BroadcastResult {
+
+    /**
+     * Session the command was sent to.
+     */
+    private final BeamerSession session;
+
+    /**
+     * Response of the command, or null.
+     */
+    private final Response response;
+
+    /**
+     * Error the command failed with, or null if it succeeded.
+     */
+    private final Throwable failure;
+
+    /**
+     * Constructor.
+     *
+     * @param session Session the command was sent to.
+     * @param response Response of the command, or null.
+     * @param failure Error the command failed with, or null if it succeeded.
+     */
+    public BroadcastResult(BeamerSession session, Response response, Throwable failure) {
+        this.session = session;
+        this.response = response;
+        this.failure = failure;
+    }
+
+    /**
+     * Get the session the command was sent to.
+     *
+     * @return Session.
+     */
+    public BeamerSession getSession() {
+        return this.session;
+    }
+
+    /**
+     * Get the response of the command.
+     *
+     * @return Response, or null if the command failed.
+     */
+    public Response getResponse() {
+        return this.response;
+    }
+
+    /**
+     * Get the error the command failed with.
+     *
+     * @return Failure, or null if the command succeeded.
+     */
+    public Throwable getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * Check whether the command succeeded.
+     *
+     * @return True if succeeded, false if failed.
+     */
+    public boolean isSuccess() {
+        return this.failure == null;
+    }
+
+    @Override
+    public String toString() {
+        if(!isSuccess())
+            return this.session.getId() + ": failed: " + this.failure.getMessage();
+        return this.session.getId() + ": ok" + (this.response != null ? " (" + this.response + ")" : "");
+    }
+}
@@ -0,0 +1,216 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.broadcast;
+
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Broadcaster {
+
+    /**
+     * Default maximum number of sessions a command is in flight on at the same time.
+     */
+    public static final int DEFAULT_CONCURRENCY = 64;
+
+    /**
+     * Maximum number of sessions a command is in flight on at the same time.
+     */
+    private final int concurrency;
+
+    /**
+     * Constructor.
+     */
+    public Broadcaster() {
+        this(DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param concurrency Maximum number of sessions a command is in flight on at the same time.
+     */
+    public Broadcaster(int concurrency) {
+        if(concurrency < 1)
+            throw new IllegalArgumentException("broadcast concurrency must be at least 1");
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Get the maximum number of sessions a command is in flight on at the same time.
+     *
+     * @return Concurrency limit.
+     */
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+
+    /**
+     * Send a command to all given sessions concurrently, limited to the configured concurrency.
+     * No thread is blocked while commands are in flight, the next session is started when a command completes.
+     *
+     * @param sessions Sessions to send the command to.
+     * @param commandId ID of the command to send, resolved for the beamer of each session.
+     * @param listener Listener receiving the result of each session as soon as it finishes, or null.
+     *
+     * @return Future completing with the results of all sessions in the given order, when all sessions finished.
+     */
+    public CompletableFuture<List<BroadcastResult>> broadcast(Collection<BeamerSession> sessions, String commandId, BroadcastListener listener) {
+        // Complete immediately if there are no sessions
+        if(sessions.isEmpty())
+            return CompletableFuture.completedFuture(Collections.emptyList());
+
+        // Start the first sessions, each completion starts the next one
+        final Run run = new Run(sessions.toArray(new BeamerSession[0]), commandId, listener);
+        for(int i = 0; i < Math.min(this.concurrency, run.sessions.length); i++)
+            run.startNext();
+
+        return run.future;
+    }
+
+    /**
+     * State of a single broadcast.
+     */
+    private static class Run {
+
+        /**
+         * Sessions to send the command to.
+         */
+        final BeamerSession[] sessions;
+
+        /**
+         * ID of the command to send.
+         */
+        final String commandId;
+
+        /**
+         * Listener receiving the result of each session, or null.
+         */
+        final BroadcastListener listener;
+
+        /**
+         * Results, by session index.
+         */
+        final BroadcastResult[] results;
+
+        /**
+         * Index of the next session to start.
+         */
+        final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * Number of requested session starts that didn't run yet, the thread raising it from 0 runs all of them.
+         */
+        final AtomicInteger starts = new AtomicInteger();
+
+        /**
+         * Number of sessions that didn't finish yet.
+         */
+        final AtomicInteger remaining;
+
+        /**
+         * Future completing with all results.
+         */
+        final CompletableFuture<List<BroadcastResult>> future = new CompletableFuture<>();
+
+        /**
+         * Constructor.
+         *
+         * @param sessions Sessions to send the command to.
+         * @param commandId ID of the command to send.
+         * @param listener Listener receiving the result of each session, or null.
+         */
+        Run(BeamerSession[] sessions, String commandId, BroadcastListener listener) {
+            this.sessions = sessions;
+            this.commandId = commandId;
+            this.listener = listener;
+            this.results = new BroadcastResult[sessions.length];
+            this.remaining = new AtomicInteger(sessions.length);
+        }
+
+        /**
+         * Send the command to the next session that isn't started yet, if any.
+         * Sessions are started in a loop rather than recursively, as a command that completes right away,
+         * such as one answered from the cache or failing fast, would otherwise nest the next start in its completion.
+         */
+        void startNext() {
+            // Let the thread already starting sessions start this one too
+            if(this.starts.getAndIncrement() != 0)
+                return;
+
+            // Start sessions until no more starts are requested
+            do {
+                start();
+            } while(this.starts.decrementAndGet() != 0);
+        }
+
+        /**
+         * Send the command to the next session that isn't started yet, if any.
+         */
+        private void start() {
+            // Take the next session
+            final int index = this.next.getAndIncrement();
+            if(index >= this.sessions.length)
+                return;
+            final BeamerSession session = this.sessions[index];
+
+            // Submit the command, and handle the result when it completes
+            session.submit(this.commandId).whenComplete((response, throwable) -> {
+                // Store the result
+                final BroadcastResult result = new BroadcastResult(session, response, unwrap(throwable));
+                this.results[index] = result;
+
+                // Report the result
+                if(this.listener != null) {
+                    try {
+                        this.listener.onResult(result);
+                    } catch(RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+
+                // Complete when all sessions finished, or start the next session
+                if(this.remaining.decrementAndGet() == 0)
+                    this.future.complete(Arrays.asList(this.results));
+                else
+                    startNext();
+            });
+        }
+
+        /**
+         * Unwrap the cause of a completion exception.
+         *
+         * @param throwable Throwable, or null.
+         *
+         * @return Cause, or null.
+         */
+        private static Throwable unwrap(Throwable throwable) {
+            return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        }
+    }
+}
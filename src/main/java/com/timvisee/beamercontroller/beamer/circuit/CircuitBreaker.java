@@ -0,0 +1,330 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.circuit;
+
+import com.timvisee.beamercontroller.beamer.response.Response;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public class CircuitBreaker {
+
+    /**
+     * Default number of consecutive failures after which the circuit opens.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * Default time in milliseconds the circuit stays open before it's probed.
+     */
+    public static final int DEFAULT_OPEN_TIME = 10000;
+
+    /**
+     * Default maximum time in milliseconds the circuit stays open, after repeatedly failed probes.
+     */
+    public static final int DEFAULT_MAX_OPEN_TIME = 120000;
+
+    /**
+     * Shared scheduler used to probe open circuits.
+     */
+    private static final ScheduledThreadPoolExecutor PROBE_SCHEDULER;
+
+    static {
+        PROBE_SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "beamer-circuit-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        PROBE_SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Probe sending a cheap read command, or null to let the first request after the open time through as a trial.
+     */
+    private final Supplier<CompletableFuture<Response>> probe;
+
+    /**
+     * Number of consecutive failures after which the circuit opens, 0 to never open.
+     */
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+    /**
+     * Time in milliseconds the circuit stays open before it's probed.
+     */
+    private volatile int openTime = DEFAULT_OPEN_TIME;
+
+    /**
+     * Maximum time in milliseconds the circuit stays open, after repeatedly failed probes.
+     */
+    private volatile int maxOpenTime = DEFAULT_MAX_OPEN_TIME;
+
+    /**
+     * Current state.
+     */
+    private volatile CircuitState state = CircuitState.CLOSED;
+
+    /**
+     * Number of consecutive failures.
+     */
+    private int failures = 0;
+
+    /**
+     * Time in milliseconds the circuit stays open this time, doubled after each failed probe.
+     */
+    private long currentOpenTime;
+
+    /**
+     * Time in nanoseconds the circuit opened at.
+     */
+    private long openedAt;
+
+    /**
+     * Scheduled probe, or null.
+     */
+    private ScheduledFuture<?> probeTimer;
+
+    /**
+     * Number of times the circuit opened.
+     */
+    private final LongAdder openCount = new LongAdder();
+
+    /**
+     * Number of requests that failed fast because the circuit was open.
+     */
+    private final LongAdder fastFailCount = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param probe Probe sending a cheap read command, or null to let the first request after the open time through as a trial.
+     */
+    public CircuitBreaker(Supplier<CompletableFuture<Response>> probe) {
+        this.probe = probe;
+    }
+
+    /**
+     * Get the current state.
+     *
+     * @return Circuit state.
+     */
+    public CircuitState getState() {
+        return this.state;
+    }
+
+    /**
+     * Set the number of consecutive failures after which the circuit opens.
+     *
+     * @param failureThreshold Failure threshold, or 0 to never open.
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * Set the time the circuit stays open before it's probed.
+     *
+     * @param openTime Open time in milliseconds.
+     */
+    public void setOpenTime(int openTime) {
+        this.openTime = openTime;
+    }
+
+    /**
+     * Set the maximum time the circuit stays open, after repeatedly failed probes.
+     *
+     * @param maxOpenTime Maximum open time in milliseconds.
+     */
+    public void setMaxOpenTime(int maxOpenTime) {
+        this.maxOpenTime = maxOpenTime;
+    }
+
+    /**
+     * Get the number of times the circuit opened.
+     *
+     * @return Open count.
+     */
+    public long getOpenCount() {
+        return this.openCount.sum();
+    }
+
+    /**
+     * Get the number of requests that failed fast because the circuit was open.
+     *
+     * @return Fast fail count.
+     */
+    public long getFastFailCount() {
+        return this.fastFailCount.sum();
+    }
+
+    /**
+     * Check whether a request may be sent.
+     * While the circuit is open, requests should fail fast. Without a probe, the first request after the open time
+     * is let through as a trial, which closes the circuit if it succeeds.
+     *
+     * @return True if the request may be sent, false if it should fail fast.
+     */
+    public boolean allowRequest() {
+        // Allow all requests while closed, without locking
+        if(this.state == CircuitState.CLOSED)
+            return true;
+
+        synchronized(this) {
+            // Let a trial request through once the open time passed, if there's no probe
+            if(this.state == CircuitState.OPEN && this.probe == null
+                    && System.nanoTime() - this.openedAt >= TimeUnit.MILLISECONDS.toNanos(this.currentOpenTime)) {
+                this.state = CircuitState.HALF_OPEN;
+                return true;
+            }
+            if(this.state == CircuitState.CLOSED)
+                return true;
+        }
+
+        this.fastFailCount.increment();
+        return false;
+    }
+
+    /**
+     * Report the result of a request.
+     * Only timeouts and transport failures count as failures, an error reported by the beamer shows it's reachable.
+     * Requests that never reached the beamer, because they were failed fast, rejected or cancelled, say nothing about it.
+     *
+     * @param throwable Failure of the request, or null if it succeeded.
+     *
+     * @return True if this opened the circuit, false if not.
+     */
+    public boolean onResult(Throwable throwable) {
+        // Requests that never reached the beamer neither count nor close the circuit, but don't leave a trial pending
+        if(!isSent(throwable)) {
+            synchronized(this) {
+                if(this.state == CircuitState.HALF_OPEN)
+                    open(this.currentOpenTime);
+            }
+            return false;
+        }
+
+        // Successes and errors reported by the beamer close the circuit
+        if(!isFailure(throwable)) {
+            synchronized(this) {
+                this.failures = 0;
+                if(this.state != CircuitState.CLOSED)
+                    close();
+            }
+            return false;
+        }
+
+        synchronized(this) {
+            // Reopen for longer if the trial failed
+            if(this.state == CircuitState.HALF_OPEN) {
+                open(Math.min(this.currentOpenTime * 2, this.maxOpenTime));
+                return false;
+            }
+
+            // Open after too many consecutive failures
+            if(this.state == CircuitState.CLOSED && this.failureThreshold > 0 && ++this.failures >= this.failureThreshold) {
+                open(this.openTime);
+                this.openCount.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Open the circuit, and schedule the probe.
+     *
+     * @param openTime Time in milliseconds to stay open.
+     */
+    private void open(long openTime) {
+        this.state = CircuitState.OPEN;
+        this.openedAt = System.nanoTime();
+        this.currentOpenTime = openTime;
+        if(this.probe != null)
+            this.probeTimer = PROBE_SCHEDULER.schedule(this::probe, openTime, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Close the circuit.
+     */
+    private void close() {
+        this.state = CircuitState.CLOSED;
+        this.failures = 0;
+        if(this.probeTimer != null)
+            this.probeTimer.cancel(false);
+        this.probeTimer = null;
+    }
+
+    /**
+     * Send the probe in the half-open state, which closes the circuit if it succeeds and reopens it if not.
+     */
+    private void probe() {
+        synchronized(this) {
+            if(this.state != CircuitState.OPEN)
+                return;
+            this.state = CircuitState.HALF_OPEN;
+            this.probeTimer = null;
+        }
+        this.probe.get().whenComplete((response, throwable) -> onResult(throwable));
+    }
+
+    /**
+     * Reset the circuit to closed, such as when the connection to the beamer is reopened.
+     */
+    public synchronized void reset() {
+        close();
+    }
+
+    /**
+     * Check whether a request reached the beamer, rather than being failed fast, rejected or cancelled before it.
+     *
+     * @param throwable Failure, or null.
+     *
+     * @return True if the request was sent, false if not.
+     */
+    private static boolean isSent(Throwable throwable) {
+        if(throwable instanceof CompletionException && throwable.getCause() != null)
+            throwable = throwable.getCause();
+        return !(throwable instanceof CircuitOpenException || throwable instanceof RejectedExecutionException
+                || throwable instanceof CancellationException);
+    }
+
+    /**
+     * Check whether a request failure counts towards opening the circuit.
+     *
+     * @param throwable Failure, or null.
+     *
+     * @return True if it's a timeout or transport failure, false if not.
+     */
+    private static boolean isFailure(Throwable throwable) {
+        if(throwable instanceof CompletionException && throwable.getCause() != null)
+            throwable = throwable.getCause();
+        return throwable instanceof TimeoutException || throwable instanceof IOException;
+    }
+}
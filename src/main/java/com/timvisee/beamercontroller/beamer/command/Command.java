@@ -21,10 +21,22 @@
 
 package com.timvisee.beamercontroller.beamer.command;
 
+import com.timvisee.beamercontroller.beamer.delivery.DeliveryPolicy;
+import com.timvisee.beamercontroller.util.CommandUtils;
 import com.timvisee.yamlwrapper.ConfigurationSection;
 
 public class Command {
 
+    /**
+     * Default time in milliseconds to wait for a response to a read command.
+     */
+    public static final int DEFAULT_TIMEOUT = 3000;
+
+    /**
+     * Default time in milliseconds a read response is cached, 0 to not cache responses.
+     */
+    public static final int DEFAULT_CACHE_TTL = 0;
+
     /**
      * Unique command ID.
      */
@@ -45,6 +57,46 @@ public class Command {
      */
     private String command;
 
+    /**
+     * Command key, derived from the command.
+     */
+    private String key;
+
+    /**
+     * Encoded command frame, or null if the command hasn't been framed yet.
+     */
+    private volatile CommandFrame frame;
+
+    /**
+     * Command handle within its command manager, or -1 if the command isn't managed.
+     */
+    private int handle = -1;
+
+    /**
+     * Time in milliseconds to wait for a response.
+     */
+    private int timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * Time in milliseconds a response to this read command is served from the state cache.
+     */
+    private int cacheTtl = DEFAULT_CACHE_TTL;
+
+    /**
+     * Group of mutually exclusive write commands this command is part of, or null.
+     */
+    private String group;
+
+    /**
+     * Value the attribute of this write command has after executing it, or null to use the command value.
+     */
+    private String stateValue;
+
+    /**
+     * Delivery policy, or null to use the default policy of the command type.
+     */
+    private DeliveryPolicy deliveryPolicy;
+
     /**
      * Constructor.
      *
@@ -58,6 +110,7 @@ public class Command {
         this.name = name;
         this.commandType = type;
         this.command = command;
+        this.key = CommandUtils.getCommandKey(command);
     }
 
     /**
@@ -78,6 +131,24 @@ public class Command {
         this.id = id;
     }
 
+    /**
+     * Get the command handle, which is the index of the command in its command manager.
+     *
+     * @return Command handle, or -1 if the command isn't loaded by a command manager.
+     */
+    public int getHandle() {
+        return this.handle;
+    }
+
+    /**
+     * Set the command handle.
+     *
+     * @param handle Command handle.
+     */
+    void setHandle(int handle) {
+        this.handle = handle;
+    }
+
     /**
      * Get the command name.
      *
@@ -130,15 +201,151 @@ public class Command {
      */
     public void setCommand(String command) {
         this.command = command;
+        this.key = CommandUtils.getCommandKey(command);
+        this.frame = null;
     }
 
     /**
-     * Load a command from the given configuration section.
+     * Get the command key, which is the part of the command before the value.
+     * For example, this is {@code pow} for {@code pow=?}.
+     *
+     * @return Command key.
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Get the encoded frame of this command for the given framing.
+     * The frame is built once and reused, until the command or framing changes.
+     *
+     * @param framing Command framing.
+     *
+     * @return Command frame.
+     */
+    public CommandFrame getFrame(CommandFraming framing) {
+        // Return the cached frame if it was built with the same framing
+        CommandFrame frame = this.frame;
+        if(frame != null && frame.getFraming() == framing)
+            return frame;
+
+        // Build and cache the frame
+        frame = framing.frame(this.command);
+        this.frame = frame;
+        return frame;
+    }
+
+    /**
+     * Get the time in milliseconds to wait for a response.
+     *
+     * @return Response timeout in milliseconds.
+     */
+    public int getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Set the time in milliseconds to wait for a response.
+     *
+     * @param timeout Response timeout in milliseconds.
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Get the time in milliseconds a response to this read command is served from the state cache.
+     *
+     * @return Cache TTL in milliseconds, or 0 if responses aren't cached.
+     */
+    public int getCacheTtl() {
+        return this.cacheTtl;
+    }
+
+    /**
+     * Set the time in milliseconds a response to this read command is served from the state cache.
+     *
+     * @param cacheTtl Cache TTL in milliseconds, or 0 to not cache responses.
+     */
+    public void setCacheTtl(int cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    /**
+     * Get the group of mutually exclusive write commands this command is part of, such as {@code source}.
+     * Only the newest queued write command of a group is sent, older ones that weren't sent yet are replaced.
+     *
+     * @return Group name, or null if this command isn't part of a group.
+     */
+    public String getGroup() {
+        return this.group;
+    }
+
+    /**
+     * Set the group of mutually exclusive write commands this command is part of.
+     *
+     * @param group Group name, or null.
+     */
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    /**
+     * Get the value the attribute of this write command has after executing it, as reported by the beamer.
+     * This defaults to the value of the command, such as {@code on} for {@code pow=on}.
+     *
+     * @return State value, or null if the command has no value.
+     */
+    public String getStateValue() {
+        return this.stateValue != null ? this.stateValue : CommandUtils.getCommandValue(this.command);
+    }
+
+    /**
+     * Set the value the attribute of this write command has after executing it.
+     *
+     * @param stateValue State value, or null to use the command value.
+     */
+    public void setStateValue(String stateValue) {
+        this.stateValue = stateValue;
+    }
+
+    /**
+     * Get the delivery policy, defining the timeout, retries and verification of this command.
+     *
+     * @return Delivery policy.
+     */
+    public DeliveryPolicy getDeliveryPolicy() {
+        return this.deliveryPolicy != null ? this.deliveryPolicy : DeliveryPolicy.getDefault(this.commandType);
+    }
+
+    /**
+     * Set the delivery policy, defining the timeout, retries and verification of this command.
+     *
+     * @param deliveryPolicy Delivery policy, or null to use the default policy of the command type.
+     */
+    public void setDeliveryPolicy(DeliveryPolicy deliveryPolicy) {
+        this.deliveryPolicy = deliveryPolicy;
+    }
+
+    /**
+     * Load a command from the given configuration section, with the default delivery policy of its type.
      *
      * @param commandSection Configuration section of the command.
      * @return Loaded command instance.
      */
     public static Command load(ConfigurationSection commandSection) {
+        return load(commandSection, null);
+    }
+
+    /**
+     * Load a command from the given configuration section.
+     *
+     * @param commandSection Configuration section of the command.
+     * @param deliveryPolicy Delivery policy of the command type, overridden by the delivery section of the command,
+     *                       or null to use the default policy of the type.
+     * @return Loaded command instance.
+     */
+    public static Command load(ConfigurationSection commandSection, DeliveryPolicy deliveryPolicy) {
         // Get the command ID
         final String id = commandSection.getName();
 
@@ -147,7 +354,29 @@ public class Command {
         final CommandType commandType = CommandType.getById(commandSection.getString("type"));
         final String command = commandSection.getString("command", "");
 
-        // Create a new command instance, and return it
-        return new Command(id, name, commandType, command);
+        // Create a new command instance
+        Command instance = new Command(id, name, commandType, command);
+
+        // Set the delivery policy, overriding the policy of the command type with the delivery section of the command
+        if(deliveryPolicy == null)
+            deliveryPolicy = DeliveryPolicy.getDefault(commandType);
+        if(commandSection.isConfigurationSection("delivery"))
+            deliveryPolicy = DeliveryPolicy.load(commandSection.getConfigurationSection("delivery"), deliveryPolicy);
+        instance.setDeliveryPolicy(deliveryPolicy);
+
+        // Set the response timeout
+        instance.setTimeout(commandSection.getInt("timeout", deliveryPolicy.getTimeout()));
+
+        // Set the time responses are cached
+        instance.setCacheTtl(commandSection.getInt("cacheTtl", DEFAULT_CACHE_TTL));
+
+        // Set the group of mutually exclusive commands
+        instance.setGroup(commandSection.getString("group", null));
+
+        // Set the state value the command results in, if it differs from the command value
+        instance.setStateValue(commandSection.getString("stateValue", null));
+
+        // Return the command
+        return instance;
     }
 }
@@ -0,0 +1,96 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.command;
+
+import com.timvisee.beamercontroller.beamer.transport.Transport;
+import com.timvisee.beamercontroller.util.CommandUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public final class CommandFrame {
+
+    /**
+     * Framing this frame was built with.
+     */
+    private final CommandFraming framing;
+
+    /**
+     * Encoded frame data, including the command prefix and suffix.
+     * This array is never modified after construction.
+     */
+    private final byte[] data;
+
+    /**
+     * Constructor.
+     *
+     * @param framing Framing the frame was built with.
+     * @param data Encoded frame data.
+     */
+    CommandFrame(CommandFraming framing, byte[] data) {
+        this.framing = framing;
+        this.data = data;
+    }
+
+    /**
+     * Get the framing this frame was built with.
+     *
+     * @return Command framing.
+     */
+    public CommandFraming getFraming() {
+        return this.framing;
+    }
+
+    /**
+     * Get the frame length in bytes.
+     *
+     * @return Frame length.
+     */
+    public int getLength() {
+        return this.data.length;
+    }
+
+    /**
+     * Get a read-only view of the frame data.
+     *
+     * @return Read-only frame data.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(this.data).asReadOnlyBuffer();
+    }
+
+    /**
+     * Write the frame to the given transport.
+     *
+     * @param transport Transport to write to.
+     *
+     * @throws IOException Throws if writing failed.
+     */
+    public void writeTo(Transport transport) throws IOException {
+        transport.write(this.data);
+    }
+
+    @Override
+    public String toString() {
+        return CommandUtils.formatCommand(new String(this.data, CommandFraming.CHARSET));
+    }
+}
@@ -0,0 +1,105 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.command;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+public final class CommandFraming {
+
+    /**
+     * Charset commands are encoded with.
+     */
+    public static final Charset CHARSET = StandardCharsets.US_ASCII;
+
+    /**
+     * Command prefix.
+     */
+    private final String commandPrefix;
+
+    /**
+     * Command suffix.
+     */
+    private final String commandSuffix;
+
+    /**
+     * Encoded command prefix.
+     */
+    private final byte[] prefixBytes;
+
+    /**
+     * Encoded command suffix.
+     */
+    private final byte[] suffixBytes;
+
+    /**
+     * Constructor.
+     *
+     * @param commandPrefix Command prefix.
+     * @param commandSuffix Command suffix.
+     */
+    public CommandFraming(String commandPrefix, String commandSuffix) {
+        this.commandPrefix = commandPrefix;
+        this.commandSuffix = commandSuffix;
+        this.prefixBytes = commandPrefix.getBytes(CHARSET);
+        this.suffixBytes = commandSuffix.getBytes(CHARSET);
+    }
+
+    /**
+     * Get the command prefix.
+     *
+     * @return Command prefix.
+     */
+    public String getCommandPrefix() {
+        return this.commandPrefix;
+    }
+
+    /**
+     * Get the command suffix.
+     *
+     * @return Command suffix.
+     */
+    public String getCommandSuffix() {
+        return this.commandSuffix;
+    }
+
+    /**
+     * Encode and frame the given command.
+     *
+     * @param command Command to frame, such as {@code pow=on}.
+     *
+     * @return Command frame.
+     */
+    public CommandFrame frame(String command) {
+        // Encode the command
+        final byte[] commandBytes = command.getBytes(CHARSET);
+
+        // Build the frame
+        final byte[] data = new byte[this.prefixBytes.length + commandBytes.length + this.suffixBytes.length];
+        System.arraycopy(this.prefixBytes, 0, data, 0, this.prefixBytes.length);
+        System.arraycopy(commandBytes, 0, data, this.prefixBytes.length, commandBytes.length);
+        System.arraycopy(this.suffixBytes, 0, data, this.prefixBytes.length + commandBytes.length, this.suffixBytes.length);
+
+        // Create the frame instance
+        return new CommandFrame(this, data);
+    }
+}
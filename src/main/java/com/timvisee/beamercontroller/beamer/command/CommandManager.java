@@ -21,10 +21,15 @@
 
 package com.timvisee.beamercontroller.beamer.command;
 
+import com.timvisee.beamercontroller.beamer.delivery.DeliveryPolicy;
 import com.timvisee.yamlwrapper.ConfigurationSection;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class CommandManager {
 
@@ -33,6 +38,21 @@ public class CommandManager {
      */
     private List<Command> commands = new ArrayList<>();
 
+    /**
+     * Index of the loaded commands, by their lower case ID.
+     */
+    private Map<String, Command> commandIndex = new HashMap<>();
+
+    /**
+     * Index of the read commands, by their lower case key.
+     */
+    private Map<String, Command> readCommandIndex = new HashMap<>();
+
+    /**
+     * Index of the write commands that result in a known state value, by their lower case key and state value.
+     */
+    private Map<String, Command> writeCommandIndex = new HashMap<>();
+
     /**
      * Constructor.
      */
@@ -40,11 +60,83 @@ public class CommandManager {
 
     /**
      * Get the list of commands.
+     * The index of each command in this list equals its handle.
      *
-     * @return List of commands.
+     * @return Unmodifiable list of commands.
      */
     public List<Command> getCommands() {
-        return this.commands;
+        return Collections.unmodifiableList(this.commands);
+    }
+
+    /**
+     * Get a command by its ID, ignoring case.
+     *
+     * @param id Command ID.
+     *
+     * @return Command, or null if no command with this ID is loaded.
+     */
+    public Command getCommand(String id) {
+        return this.commandIndex.get(id.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the read command for the attribute with the given key.
+     *
+     * @param key Command key, such as {@code pow}, ignoring case.
+     *
+     * @return Read command, or null if the attribute can't be read.
+     */
+    public Command getReadCommand(String key) {
+        return this.readCommandIndex.get(key.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the write command that sets the attribute with the given key to the given value.
+     *
+     * @param key Command key, such as {@code sour}, ignoring case.
+     * @param value State value the command results in, such as {@code hdmi}, ignoring case.
+     *
+     * @return Write command, or null if no command sets this value.
+     */
+    public Command getWriteCommand(String key, String value) {
+        return this.writeCommandIndex.get(getWriteIndexKey(key, value));
+    }
+
+    /**
+     * Get the key of a write command in the write command index.
+     *
+     * @param key Command key.
+     * @param value State value the command results in.
+     *
+     * @return Index key.
+     */
+    private static String getWriteIndexKey(String key, String value) {
+        return (key + "=" + value).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get a command by its handle.
+     *
+     * @param handle Command handle.
+     *
+     * @return Command.
+     *
+     * @throws IndexOutOfBoundsException Throws if the handle is invalid.
+     */
+    public Command getCommand(int handle) {
+        return this.commands.get(handle);
+    }
+
+    /**
+     * Get the handle of the command with the given ID, ignoring case.
+     *
+     * @param id Command ID.
+     *
+     * @return Command handle, or -1 if no command with this ID is loaded.
+     */
+    public int getCommandHandle(String id) {
+        final Command command = getCommand(id);
+        return command != null ? command.getHandle() : -1;
     }
 
     /**
@@ -58,14 +150,50 @@ public class CommandManager {
 
     /**
      * Load the commands from the configuration.
+     *
+     * @param commandsSection Configuration section to load the commands from.
+     * @param framing Framing to encode the commands with, or null to encode them when they're first sent.
+     */
+    public void load(ConfigurationSection commandsSection, CommandFraming framing) {
+        load(commandsSection, framing, Collections.emptyMap());
+    }
+
+    /**
+     * Load the commands from the configuration.
+     *
+     * @param commandsSection Configuration section to load the commands from.
+     * @param framing Framing to encode the commands with, or null to encode them when they're first sent.
+     * @param deliveryPolicies Delivery policies by command type, types without a policy use their default policy.
      */
-    public void load(ConfigurationSection commandsSection) {
-        // Clear the list of loaded commands
+    public void load(ConfigurationSection commandsSection, CommandFraming framing, Map<CommandType, DeliveryPolicy> deliveryPolicies) {
+        // Clear the list and index of loaded commands
         this.commands.clear();
+        this.commandIndex.clear();
+        this.readCommandIndex.clear();
+        this.writeCommandIndex.clear();
 
         // Loop through the keys available in the commands section
-        for(String key : commandsSection.getKeys(""))
-            // Get the command section, load the command, and add it to the list
-            this.commands.add(Command.load(commandsSection.getConfigurationSection(key)));
+        for(String key : commandsSection.getKeys("")) {
+            // Get the command section, and load the command
+            final ConfigurationSection commandSection = commandsSection.getConfigurationSection(key);
+            final Command command = Command.load(commandSection, deliveryPolicies.get(CommandType.getById(commandSection.getString("type"))));
+
+            // Encode the command frame once, so it doesn't have to be built each time it's sent
+            if(framing != null)
+                command.getFrame(framing);
+
+            // Assign the command handle, and add the command to the list and index
+            command.setHandle(this.commands.size());
+            this.commands.add(command);
+            this.commandIndex.put(command.getId().toLowerCase(Locale.ROOT), command);
+
+            // Index read commands by their key, the first read command of an attribute is used
+            if(command.getCommandType() == CommandType.READ)
+                this.readCommandIndex.putIfAbsent(command.getKey().toLowerCase(Locale.ROOT), command);
+
+            // Index write commands by their key and the value they result in, the first matching command is used
+            if(command.getCommandType() == CommandType.WRITE && command.getStateValue() != null)
+                this.writeCommandIndex.putIfAbsent(getWriteIndexKey(command.getKey(), command.getStateValue()), command);
+        }
     }
 }
@@ -0,0 +1,274 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.delivery;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandManager;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.executor.CommandPriority;
+import com.timvisee.beamercontroller.beamer.response.Response;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+public class CommandDelivery {
+
+    /**
+     * Shared scheduler used to retry commands after their backoff.
+     */
+    private static final ScheduledThreadPoolExecutor RETRY_SCHEDULER;
+
+    static {
+        RETRY_SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "beamer-delivery-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        RETRY_SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Command manager, to find the read command verifying a write command.
+     */
+    private final CommandManager commandManager;
+
+    /**
+     * Function sending a command to the beamer once.
+     */
+    private final BiFunction<Command, CommandPriority, CompletableFuture<Response>> sender;
+
+    /**
+     * Result of the newest delivered write command of each group, by lower case group name.
+     * A pending retry of an older write of the group is dropped, so it can't overwrite the newer value.
+     */
+    private final Map<String, CompletableFuture<Response>> newestWrites = new ConcurrentHashMap<>();
+
+    /**
+     * Number of retried attempts.
+     */
+    private final LongAdder retryCount = new LongAdder();
+
+    /**
+     * Number of write commands of which the follow-up read showed a different value.
+     */
+    private final LongAdder verificationFailureCount = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param commandManager Command manager, to find the read command verifying a write command.
+     * @param sender Function sending a command to the beamer once, with a priority.
+     */
+    public CommandDelivery(CommandManager commandManager, BiFunction<Command, CommandPriority, CompletableFuture<Response>> sender) {
+        this.commandManager = commandManager;
+        this.sender = sender;
+    }
+
+    /**
+     * Deliver a command according to its delivery policy.
+     * Attempts that time out, fail on the transport or fail verification are retried with a jittered exponential backoff,
+     * until the maximum number of attempts is reached. Errors reported by the beamer itself aren't retried.
+     * A write command isn't retried once a newer write of the same group is delivered, it completes with the result
+     * of the newer write instead.
+     *
+     * @param command Command to deliver.
+     * @param priority Command priority.
+     *
+     * @return Future completing with the response, or completing exceptionally with the failure of the last attempt.
+     */
+    public CompletableFuture<Response> deliver(Command command, CommandPriority priority) {
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+
+        // Make this the newest write of its group
+        final String group = getWriteGroup(command);
+        if(group != null)
+            this.newestWrites.put(group, result);
+
+        attempt(command, priority, command.getDeliveryPolicy(), 1, result);
+        return result;
+    }
+
+    /**
+     * Get the number of retried attempts.
+     *
+     * @return Number of retries.
+     */
+    public long getRetryCount() {
+        return this.retryCount.sum();
+    }
+
+    /**
+     * Get the number of write commands of which the follow-up read showed a different value.
+     *
+     * @return Number of failed verifications.
+     */
+    public long getVerificationFailureCount() {
+        return this.verificationFailureCount.sum();
+    }
+
+    /**
+     * Make an attempt to deliver a command, and retry after the backoff if it failed.
+     *
+     * @param command Command to deliver.
+     * @param priority Command priority.
+     * @param policy Delivery policy of the command.
+     * @param attempt Number of this attempt, starting at 1.
+     * @param result Future to complete with the final result.
+     */
+    private void attempt(Command command, CommandPriority priority, DeliveryPolicy policy, int attempt, CompletableFuture<Response> result) {
+        // Drop the retry if a newer write of the same group was delivered during the backoff
+        if(attempt > 1) {
+            if(supersede(command, result))
+                return;
+            this.retryCount.increment();
+        }
+
+        send(command, priority, policy).whenComplete((response, throwable) -> {
+            // Complete if delivered
+            if(throwable == null) {
+                result.complete(response);
+                return;
+            }
+
+            // Fail if out of attempts, or if retrying won't help
+            final Throwable cause = unwrap(throwable);
+            if(attempt >= policy.getAttempts() || !isRetryable(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            // Don't retry if a newer write of the same group was delivered meanwhile
+            if(supersede(command, result))
+                return;
+
+            // Retry after the backoff
+            RETRY_SCHEDULER.schedule(() -> attempt(command, priority, policy, attempt + 1, result), policy.getRetryDelay(attempt), TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Send a command once, and verify it with a follow-up read if required by its policy.
+     *
+     * @param command Command to send.
+     * @param priority Command priority.
+     * @param policy Delivery policy of the command.
+     *
+     * @return Future completing with the response of the command.
+     */
+    private CompletableFuture<Response> send(Command command, CommandPriority priority, DeliveryPolicy policy) {
+        // Send the command, return right away if it doesn't need verification
+        final CompletableFuture<Response> future = this.sender.apply(command, priority);
+        if(!policy.isVerify() || command.getCommandType() != CommandType.WRITE)
+            return future;
+
+        // Find the read command of the attribute, and the value it should have
+        final Command readCommand = this.commandManager.getReadCommand(command.getKey());
+        final String expected = command.getStateValue();
+        if(readCommand == null || expected == null)
+            return future;
+
+        // Read the attribute after the write was acknowledged, and fail if it doesn't have the written value
+        return future.thenCompose(response -> this.sender.apply(readCommand, priority).thenApply(readResponse -> {
+            if(!readResponse.is(expected)) {
+                this.verificationFailureCount.increment();
+                throw new CompletionException(new VerificationException(
+                        command.getKey() + " is " + readResponse.getValue() + " instead of " + expected + " after " + command.getId()
+                ));
+            }
+            return response;
+        }));
+    }
+
+    /**
+     * Complete a write command with the result of a newer write of the same group, if there is one.
+     * Like write commands coalesced in the queue, the older write then isn't sent again.
+     *
+     * @param command Write command.
+     * @param result Future to complete with the result of the command.
+     *
+     * @return True if a newer write superseded the command, false if not.
+     */
+    private boolean supersede(Command command, CompletableFuture<Response> result) {
+        // Find the newest write of the group
+        final String group = getWriteGroup(command);
+        final CompletableFuture<Response> newest = group != null ? this.newestWrites.get(group) : null;
+        if(newest == null || newest == result)
+            return false;
+
+        // Complete with the result of the newest write
+        newest.whenComplete((response, throwable) -> {
+            if(throwable != null)
+                result.completeExceptionally(throwable);
+            else
+                result.complete(response);
+        });
+        return true;
+    }
+
+    /**
+     * Get the group of a write command, which newer writes of the same group supersede.
+     *
+     * @param command Command.
+     *
+     * @return Lower case group name, or null if the command isn't a write command or has no group.
+     */
+    private static String getWriteGroup(Command command) {
+        if(command.getCommandType() != CommandType.WRITE || command.getGroup() == null)
+            return null;
+        return command.getGroup().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Check whether a failed attempt may succeed when retried.
+     * Timeouts, transport failures and failed verifications are likely caused by line glitches.
+     *
+     * @param cause Failure cause.
+     *
+     * @return True if retryable, false if not.
+     */
+    private static boolean isRetryable(Throwable cause) {
+        return cause instanceof TimeoutException || cause instanceof IOException || cause instanceof VerificationException;
+    }
+
+    /**
+     * Unwrap the cause of a failed future.
+     *
+     * @param throwable Failure.
+     *
+     * @return Cause.
+     */
+    private static Throwable unwrap(Throwable throwable) {
+        while((throwable instanceof CompletionException || throwable instanceof ExecutionException) && throwable.getCause() != null)
+            throwable = throwable.getCause();
+        return throwable;
+    }
+}
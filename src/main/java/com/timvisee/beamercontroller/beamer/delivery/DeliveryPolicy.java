@@ -0,0 +1,176 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.delivery;
+
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.yamlwrapper.ConfigurationSection;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class DeliveryPolicy {
+
+    /**
+     * Default delivery policy of read commands.
+     */
+    public static final DeliveryPolicy DEFAULT_READ = new DeliveryPolicy(3000, 3, 200, 2000, false);
+
+    /**
+     * Default delivery policy of write commands.
+     */
+    public static final DeliveryPolicy DEFAULT_WRITE = new DeliveryPolicy(3000, 3, 500, 5000, false);
+
+    /**
+     * Time in milliseconds to wait for a response to each attempt.
+     */
+    private final int timeout;
+
+    /**
+     * Maximum number of attempts, including the first one.
+     */
+    private final int attempts;
+
+    /**
+     * Delay in milliseconds before the first retry, doubled for each further retry.
+     */
+    private final int backoff;
+
+    /**
+     * Maximum delay in milliseconds between two attempts.
+     */
+    private final int maxBackoff;
+
+    /**
+     * True to verify write commands with a follow-up read of the same attribute.
+     */
+    private final boolean verify;
+
+    /**
+     * Constructor.
+     *
+     * @param timeout Time in milliseconds to wait for a response to each attempt.
+     * @param attempts Maximum number of attempts, including the first one.
+     * @param backoff Delay in milliseconds before the first retry, doubled for each further retry.
+     * @param maxBackoff Maximum delay in milliseconds between two attempts.
+     * @param verify True to verify write commands with a follow-up read of the same attribute.
+     */
+    public DeliveryPolicy(int timeout, int attempts, int backoff, int maxBackoff, boolean verify) {
+        this.timeout = timeout;
+        this.attempts = Math.max(attempts, 1);
+        this.backoff = Math.max(backoff, 0);
+        this.maxBackoff = Math.max(maxBackoff, this.backoff);
+        this.verify = verify;
+    }
+
+    /**
+     * Get the time to wait for a response to each attempt.
+     *
+     * @return Timeout in milliseconds.
+     */
+    public int getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Get the maximum number of attempts, including the first one.
+     *
+     * @return Maximum number of attempts.
+     */
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    /**
+     * Get the delay before the first retry.
+     *
+     * @return Backoff in milliseconds.
+     */
+    public int getBackoff() {
+        return this.backoff;
+    }
+
+    /**
+     * Get the maximum delay between two attempts.
+     *
+     * @return Maximum backoff in milliseconds.
+     */
+    public int getMaxBackoff() {
+        return this.maxBackoff;
+    }
+
+    /**
+     * Check whether write commands are verified with a follow-up read of the same attribute.
+     *
+     * @return True if verified, false if not.
+     */
+    public boolean isVerify() {
+        return this.verify;
+    }
+
+    /**
+     * Get the delay before retrying after the given failed attempt.
+     * The delay doubles for each attempt, and is jittered between half and all of it,
+     * so devices that failed together don't retry together.
+     *
+     * @param attempt Number of the failed attempt, starting at 1.
+     *
+     * @return Delay in milliseconds.
+     */
+    public long getRetryDelay(int attempt) {
+        final long delay = Math.min((long) this.backoff << Math.min(attempt - 1, 30), this.maxBackoff);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Get the default delivery policy of a command type.
+     *
+     * @param type Command type.
+     *
+     * @return Default delivery policy.
+     */
+    public static DeliveryPolicy getDefault(CommandType type) {
+        return type == CommandType.WRITE ? DEFAULT_WRITE : DEFAULT_READ;
+    }
+
+    /**
+     * Load a delivery policy from the given configuration section.
+     * Properties that aren't configured are taken from the given defaults.
+     *
+     * @param config Configuration section.
+     * @param defaults Policy to take unconfigured properties from.
+     *
+     * @return Delivery policy.
+     */
+    public static DeliveryPolicy load(ConfigurationSection config, DeliveryPolicy defaults) {
+        return new DeliveryPolicy(
+                config.getInt("timeout", defaults.timeout),
+                config.getInt("attempts", defaults.attempts),
+                config.getInt("backoff", defaults.backoff),
+                config.getInt("maxBackoff", defaults.maxBackoff),
+                config.getBoolean("verify", defaults.verify)
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "timeout " + this.timeout + " ms, " + this.attempts + " attempts, backoff " + this.backoff + "-" + this.maxBackoff + " ms" + (this.verify ? ", verified" : "");
+    }
+}
@@ -0,0 +1,96 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.event;
+
+public enum StateAttribute {
+
+    POWER("power", "pow"),
+    SOURCE("source", "sour"),
+    PICTURE_MODE("pictureMode", "appmod");
+
+    /**
+     * State attribute ID.
+     */
+    public String id;
+
+    /**
+     * Command key of the attribute.
+     */
+    public String key;
+
+    /**
+     * Constructor.
+     *
+     * @param id State attribute ID.
+     * @param key Command key of the attribute.
+     */
+    StateAttribute(String id, String key) {
+        this.id = id;
+        this.key = key;
+    }
+
+    /**
+     * Get the state attribute ID.
+     *
+     * @return State attribute ID.
+     */
+    public String getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the command key of the attribute, such as {@code pow}.
+     *
+     * @return Command key.
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Get the state attribute by its ID.
+     *
+     * @param id State attribute ID, case insensitive.
+     *
+     * @return State attribute, or null if the ID is unknown.
+     */
+    public static StateAttribute getById(String id) {
+        for(StateAttribute attribute : values())
+            if(attribute.id.equalsIgnoreCase(id))
+                return attribute;
+        return null;
+    }
+
+    /**
+     * Get the state attribute for a command key.
+     *
+     * @param key Command key, case insensitive.
+     *
+     * @return State attribute, or null if the key isn't a known attribute.
+     */
+    public static StateAttribute getByKey(String key) {
+        for(StateAttribute attribute : values())
+            if(attribute.key.equalsIgnoreCase(key))
+                return attribute;
+        return null;
+    }
+}
@@ -0,0 +1,117 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.event;
+
+public class StateChangeEvent {
+
+    /**
+     * ID of the session the state changed on.
+     */
+    private final String sessionId;
+
+    /**
+     * Changed attribute.
+     */
+    private final StateAttribute attribute;
+
+    /**
+     * Previous value, or null if the value wasn't known.
+     */
+    private final String oldValue;
+
+    /**
+     * New value.
+     */
+    private final String newValue;
+
+    /**
+     * Time of the change, in milliseconds since the epoch.
+     */
+    private final long time;
+
+    /**
+     * Constructor.
+     *
+     * @param sessionId ID of the session the state changed on.
+     * @param attribute Changed attribute.
+     * @param oldValue Previous value, or null if the value wasn't known.
+     * @param newValue New value.
+     * @param time Time of the change, in milliseconds since the epoch.
+     */
+    public StateChangeEvent(String sessionId, StateAttribute attribute, String oldValue, String newValue, long time) {
+        this.sessionId = sessionId;
+        this.attribute = attribute;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.time = time;
+    }
+
+    /**
+     * Get the ID of the session the state changed on.
+     *
+     * @return Session ID.
+     */
+    public String getSessionId() {
+        return this.sessionId;
+    }
+
+    /**
+     * Get the changed attribute.
+     *
+     * @return State attribute.
+     */
+    public StateAttribute getAttribute() {
+        return this.attribute;
+    }
+
+    /**
+     * Get the previous value.
+     *
+     * @return Previous value, or null if the value wasn't known.
+     */
+    public String getOldValue() {
+        return this.oldValue;
+    }
+
+    /**
+     * Get the new value.
+     *
+     * @return New value.
+     */
+    public String getNewValue() {
+        return this.newValue;
+    }
+
+    /**
+     * Get the time of the change.
+     *
+     * @return Time in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    @Override
+    public String toString() {
+        return this.sessionId + ": " + this.attribute.getId() + " changed from " + (this.oldValue != null ? this.oldValue : "unknown") + " to " + this.newValue;
+    }
+}
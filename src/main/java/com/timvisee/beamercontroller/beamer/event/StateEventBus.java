@@ -0,0 +1,223 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.event;
+
+import java.util.Arrays;
+
+public class StateEventBus {
+
+    /**
+     * Empty subscription array, shared while there are no subscribers.
+     */
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    /**
+     * Current subscriptions.
+     * The array is replaced on every change, so publishing can read it without locking.
+     */
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+    /**
+     * Constructor.
+     */
+    public StateEventBus() {}
+
+    /**
+     * Subscribe to state changes of all sessions and attributes.
+     *
+     * @param listener Listener.
+     *
+     * @return Subscription, to unsubscribe with.
+     */
+    public Subscription subscribe(StateListener listener) {
+        return subscribe(null, null, listener);
+    }
+
+    /**
+     * Subscribe to state changes.
+     *
+     * @param sessionId ID of the session to receive changes of, or null for all sessions.
+     * @param attribute Attribute to receive changes of, or null for all attributes.
+     * @param listener Listener.
+     *
+     * @return Subscription, to unsubscribe with.
+     */
+    public Subscription subscribe(String sessionId, StateAttribute attribute, StateListener listener) {
+        final Subscription subscription = new Subscription(this, sessionId, attribute, listener);
+        synchronized(this) {
+            final Subscription[] current = this.subscriptions;
+            final Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscription;
+            this.subscriptions = updated;
+        }
+        return subscription;
+    }
+
+    /**
+     * Remove a subscription.
+     *
+     * @param subscription Subscription to remove.
+     *
+     * @return True if removed, false if it wasn't subscribed.
+     */
+    synchronized boolean unsubscribe(Subscription subscription) {
+        // Find the subscription
+        final Subscription[] current = this.subscriptions;
+        int index = -1;
+        for(int i = 0; i < current.length; i++) {
+            if(current[i] == subscription) {
+                index = i;
+                break;
+            }
+        }
+        if(index < 0)
+            return false;
+
+        // Replace the array without the subscription
+        if(current.length == 1) {
+            this.subscriptions = NO_SUBSCRIPTIONS;
+            return true;
+        }
+        final Subscription[] updated = new Subscription[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        this.subscriptions = updated;
+        return true;
+    }
+
+    /**
+     * Get the number of subscriptions.
+     *
+     * @return Number of subscriptions.
+     */
+    public int getSubscriptionCount() {
+        return this.subscriptions.length;
+    }
+
+    /**
+     * Check whether any subscription receives changes of the given session and attribute.
+     *
+     * @param sessionId Session ID.
+     * @param attribute Attribute.
+     *
+     * @return True if a change would be delivered, false if not.
+     */
+    public boolean hasSubscribers(String sessionId, StateAttribute attribute) {
+        for(Subscription subscription : this.subscriptions)
+            if(subscription.matches(sessionId, attribute))
+                return true;
+        return false;
+    }
+
+    /**
+     * Publish a state change to the matching subscriptions.
+     * The event is only created if a subscription matches, so changes nobody listens to don't allocate.
+     * A failing listener is reported, and doesn't stop delivery to other listeners.
+     *
+     * @param sessionId ID of the session the state changed on.
+     * @param attribute Changed attribute.
+     * @param oldValue Previous value, or null if the value wasn't known.
+     * @param newValue New value.
+     */
+    public void publish(String sessionId, StateAttribute attribute, String oldValue, String newValue) {
+        StateChangeEvent event = null;
+        for(Subscription subscription : this.subscriptions) {
+            // Skip subscriptions that don't match
+            if(!subscription.matches(sessionId, attribute))
+                continue;
+
+            // Create the event for the first match, and deliver it
+            if(event == null)
+                event = new StateChangeEvent(sessionId, attribute, oldValue, newValue, System.currentTimeMillis());
+            try {
+                subscription.listener.onStateChange(event);
+            } catch(RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Subscription to state changes, filtered by session and attribute.
+     */
+    public static class Subscription implements AutoCloseable {
+
+        /**
+         * Event bus this subscription is on.
+         */
+        private final StateEventBus eventBus;
+
+        /**
+         * ID of the session to receive changes of, or null for all sessions.
+         */
+        private final String sessionId;
+
+        /**
+         * Attribute to receive changes of, or null for all attributes.
+         */
+        private final StateAttribute attribute;
+
+        /**
+         * Listener.
+         */
+        private final StateListener listener;
+
+        /**
+         * Constructor.
+         *
+         * @param eventBus Event bus this subscription is on.
+         * @param sessionId ID of the session to receive changes of, or null for all sessions.
+         * @param attribute Attribute to receive changes of, or null for all attributes.
+         * @param listener Listener.
+         */
+        Subscription(StateEventBus eventBus, String sessionId, StateAttribute attribute, StateListener listener) {
+            this.eventBus = eventBus;
+            this.sessionId = sessionId;
+            this.attribute = attribute;
+            this.listener = listener;
+        }
+
+        /**
+         * Check whether this subscription receives changes of the given session and attribute.
+         *
+         * @param sessionId Session ID.
+         * @param attribute Attribute.
+         *
+         * @return True if matching, false if not.
+         */
+        boolean matches(String sessionId, StateAttribute attribute) {
+            return (this.attribute == null || this.attribute == attribute) && (this.sessionId == null || this.sessionId.equals(sessionId));
+        }
+
+        /**
+         * Stop receiving state changes.
+         */
+        public void unsubscribe() {
+            this.eventBus.unsubscribe(this);
+        }
+
+        @Override
+        public void close() {
+            unsubscribe();
+        }
+    }
+}
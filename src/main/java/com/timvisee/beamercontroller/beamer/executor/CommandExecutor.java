@@ -0,0 +1,502 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.executor;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.iface.BeamerInterface;
+import com.timvisee.beamercontroller.beamer.response.Response;
+import com.timvisee.beamercontroller.beamer.response.ResponseCorrelator;
+import com.timvisee.beamercontroller.beamer.response.ResponseReader;
+import com.timvisee.beamercontroller.beamer.transport.Transport;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CommandExecutor {
+
+    /**
+     * Maximum number of commands written in one run on a worker thread.
+     * After this, the executor yields its worker so other executors sharing the workers get a turn.
+     */
+    public static final int DRAIN_BATCH_SIZE = 16;
+
+    /**
+     * Transport the commands are written to.
+     * This transport is only written to by a single worker at a time.
+     */
+    private final Transport transport;
+
+    /**
+     * Beamer interface, used to frame the commands.
+     */
+    private final BeamerInterface beamerInterface;
+
+    /**
+     * Queue of commands waiting to be written, coalescing write commands of the same group.
+     */
+    private final CommandQueue queue;
+
+    /**
+     * Rate limiter, pacing the commands written to the transport.
+     */
+    private volatile RateLimiter rateLimiter;
+
+    /**
+     * Number of written commands awaiting their response.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Correlator, matching responses to read commands.
+     */
+    private final ResponseCorrelator correlator = new ResponseCorrelator();
+
+    /**
+     * Shared workers to write commands on, or null to use a dedicated writer thread.
+     */
+    private final ScheduledExecutorService sharedWorkers;
+
+    /**
+     * Workers the commands are currently written on.
+     */
+    private ScheduledExecutorService workers;
+
+    /**
+     * True if writing the queued commands is scheduled on a worker, or in progress.
+     * This guarantees only one worker writes to the transport at a time.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * True if the executor is running.
+     */
+    private volatile boolean running = false;
+
+    /**
+     * Constructor.
+     * The executor uses a dedicated writer thread.
+     *
+     * @param transport Transport to write the commands to.
+     * @param beamerInterface Beamer interface to frame the commands with.
+     */
+    public CommandExecutor(Transport transport, BeamerInterface beamerInterface) {
+        this(transport, beamerInterface, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param transport Transport to write the commands to.
+     * @param beamerInterface Beamer interface to frame the commands with.
+     * @param sharedWorkers Workers shared between executors to write commands on, or null to use a dedicated writer thread.
+     */
+    public CommandExecutor(Transport transport, BeamerInterface beamerInterface, ScheduledExecutorService sharedWorkers) {
+        this.transport = transport;
+        this.beamerInterface = beamerInterface;
+        this.sharedWorkers = sharedWorkers;
+        this.queue = new CommandQueue(beamerInterface.getMaxQueueSize());
+        this.rateLimiter = new RateLimiter(beamerInterface.getCommandsPerSecond(), beamerInterface.getCommandBurst(), beamerInterface.getMinimumGap());
+
+        // Read responses from the transport
+        this.transport.setReceiver(new ResponseReader(beamerInterface.getCommandPrefix(), beamerInterface.getCommandSuffix(), this.correlator));
+    }
+
+    /**
+     * Get the transport this executor writes to.
+     *
+     * @return Transport.
+     */
+    public Transport getTransport() {
+        return this.transport;
+    }
+
+    /**
+     * Get the beamer interface used to frame commands.
+     *
+     * @return Beamer interface.
+     */
+    public BeamerInterface getBeamerInterface() {
+        return this.beamerInterface;
+    }
+
+    /**
+     * Get the response correlator.
+     *
+     * @return Response correlator.
+     */
+    public ResponseCorrelator getCorrelator() {
+        return this.correlator;
+    }
+
+    /**
+     * Check whether the executor is running.
+     *
+     * @return True if running, false if not.
+     */
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Start executing commands.
+     */
+    public synchronized void start() {
+        // Don't start twice
+        if(this.running)
+            return;
+
+        // Use the shared workers, or create a dedicated writer thread
+        if(this.sharedWorkers != null)
+            this.workers = this.sharedWorkers;
+        else
+            this.workers = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "beamer-writer-" + this.transport.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        // Start, and write commands that were already queued
+        this.running = true;
+        schedule();
+    }
+
+    /**
+     * Submit an interactive command to be executed.
+     * This method doesn't block, the command is written by a worker.
+     * If the queue is full, the command is rejected right away.
+     *
+     * @param command Command to execute.
+     *
+     * @return Future that completes when the command is written, or completes exceptionally if it failed.
+     * The future completes with the response of the beamer, which acknowledges write commands with the new value.
+     * It completes exceptionally if the beamer responds with an error, or when timed out.
+     * It completes exceptionally with a {@link RejectedExecutionException} if the queue is full.
+     */
+    public CompletableFuture<Response> submit(Command command) {
+        return submit(command, CommandPriority.INTERACTIVE, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Submit a command to be executed with the given priority.
+     * This method doesn't block, the command is written by a worker.
+     * If the queue is full, the command is rejected right away.
+     *
+     * @param command Command to execute.
+     * @param priority Command priority.
+     *
+     * @return Future that completes when the command is written, or completes exceptionally if it failed.
+     * It completes exceptionally with a {@link RejectedExecutionException} if the queue is full.
+     */
+    public CompletableFuture<Response> submit(Command command, CommandPriority priority) {
+        return submit(command, priority, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Submit a command to be executed with the given priority.
+     * If the queue is full, this blocks until there's space for the command, or until the given timeout passed.
+     *
+     * @param command Command to execute.
+     * @param priority Command priority.
+     * @param timeout Maximum time to wait for space in the queue, 0 to not wait.
+     * @param unit Unit of the timeout.
+     *
+     * @return Future that completes when the command is written, or completes exceptionally if it failed.
+     * It completes exceptionally with a {@link RejectedExecutionException} if the queue stayed full.
+     */
+    public CompletableFuture<Response> submit(Command command, CommandPriority priority, long timeout, TimeUnit unit) {
+        // Create the queued command
+        final QueuedCommand queued = new QueuedCommand(command, priority);
+
+        // Fail immediately if the executor isn't running
+        if(!this.running) {
+            queued.future.completeExceptionally(new IllegalStateException("command executor is not running"));
+            return queued.future;
+        }
+
+        // Add the command to the queue, reject it if the queue stays full
+        try {
+            if(!this.queue.offer(queued, unit.toNanos(timeout))) {
+                queued.future.completeExceptionally(new RejectedExecutionException("command queue of " + this.transport.getName() + " is full"));
+                return queued.future;
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued.future.completeExceptionally(e);
+            return queued.future;
+        }
+
+        // Make sure the command is written
+        schedule();
+
+        // Fail the command if the executor was stopped while it was queued
+        if(!this.running)
+            cancelQueued();
+
+        return queued.future;
+    }
+
+    /**
+     * Get the number of commands waiting to be written.
+     *
+     * @return Number of queued commands.
+     */
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    /**
+     * Get the number of written commands awaiting their response.
+     *
+     * @return Number of commands in flight.
+     */
+    public int getInFlightCount() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * Get the number of queued write commands that were replaced by a newer command of the same group, and never sent.
+     *
+     * @return Number of coalesced commands.
+     */
+    public long getCoalescedCount() {
+        return this.queue.getCoalescedCount();
+    }
+
+    /**
+     * Get the minimum time between writing two commands.
+     *
+     * @return Minimum gap in milliseconds, or 0 for no gap.
+     */
+    public int getMinimumGap() {
+        return this.rateLimiter.getMinimumGap();
+    }
+
+    /**
+     * Set the minimum time between writing two commands, overriding the gap of the beamer interface.
+     * This is used to apply a gap calibrated for this specific device. The rate limit keeps its current state.
+     *
+     * @param minimumGap Minimum gap in milliseconds, or 0 for no gap.
+     */
+    public void setMinimumGap(int minimumGap) {
+        this.rateLimiter.setMinimumGap(minimumGap);
+    }
+
+    /**
+     * Get the rate limiter pacing the commands written to the transport.
+     *
+     * @return Rate limiter.
+     */
+    public RateLimiter getRateLimiter() {
+        return this.rateLimiter;
+    }
+
+    /**
+     * Replace the rate limiter pacing the commands written to the transport.
+     * This is used to measure the device without the rate limit of its interface, such as when calibrating.
+     *
+     * @param rateLimiter Rate limiter.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Get the number of commands that were rejected because the queue was full.
+     *
+     * @return Number of rejected commands.
+     */
+    public long getRejectedCount() {
+        return this.queue.getRejectedCount();
+    }
+
+    /**
+     * Get the time commands of the given priority waited in the queue before they were written.
+     *
+     * @param priority Command priority.
+     *
+     * @return Queue wait.
+     */
+    public QueueWait getQueueWait(CommandPriority priority) {
+        return this.queue.getQueueWait(priority);
+    }
+
+    /**
+     * Stop executing commands, and cancel all commands that are still queued.
+     */
+    public synchronized void stop() {
+        // Don't stop if not running
+        if(!this.running)
+            return;
+
+        // Stop, and shut down the dedicated writer thread
+        this.running = false;
+        if(this.workers != this.sharedWorkers)
+            this.workers.shutdownNow();
+        this.workers = null;
+
+        // Cancel all pending commands and responses
+        cancelQueued();
+        this.correlator.failAll(new CancellationException("command executor stopped"));
+    }
+
+    /**
+     * Fail all queued commands, such as when the beamer turned out to be unreachable.
+     *
+     * @param cause Cause to fail the commands with.
+     */
+    public void failQueued(Throwable cause) {
+        QueuedCommand queued;
+        while((queued = this.queue.poll()) != null)
+            queued.future.completeExceptionally(cause);
+    }
+
+    /**
+     * Cancel all queued commands.
+     */
+    private void cancelQueued() {
+        QueuedCommand queued;
+        while((queued = this.queue.poll()) != null)
+            queued.future.completeExceptionally(new CancellationException("command executor stopped"));
+    }
+
+    /**
+     * Schedule writing the queued commands on a worker, unless it's scheduled already.
+     */
+    private void schedule() {
+        // Get the current workers
+        final ScheduledExecutorService workers = this.workers;
+        if(!this.running || workers == null)
+            return;
+
+        // Schedule a drain if none is scheduled yet
+        if(this.scheduled.compareAndSet(false, true)) {
+            try {
+                workers.execute(this::drain);
+            } catch(RejectedExecutionException e) {
+                this.scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Schedule writing the queued commands on a worker after the given delay, to pace commands.
+     * Writing must be scheduled already, so no other worker writes in the meantime.
+     *
+     * @param delay Delay in nanoseconds.
+     */
+    private void scheduleDelayed(long delay) {
+        // Get the current workers
+        final ScheduledExecutorService workers = this.workers;
+        if(!this.running || workers == null) {
+            this.scheduled.set(false);
+            return;
+        }
+
+        // Schedule the drain
+        try {
+            workers.schedule(this::drain, delay, TimeUnit.NANOSECONDS);
+        } catch(RejectedExecutionException e) {
+            this.scheduled.set(false);
+        }
+    }
+
+    /**
+     * Write a batch of queued commands to the transport.
+     * Only one drain runs at a time for each executor.
+     * If the rate limiter doesn't allow the next command yet, the drain is scheduled again once it does.
+     */
+    private void drain() {
+        final RateLimiter rateLimiter = this.rateLimiter;
+        long delay = 0;
+        try {
+            for(int i = 0; i < DRAIN_BATCH_SIZE && this.running && hasWindow() && !this.queue.isEmpty(); i++) {
+                // Wait for the rate limiter
+                final long now = System.nanoTime();
+                delay = rateLimiter.getDelay(now);
+                if(delay > 0)
+                    break;
+
+                // Take the next command from the queue
+                final QueuedCommand queued = this.queue.poll();
+                if(queued == null)
+                    break;
+
+                // Write the command
+                rateLimiter.acquire(now);
+                write(queued);
+            }
+
+        } finally {
+            // Keep the drain scheduled while pacing, or allow scheduling again and reschedule if commands may be written
+            if(delay > 0)
+                scheduleDelayed(delay);
+            else {
+                this.scheduled.set(false);
+                if(!this.queue.isEmpty() && hasWindow())
+                    schedule();
+            }
+        }
+    }
+
+    /**
+     * Check whether another command may be written, without exceeding the maximum number of commands in flight.
+     *
+     * @return True if a command may be written, false if not.
+     */
+    private boolean hasWindow() {
+        final int maxInFlight = this.beamerInterface.getMaxInFlight();
+        return maxInFlight <= 0 || this.inFlight.get() < maxInFlight;
+    }
+
+    /**
+     * Write a command to the transport.
+     *
+     * @param queued Queued command to write.
+     */
+    private void write(QueuedCommand queued) {
+        // Expect a response, register before writing to not miss a quick response
+        this.correlator.register(queued.command, queued.future);
+
+        // Count the command as in flight, and write the next command when it completes
+        this.inFlight.incrementAndGet();
+        queued.future.whenComplete((response, throwable) -> {
+            this.inFlight.decrementAndGet();
+            if(!this.queue.isEmpty())
+                schedule();
+        });
+
+        try {
+            // Write the command
+            this.beamerInterface.executeCommand(queued.command, this.transport);
+
+        } catch(IOException | RuntimeException e) {
+            queued.future.completeExceptionally(e);
+        }
+    }
+}
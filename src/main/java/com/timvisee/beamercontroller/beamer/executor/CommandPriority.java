@@ -0,0 +1,80 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.executor;
+
+public enum CommandPriority {
+
+    /**
+     * Commands issued by a user, which are always written first.
+     */
+    INTERACTIVE("interactive", 0),
+
+    /**
+     * Commands issued by automation, such as the state reconciler.
+     */
+    AUTOMATION("automation", 3),
+
+    /**
+     * Background commands, such as status polls.
+     */
+    BACKGROUND("background", 1);
+
+    /**
+     * Priority ID.
+     */
+    public String id;
+
+    /**
+     * Share of the commands written while no interactive commands are queued, relative to the other weighted priorities.
+     * Interactive commands aren't weighted, they have strict priority.
+     */
+    public int weight;
+
+    /**
+     * Constructor.
+     *
+     * @param id Priority ID.
+     * @param weight Weight relative to the other weighted priorities, or 0 for strict priority.
+     */
+    CommandPriority(String id, int weight) {
+        this.id = id;
+        this.weight = weight;
+    }
+
+    /**
+     * Get the priority ID.
+     *
+     * @return Priority ID.
+     */
+    public String getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the weight relative to the other weighted priorities.
+     *
+     * @return Weight, or 0 for strict priority.
+     */
+    public int getWeight() {
+        return this.weight;
+    }
+}
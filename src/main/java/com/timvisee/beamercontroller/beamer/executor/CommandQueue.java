@@ -0,0 +1,297 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.executor;
+
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.TimeUnit;
+
+class CommandQueue {
+
+    /**
+     * All command priorities, strict priorities first.
+     */
+    private static final CommandPriority[] PRIORITIES = CommandPriority.values();
+
+    /**
+     * Lock guarding the queue, also used to wait for space.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Queued commands of each priority, oldest first, indexed by priority ordinal.
+     */
+    private final List<LinkedList<QueuedCommand>> lanes = new ArrayList<>(PRIORITIES.length);
+
+    /**
+     * Credits of each weighted priority for weighted round robin, indexed by priority ordinal.
+     */
+    private final int[] credits = new int[PRIORITIES.length];
+
+    /**
+     * Number of commands that left the queue of each priority, indexed by priority ordinal.
+     */
+    private final long[] waitCount = new long[PRIORITIES.length];
+
+    /**
+     * Total time in nanoseconds commands of each priority waited, indexed by priority ordinal.
+     */
+    private final long[] waitTotal = new long[PRIORITIES.length];
+
+    /**
+     * Longest time in nanoseconds a command of each priority waited, indexed by priority ordinal.
+     */
+    private final long[] waitMax = new long[PRIORITIES.length];
+
+    /**
+     * Maximum number of queued commands, 0 for no limit.
+     */
+    private final int maxSize;
+
+    /**
+     * Number of queued commands, of all priorities.
+     */
+    private int size = 0;
+
+    /**
+     * Number of commands that were replaced by a newer command of the same group.
+     */
+    private long coalescedCount = 0;
+
+    /**
+     * Number of commands that were rejected because the queue was full.
+     */
+    private long rejectedCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize Maximum number of queued commands, 0 for no limit.
+     */
+    CommandQueue(int maxSize) {
+        this.maxSize = maxSize;
+        for(int i = 0; i < PRIORITIES.length; i++)
+            this.lanes.add(new LinkedList<>());
+    }
+
+    /**
+     * Add a command to the queue of its priority, waiting for space if the queue is full.
+     * If a write command of the same group is still queued, it is replaced by the given command,
+     * and its future completes with the result of the given command. Replacing a command is possible on a full queue.
+     *
+     * @param queued Command to add.
+     * @param timeout Maximum time in nanoseconds to wait for space, 0 to not wait.
+     *
+     * @return True if the command was added, false if the queue stayed full.
+     *
+     * @throws InterruptedException Throws if interrupted while waiting for space.
+     */
+    boolean offer(QueuedCommand queued, long timeout) throws InterruptedException {
+        final QueuedCommand replaced;
+        synchronized(this.lock) {
+            replaced = replace(queued);
+            if(replaced == null) {
+                // Wait for space while the queue is full
+                final long deadline = System.nanoTime() + timeout;
+                while(this.maxSize > 0 && this.size >= this.maxSize) {
+                    final long remaining = deadline - System.nanoTime();
+                    if(remaining <= 0) {
+                        this.rejectedCount++;
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this.lock, remaining);
+                }
+                this.lanes.get(queued.priority.ordinal()).addLast(queued);
+                this.size++;
+            } else
+                this.coalescedCount++;
+        }
+
+        // Complete the replaced command with the result of its replacement
+        if(replaced != null)
+            queued.future.whenComplete((response, throwable) -> {
+                if(throwable != null)
+                    replaced.future.completeExceptionally(throwable);
+                else
+                    replaced.future.complete(response);
+            });
+        return true;
+    }
+
+    /**
+     * Replace a queued write command of the same group as the given command.
+     * The replacement keeps the position of the replaced command if that has the same or a higher priority,
+     * otherwise it's moved to the end of the queue of its own, higher, priority.
+     *
+     * @param queued Command to replace a queued command with.
+     *
+     * @return Replaced command, or null if no command was replaced.
+     */
+    private QueuedCommand replace(QueuedCommand queued) {
+        // Only coalesce write commands with a group
+        final String group = queued.command.getGroup();
+        if(group == null || queued.command.getCommandType() != CommandType.WRITE)
+            return null;
+
+        // Find a queued write command of the same group, and replace it
+        for(LinkedList<QueuedCommand> lane : this.lanes) {
+            final ListIterator<QueuedCommand> iterator = lane.listIterator();
+            while(iterator.hasNext()) {
+                final QueuedCommand other = iterator.next();
+                if(other.command.getCommandType() != CommandType.WRITE || !group.equalsIgnoreCase(other.command.getGroup()))
+                    continue;
+
+                if(other.priority.ordinal() <= queued.priority.ordinal())
+                    iterator.set(queued);
+                else {
+                    iterator.remove();
+                    this.lanes.get(queued.priority.ordinal()).addLast(queued);
+                }
+                return other;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Take the next command from the queue.
+     * Strict priorities are served first, the other priorities share the rest by weighted round robin.
+     *
+     * @return Next command, or null if the queue is empty.
+     */
+    QueuedCommand poll() {
+        synchronized(this.lock) {
+            // Take the oldest command of the next priority
+            final int lane = nextLane();
+            if(lane < 0)
+                return null;
+            final QueuedCommand queued = this.lanes.get(lane).pollFirst();
+            this.size--;
+
+            // Track how long the command waited
+            final long wait = System.nanoTime() - queued.queuedAt;
+            this.waitCount[lane]++;
+            this.waitTotal[lane] += wait;
+            this.waitMax[lane] = Math.max(this.waitMax[lane], wait);
+
+            // Wake up a submitter waiting for space
+            if(this.maxSize > 0)
+                this.lock.notify();
+            return queued;
+        }
+    }
+
+    /**
+     * Select the lane to take the next command from, using smooth weighted round robin for weighted priorities.
+     *
+     * @return Lane index, or -1 if all lanes are empty.
+     */
+    private int nextLane() {
+        int selected = -1;
+        int totalWeight = 0;
+        for(int i = 0; i < PRIORITIES.length; i++) {
+            // Skip empty lanes, and forget their credits
+            if(this.lanes.get(i).isEmpty()) {
+                this.credits[i] = 0;
+                continue;
+            }
+
+            // Serve strict priorities right away
+            final int weight = PRIORITIES[i].getWeight();
+            if(weight <= 0)
+                return i;
+
+            // Give each weighted lane its credits, and select the lane with the most
+            this.credits[i] += weight;
+            totalWeight += weight;
+            if(selected < 0 || this.credits[i] > this.credits[selected])
+                selected = i;
+        }
+
+        // Charge the selected lane
+        if(selected >= 0)
+            this.credits[selected] -= totalWeight;
+        return selected;
+    }
+
+    /**
+     * Get the number of queued commands.
+     *
+     * @return Number of queued commands.
+     */
+    int size() {
+        synchronized(this.lock) {
+            return this.size;
+        }
+    }
+
+    /**
+     * Check whether the queue is empty.
+     *
+     * @return True if empty, false if not.
+     */
+    boolean isEmpty() {
+        synchronized(this.lock) {
+            return this.size == 0;
+        }
+    }
+
+    /**
+     * Get the time commands of the given priority waited in the queue.
+     *
+     * @param priority Command priority.
+     *
+     * @return Queue wait.
+     */
+    QueueWait getQueueWait(CommandPriority priority) {
+        synchronized(this.lock) {
+            final int lane = priority.ordinal();
+            return new QueueWait(this.waitCount[lane], this.waitTotal[lane], this.waitMax[lane]);
+        }
+    }
+
+    /**
+     * Get the number of commands that were replaced by a newer command of the same group.
+     *
+     * @return Number of coalesced commands.
+     */
+    long getCoalescedCount() {
+        synchronized(this.lock) {
+            return this.coalescedCount;
+        }
+    }
+
+    /**
+     * Get the number of commands that were rejected because the queue was full.
+     *
+     * @return Number of rejected commands.
+     */
+    long getRejectedCount() {
+        synchronized(this.lock) {
+            return this.rejectedCount;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.executor;
+
+import java.util.concurrent.TimeUnit;
+
+public class QueueWait {
+
+    /**
+     * Number of commands that left the queue.
+     */
+    private final long count;
+
+    /**
+     * Total time in nanoseconds the commands waited in the queue.
+     */
+    private final long totalNanos;
+
+    /**
+     * Longest time in nanoseconds a command waited in the queue.
+     */
+    private final long maxNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param count Number of commands that left the queue.
+     * @param totalNanos Total time in nanoseconds the commands waited in the queue.
+     * @param maxNanos Longest time in nanoseconds a command waited in the queue.
+     */
+    public QueueWait(long count, long totalNanos, long maxNanos) {
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Get the number of commands that left the queue.
+     *
+     * @return Number of commands.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the average time commands waited in the queue.
+     *
+     * @return Average wait in milliseconds, or 0 if no commands left the queue.
+     */
+    public double getAverageMillis() {
+        return this.count > 0 ? (double) this.totalNanos / this.count / TimeUnit.MILLISECONDS.toNanos(1) : 0;
+    }
+
+    /**
+     * Get the longest time a command waited in the queue.
+     *
+     * @return Maximum wait in milliseconds.
+     */
+    public double getMaxMillis() {
+        return (double) this.maxNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return this.count + " commands, average " + String.format("%.2f", getAverageMillis()) + " ms, max " + String.format("%.2f", getMaxMillis()) + " ms";
+    }
+}
@@ -0,0 +1,62 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.executor;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.response.Response;
+
+import java.util.concurrent.CompletableFuture;
+
+class QueuedCommand {
+
+    /**
+     * Command to execute.
+     */
+    final Command command;
+
+    /**
+     * Future that is completed when the command has been executed.
+     * This is completed with the response for read commands.
+     */
+    final CompletableFuture<Response> future = new CompletableFuture<>();
+
+    /**
+     * Priority of the command.
+     */
+    final CommandPriority priority;
+
+    /**
+     * Time in nanoseconds the command was queued at.
+     */
+    final long queuedAt = System.nanoTime();
+
+    /**
+     * Constructor.
+     *
+     * @param command Command to execute.
+     * @param priority Priority of the command.
+     */
+    QueuedCommand(Command command, CommandPriority priority) {
+        this.command = command;
+        this.priority = priority;
+    }
+}
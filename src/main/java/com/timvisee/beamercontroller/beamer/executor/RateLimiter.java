@@ -0,0 +1,138 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.executor;
+
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiter {
+
+    /**
+     * Number of nanoseconds in a second.
+     */
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Time in nanoseconds it takes to refill one token, or 0 for no rate limit.
+     */
+    private final long tokenInterval;
+
+    /**
+     * Maximum number of tokens in the bucket.
+     */
+    private final int burst;
+
+    /**
+     * Minimum time in milliseconds between two commands.
+     */
+    private volatile int minimumGap;
+
+    /**
+     * Minimum time in nanoseconds between two commands.
+     */
+    private long minimumGapNanos;
+
+    /**
+     * Time in nanoseconds at which the bucket is full again.
+     * The available tokens are derived from this, so refilling doesn't need a separate timer.
+     */
+    private long fullAt;
+
+    /**
+     * Time in nanoseconds the last command was written at.
+     */
+    private long lastWrite;
+
+    /**
+     * True if a command was written already.
+     */
+    private boolean written = false;
+
+    /**
+     * Constructor.
+     *
+     * @param commandsPerSecond Maximum number of commands per second, or 0 for no limit.
+     * @param burst Number of commands that may be written at once before the rate limit applies.
+     * @param minimumGap Minimum time in milliseconds between two commands, or 0 for no gap.
+     */
+    public RateLimiter(int commandsPerSecond, int burst, int minimumGap) {
+        this.tokenInterval = commandsPerSecond > 0 ? NANOS_PER_SECOND / commandsPerSecond : 0;
+        this.burst = Math.max(burst, 1);
+        this.minimumGap = Math.max(minimumGap, 0);
+        this.minimumGapNanos = TimeUnit.MILLISECONDS.toNanos(this.minimumGap);
+        this.fullAt = System.nanoTime();
+    }
+
+    /**
+     * Get the minimum time between two commands.
+     *
+     * @return Minimum gap in milliseconds, or 0 for no gap.
+     */
+    public int getMinimumGap() {
+        return this.minimumGap;
+    }
+
+    /**
+     * Set the minimum time between two commands, keeping the tokens in the bucket and the time of the last command.
+     *
+     * @param minimumGap Minimum gap in milliseconds, or 0 for no gap.
+     */
+    public synchronized void setMinimumGap(int minimumGap) {
+        this.minimumGap = Math.max(minimumGap, 0);
+        this.minimumGapNanos = TimeUnit.MILLISECONDS.toNanos(this.minimumGap);
+    }
+
+    /**
+     * Get the time to wait before the next command may be written.
+     *
+     * @param now Current time in nanoseconds.
+     *
+     * @return Delay in nanoseconds, or 0 if a command may be written now.
+     */
+    public synchronized long getDelay(long now) {
+        // Wait for the minimum gap since the last command
+        long delay = 0;
+        if(this.written)
+            delay = Math.max(delay, this.lastWrite + this.minimumGapNanos - now);
+
+        // Wait for a token, the bucket holds a token if it's full within burst - 1 intervals
+        if(this.tokenInterval > 0)
+            delay = Math.max(delay, this.fullAt - (this.burst - 1) * this.tokenInterval - now);
+
+        return Math.max(delay, 0);
+    }
+
+    /**
+     * Take a token for a command that is written now.
+     * This should only be called if {@link #getDelay(long)} returned 0.
+     *
+     * @param now Current time in nanoseconds.
+     */
+    public synchronized void acquire(long now) {
+        // Take a token, the bucket can't be fuller than full
+        if(this.tokenInterval > 0)
+            this.fullAt = Math.max(this.fullAt, now) + this.tokenInterval;
+
+        // Remember when the command was written
+        this.lastWrite = now;
+        this.written = true;
+    }
+}
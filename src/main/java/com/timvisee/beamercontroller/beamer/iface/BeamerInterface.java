@@ -21,20 +21,84 @@
 
 package com.timvisee.beamercontroller.beamer.iface;
 
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandFraming;
+import com.timvisee.beamercontroller.beamer.transport.Transport;
+import com.timvisee.yamlwrapper.ConfigurationSection;
+
+import java.io.IOException;
+
 public abstract class BeamerInterface {
 
+    /**
+     * Default maximum number of commands awaiting their response, 0 for no limit.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 0;
+
+    /**
+     * Default maximum number of commands written per second, 0 for no limit.
+     */
+    public static final int DEFAULT_COMMANDS_PER_SECOND = 0;
+
+    /**
+     * Default number of commands that may be written at once before the rate limit applies.
+     */
+    public static final int DEFAULT_COMMAND_BURST = 1;
+
+    /**
+     * Default minimum time in milliseconds between writing two commands, 0 for no gap.
+     */
+    public static final int DEFAULT_MINIMUM_GAP = 0;
+
+    /**
+     * Default maximum number of queued commands, 0 for no limit.
+     */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 256;
+
     /**
      * Beamer interface type.
      */
     private InterfaceType type;
 
+    /**
+     * Command framing, defining the command prefix and suffix.
+     */
+    private CommandFraming framing;
+
+    /**
+     * Maximum number of commands awaiting their response, 0 for no limit.
+     */
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+    /**
+     * Maximum number of commands written per second, 0 for no limit.
+     */
+    private int commandsPerSecond = DEFAULT_COMMANDS_PER_SECOND;
+
+    /**
+     * Number of commands that may be written at once before the rate limit applies.
+     */
+    private int commandBurst = DEFAULT_COMMAND_BURST;
+
+    /**
+     * Minimum time in milliseconds between writing two commands, 0 for no gap.
+     */
+    private int minimumGap = DEFAULT_MINIMUM_GAP;
+
+    /**
+     * Maximum number of queued commands, 0 for no limit.
+     */
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+
     /**
      * Interface type.
      *
      * @param type Interface type.
+     * @param framing Command framing.
      */
-    BeamerInterface(InterfaceType type) {
+    BeamerInterface(InterfaceType type, CommandFraming framing) {
         this.type = type;
+        this.framing = framing;
     }
 
     /**
@@ -45,4 +109,151 @@ public abstract class BeamerInterface {
     public InterfaceType getType() {
         return this.type;
     }
+
+    /**
+     * Get the command framing.
+     *
+     * @return Command framing.
+     */
+    public CommandFraming getFraming() {
+        return this.framing;
+    }
+
+    /**
+     * Command prefix.
+     *
+     * @return Command prefix.
+     */
+    public String getCommandPrefix() {
+        return this.framing.getCommandPrefix();
+    }
+
+    /**
+     * Command suffix.
+     *
+     * @return Command suffix.
+     */
+    public String getCommandSuffix() {
+        return this.framing.getCommandSuffix();
+    }
+
+    /**
+     * Get the maximum number of commands that are sent before their response is received.
+     * Further commands are held in the queue, where they can still be coalesced.
+     *
+     * @return Maximum number of commands in flight, or 0 for no limit.
+     */
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    /**
+     * Set the maximum number of commands that are sent before their response is received.
+     *
+     * @param maxInFlight Maximum number of commands in flight, or 0 for no limit.
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Get the maximum number of commands written per second.
+     * The beamer firmware may drop input if commands arrive faster.
+     *
+     * @return Commands per second, or 0 for no limit.
+     */
+    public int getCommandsPerSecond() {
+        return this.commandsPerSecond;
+    }
+
+    /**
+     * Set the maximum number of commands written per second.
+     *
+     * @param commandsPerSecond Commands per second, or 0 for no limit.
+     */
+    public void setCommandsPerSecond(int commandsPerSecond) {
+        this.commandsPerSecond = commandsPerSecond;
+    }
+
+    /**
+     * Get the number of commands that may be written at once before the rate limit applies.
+     *
+     * @return Command burst.
+     */
+    public int getCommandBurst() {
+        return this.commandBurst;
+    }
+
+    /**
+     * Set the number of commands that may be written at once before the rate limit applies.
+     *
+     * @param commandBurst Command burst.
+     */
+    public void setCommandBurst(int commandBurst) {
+        this.commandBurst = commandBurst;
+    }
+
+    /**
+     * Get the minimum time between writing two commands.
+     *
+     * @return Minimum gap in milliseconds, or 0 for no gap.
+     */
+    public int getMinimumGap() {
+        return this.minimumGap;
+    }
+
+    /**
+     * Set the minimum time between writing two commands.
+     *
+     * @param minimumGap Minimum gap in milliseconds, or 0 for no gap.
+     */
+    public void setMinimumGap(int minimumGap) {
+        this.minimumGap = minimumGap;
+    }
+
+    /**
+     * Get the maximum number of commands waiting to be written.
+     * Further commands are rejected, so queues don't grow without limit.
+     *
+     * @return Maximum queue size, or 0 for no limit.
+     */
+    public int getMaxQueueSize() {
+        return this.maxQueueSize;
+    }
+
+    /**
+     * Set the maximum number of commands waiting to be written.
+     *
+     * @param maxQueueSize Maximum queue size, or 0 for no limit.
+     */
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * Load the flow control properties of this interface from the given configuration section.
+     * This includes the maximum number of commands in flight, the rate limit and the maximum queue size.
+     *
+     * @param config Configuration section of the interface.
+     */
+    void loadFlowControl(ConfigurationSection config) {
+        this.maxInFlight = config.getInt("maxInFlight", DEFAULT_MAX_IN_FLIGHT);
+        this.commandsPerSecond = config.getInt("commandsPerSecond", DEFAULT_COMMANDS_PER_SECOND);
+        this.commandBurst = config.getInt("commandBurst", DEFAULT_COMMAND_BURST);
+        this.minimumGap = config.getInt("minimumGap", DEFAULT_MINIMUM_GAP);
+        this.maxQueueSize = config.getInt("maxQueueSize", DEFAULT_MAX_QUEUE_SIZE);
+    }
+
+    /**
+     * Execute the given beamer command.
+     * The pre-encoded command frame is written, so nothing has to be encoded when sending.
+     *
+     * @param command Beamer command to execute.
+     * @param transport Transport to execute the command on.
+     *
+     * @throws IOException Throws if an error occurred.
+     */
+    public void executeCommand(Command command, Transport transport) throws IOException {
+        command.getFrame(this.framing).writeTo(transport);
+    }
 }
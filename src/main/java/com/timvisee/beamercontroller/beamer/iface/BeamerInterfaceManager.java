@@ -47,6 +47,20 @@ public class BeamerInterfaceManager {
         return this.interfaces;
     }
 
+    /**
+     * Get the first beamer interface of the given type.
+     *
+     * @param type Interface type.
+     *
+     * @return Beamer interface, or null if the beamer has no interface of this type.
+     */
+    public BeamerInterface getInterface(InterfaceType type) {
+        for(BeamerInterface beamerInterface : this.interfaces)
+            if(beamerInterface.getType() == type)
+                return beamerInterface;
+        return null;
+    }
+
     /**
      * Load the beamer interfaces from the given configuration section.
      *
@@ -59,5 +73,9 @@ public class BeamerInterfaceManager {
         // Load the serial interface configuration if configured
         if(interfaceSection.isConfigurationSection("serial"))
             this.interfaces.add(SerialBeamerInterface.load(interfaceSection.getConfigurationSection("serial")));
+
+        // Load the network interface configuration if configured
+        if(interfaceSection.isConfigurationSection("network"))
+            this.interfaces.add(NetworkBeamerInterface.load(interfaceSection.getConfigurationSection("network")));
     }
 }
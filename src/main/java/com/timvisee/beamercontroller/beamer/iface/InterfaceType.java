@@ -23,7 +23,8 @@ package com.timvisee.beamercontroller.beamer.iface;
 
 public enum InterfaceType {
 
-    SERIAL("Serial");
+    SERIAL("Serial"),
+    NETWORK("Network");
 
     /**
      * Interface type name.
@@ -0,0 +1,85 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.iface;
+
+import com.timvisee.beamercontroller.beamer.command.CommandFraming;
+import com.timvisee.yamlwrapper.ConfigurationSection;
+
+public class NetworkBeamerInterface extends BeamerInterface {
+
+    /**
+     * Default TCP port for network control.
+     */
+    public static final int DEFAULT_PORT = 8000;
+
+    /**
+     * TCP port the beamer listens on for control commands.
+     */
+    private int port;
+
+    /**
+     * Constructor.
+     *
+     * @param commandPrefix Command prefix.
+     * @param commandSuffix Command suffix.
+     * @param port TCP port the beamer listens on.
+     */
+    public NetworkBeamerInterface(String commandPrefix, String commandSuffix, int port) {
+        // Construct the super with the command prefix/suffix
+        super(InterfaceType.NETWORK, new CommandFraming(commandPrefix, commandSuffix));
+
+        // Set the port
+        this.port = port;
+    }
+
+    /**
+     * Get the TCP port the beamer listens on for control commands.
+     *
+     * @return TCP port.
+     */
+    public int getPort() {
+        return this.port;
+    }
+
+    /**
+     * Load a network beamer interface from the given configuration section.
+     *
+     * @param config Configuration section to load the network beamer interface from.
+     *
+     * @return Network beamer interface instance.
+     */
+    public static NetworkBeamerInterface load(ConfigurationSection config) {
+        // Get the command prefix/suffix
+        final String commandPrefix = config.getString("commandPrefix", "");
+        final String commandSuffix = config.getString("commandSuffix", "");
+
+        // Get the port
+        final int port = config.getInt("port", DEFAULT_PORT);
+
+        // Create a new network beamer interface instance
+        final NetworkBeamerInterface beamerInterface = new NetworkBeamerInterface(commandPrefix, commandSuffix, port);
+
+        // Load the flow control properties, and return the instance
+        beamerInterface.loadFlowControl(config);
+        return beamerInterface;
+    }
+}
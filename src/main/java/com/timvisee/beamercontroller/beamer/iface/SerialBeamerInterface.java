@@ -21,25 +21,12 @@
 
 package com.timvisee.beamercontroller.beamer.iface;
 
-import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandFraming;
 import com.timvisee.beamercontroller.serial.SerialConfig;
-import com.timvisee.beamercontroller.util.CommandUtils;
 import com.timvisee.yamlwrapper.ConfigurationSection;
-import jssc.SerialPort;
-import jssc.SerialPortException;
 
 public class SerialBeamerInterface extends BeamerInterface {
 
-    /**
-     * Command prefix.
-     */
-    private String commandPrefix = "";
-
-    /**
-     * Command suffix.
-     */
-    private String commandSuffix = "";
-
     /**
      * Serial configuration.
      */
@@ -53,33 +40,13 @@ public class SerialBeamerInterface extends BeamerInterface {
      * @param serialConfig Serial configuration.
      */
     public SerialBeamerInterface(String commandPrefix, String commandSuffix, SerialConfig serialConfig) {
-        // Construct the super
-        super(InterfaceType.SERIAL);
+        // Construct the super with the command prefix/suffix
+        super(InterfaceType.SERIAL, new CommandFraming(commandPrefix, commandSuffix));
 
-        // Set the command prefix/suffix
-        this.commandPrefix = commandPrefix;
-        this.commandSuffix = commandSuffix;
+        // Set the serial configuration
         this.serialConfig = serialConfig;
     }
 
-    /**
-     * Command prefix.
-     *
-     * @return Command prefix.
-     */
-    public String getCommandPrefix() {
-        return this.commandPrefix;
-    }
-
-    /**
-     * Command suffix.
-     *
-     * @return Command suffix.
-     */
-    public String getCommandSuffix() {
-        return this.commandSuffix;
-    }
-
     /**
      * Serial configuration.
      *
@@ -89,27 +56,6 @@ public class SerialBeamerInterface extends BeamerInterface {
         return this.serialConfig;
     }
 
-    /**
-     * Execute the given beamer command.
-     *
-     * @param command Beamer command to execute.
-     * @param port Serial port to execute the command on.
-     *
-     * @throws SerialPortException Throws if an error occurred.
-     */
-    public void executeCommand(Command command, SerialPort port) throws SerialPortException {
-        // Build the string to send
-        final String encapsulatedCommand = this.commandPrefix +
-                command.getCommand() +
-                this.commandSuffix;
-
-        // Print a status message
-        System.out.println("Sending to beamer: " + CommandUtils.formatCommand(encapsulatedCommand));
-
-        // Write the command
-        port.writeString(encapsulatedCommand);
-    }
-
     /**
      * Load a serial beamer interface from the given configuration section.
      *
@@ -125,7 +71,11 @@ public class SerialBeamerInterface extends BeamerInterface {
         // Load the serial configuration
         final SerialConfig serialConfig = SerialConfig.load(config.getSection("portConfig"));
 
-        // Create a new serial beamer interface instance and return it
-        return new SerialBeamerInterface(commandPrefix, commandSuffix, serialConfig);
+        // Create a new serial beamer interface instance
+        final SerialBeamerInterface beamerInterface = new SerialBeamerInterface(commandPrefix, commandSuffix, serialConfig);
+
+        // Load the flow control properties, and return the instance
+        beamerInterface.loadFlowControl(config);
+        return beamerInterface;
     }
 }
@@ -0,0 +1,374 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.poll;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.executor.CommandPriority;
+import com.timvisee.beamercontroller.beamer.response.Response;
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
+import com.timvisee.beamercontroller.beamer.session.SessionManager;
+import com.timvisee.beamercontroller.beamer.session.SessionState;
+import com.timvisee.beamercontroller.util.TimerWheel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+public class StatusPoller {
+
+    /**
+     * Default interval in milliseconds to poll devices at right after their state changed.
+     */
+    public static final int DEFAULT_MIN_INTERVAL = 2000;
+
+    /**
+     * Default interval in milliseconds to poll idle devices at.
+     */
+    public static final int DEFAULT_MAX_INTERVAL = 60000;
+
+    /**
+     * Fraction by which each poll interval is randomly shortened or lengthened, so devices don't align over time.
+     */
+    private static final double JITTER = 0.1;
+
+    /**
+     * Session manager of the polled sessions.
+     */
+    private final SessionManager sessionManager;
+
+    /**
+     * Timer wheel polls are scheduled on.
+     */
+    private final TimerWheel timerWheel;
+
+    /**
+     * Interval in milliseconds to poll devices at right after their state changed.
+     */
+    private final int minInterval;
+
+    /**
+     * Interval in milliseconds to poll idle devices at.
+     */
+    private final int maxInterval;
+
+    /**
+     * Polled devices, by session ID.
+     */
+    private final ConcurrentMap<String, PolledDevice> devices = new ConcurrentHashMap<>();
+
+    /**
+     * True while polling.
+     */
+    private volatile boolean running;
+
+    /**
+     * Constructor.
+     *
+     * @param sessionManager Session manager of the sessions to poll.
+     * @param timerWheel Timer wheel to schedule polls on.
+     * @param minInterval Interval in milliseconds to poll devices at right after their state changed.
+     * @param maxInterval Interval in milliseconds to poll idle devices at.
+     */
+    public StatusPoller(SessionManager sessionManager, TimerWheel timerWheel, int minInterval, int maxInterval) {
+        // Make sure the intervals are valid
+        if(minInterval <= 0 || maxInterval < minInterval)
+            throw new IllegalArgumentException("invalid poll intervals: " + minInterval + " to " + maxInterval + " ms");
+
+        this.sessionManager = sessionManager;
+        this.timerWheel = timerWheel;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * Start polling all registered sessions.
+     * The first polls are spread evenly over the minimum interval, so the devices aren't polled all at once.
+     */
+    public synchronized void start() {
+        this.running = true;
+
+        // Spread the first poll of each session over the minimum interval
+        final List<BeamerSession> sessions = new ArrayList<>(this.sessionManager.getSessions());
+        for(int i = 0; i < sessions.size(); i++)
+            add(sessions.get(i), (long) this.minInterval * i / sessions.size());
+    }
+
+    /**
+     * Start polling a session that was registered after the poller started.
+     *
+     * @param session Session to poll.
+     */
+    public void add(BeamerSession session) {
+        add(session, ThreadLocalRandom.current().nextInt(this.minInterval));
+    }
+
+    /**
+     * Start polling a session after the given delay.
+     *
+     * @param session Session to poll.
+     * @param delay Delay in milliseconds before the first poll.
+     */
+    private void add(BeamerSession session, long delay) {
+        final PolledDevice device = new PolledDevice(session, this.minInterval);
+        if(this.devices.putIfAbsent(session.getId(), device) == null)
+            schedule(device, delay);
+    }
+
+    /**
+     * Stop polling a session.
+     *
+     * @param id Session ID.
+     */
+    public void remove(String id) {
+        // Cancel the next poll, a poll in progress doesn't reschedule once the device is removed
+        final PolledDevice device = this.devices.remove(id);
+        if(device != null) {
+            synchronized(device) {
+                device.cancel();
+            }
+        }
+    }
+
+    /**
+     * Poll a session soon at the minimum interval, for example because a command changed its state.
+     *
+     * @param id Session ID.
+     */
+    public void wake(String id) {
+        final PolledDevice device = this.devices.get(id);
+        if(device == null)
+            return;
+
+        synchronized(device) {
+            // Poll at the minimum interval from now on
+            device.interval = this.minInterval;
+
+            // Poll now, unless a poll is in progress which reschedules itself
+            if(!device.polling && device.cancel())
+                schedule(device, 0);
+        }
+    }
+
+    /**
+     * Get the current poll interval of a session.
+     *
+     * @param id Session ID.
+     *
+     * @return Poll interval in milliseconds, or -1 if the session isn't polled.
+     */
+    public int getInterval(String id) {
+        final PolledDevice device = this.devices.get(id);
+        return device != null ? device.interval : -1;
+    }
+
+    /**
+     * Stop polling all sessions.
+     */
+    public synchronized void stop() {
+        this.running = false;
+        for(PolledDevice device : this.devices.values())
+            device.cancel();
+        this.devices.clear();
+    }
+
+    /**
+     * Schedule the next poll of a device.
+     *
+     * @param device Device to poll.
+     * @param delay Delay in milliseconds.
+     */
+    private void schedule(PolledDevice device, long delay) {
+        if(!this.running)
+            return;
+        device.timeout = this.timerWheel.schedule(() -> poll(device), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedule the next poll of a device after its current interval, with some jitter.
+     *
+     * @param device Device to poll.
+     */
+    private void scheduleNext(PolledDevice device) {
+        final double jitter = 1.0 + (ThreadLocalRandom.current().nextDouble() * 2.0 - 1.0) * JITTER;
+        schedule(device, (long) (device.interval * jitter));
+    }
+
+    /**
+     * Poll a device, by sending all read commands of its beamer type.
+     * The commands bypass the state cache, as the poll refreshes it.
+     *
+     * @param device Device to poll.
+     */
+    private void poll(PolledDevice device) {
+        final BeamerSession session = device.session;
+
+        // Stop polling sessions that have been removed
+        if(this.sessionManager.getSession(session.getId()) != session) {
+            this.devices.remove(session.getId(), device);
+            return;
+        }
+
+        synchronized(device) {
+            // Stop polling devices that have been removed from the poller
+            if(!isPolled(device))
+                return;
+
+            // Check closed or failed sessions again at the maximum interval
+            if(session.getState() != SessionState.OPEN) {
+                device.interval = this.maxInterval;
+                scheduleNext(device);
+                return;
+            }
+
+            // Submit the read commands, behind commands of users and automation
+            device.polling = true;
+            final List<CompletableFuture<Response>> futures = new ArrayList<>(device.commands.size());
+            for(Command command : device.commands)
+                futures.add(session.refresh(command, CommandPriority.BACKGROUND));
+
+            // Handle the results when all commands completed
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .whenComplete((result, throwable) -> onPolled(device, futures));
+        }
+    }
+
+    /**
+     * Handle the results of a poll, and schedule the next one.
+     * The interval is reset to the minimum if the state of the device changed, and doubles up to the maximum if not.
+     *
+     * @param device Polled device.
+     * @param futures Completed futures of the read commands.
+     */
+    private void onPolled(PolledDevice device, List<CompletableFuture<Response>> futures) {
+        // Collect the polled values
+        final Map<String, String> values = new HashMap<>();
+        boolean failed = false;
+        for(CompletableFuture<Response> future : futures) {
+            if(future.isCompletedExceptionally()) {
+                failed = true;
+                continue;
+            }
+            final Response response = future.join();
+            if(response != null)
+                values.put(response.getCommand().getKey().toLowerCase(Locale.ROOT), response.getValue());
+        }
+
+        synchronized(device) {
+            // Don't reschedule devices that were removed from the poller while polling
+            device.polling = false;
+            if(!isPolled(device))
+                return;
+
+            // Speed up if the state changed, back off if the device is idle or failing
+            final boolean changed = !failed && device.values != null && !device.values.equals(values);
+            if(changed)
+                device.interval = this.minInterval;
+            else
+                device.interval = (int) Math.min((long) device.interval * 2, this.maxInterval);
+
+            // Remember the values, and schedule the next poll
+            if(!failed)
+                device.values = values;
+            scheduleNext(device);
+        }
+    }
+
+    /**
+     * Check whether a device is still polled, and wasn't removed or replaced.
+     *
+     * @param device Device.
+     *
+     * @return True if polled, false if not.
+     */
+    private boolean isPolled(PolledDevice device) {
+        return this.devices.get(device.session.getId()) == device;
+    }
+
+    /**
+     * Polling state of a device, guarded by its own monitor.
+     */
+    private static class PolledDevice {
+
+        /**
+         * Session of the device.
+         */
+        final BeamerSession session;
+
+        /**
+         * Read commands to poll the device with.
+         */
+        final List<Command> commands = new ArrayList<>();
+
+        /**
+         * Current poll interval in milliseconds.
+         */
+        volatile int interval;
+
+        /**
+         * Values of the last successful poll by their lowercase command key, or null if not polled yet.
+         */
+        Map<String, String> values;
+
+        /**
+         * True while a poll is in progress.
+         */
+        boolean polling;
+
+        /**
+         * Timeout of the next poll, or null if not scheduled.
+         */
+        TimerWheel.Timeout timeout;
+
+        /**
+         * Constructor.
+         *
+         * @param session Session of the device.
+         * @param interval Initial poll interval in milliseconds.
+         */
+        PolledDevice(BeamerSession session, int interval) {
+            this.session = session;
+            this.interval = interval;
+
+            // Collect the read commands of the beamer type
+            for(Command command : session.getBeamer().getCommandManager().getCommands())
+                if(command.getCommandType() == CommandType.READ)
+                    this.commands.add(command);
+        }
+
+        /**
+         * Cancel the next poll.
+         *
+         * @return True if a scheduled poll was cancelled, false if none was scheduled.
+         */
+        synchronized boolean cancel() {
+            return this.timeout != null && this.timeout.cancel();
+        }
+    }
+}
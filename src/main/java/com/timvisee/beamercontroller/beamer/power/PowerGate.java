@@ -0,0 +1,408 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.power;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.event.StateAttribute;
+import com.timvisee.beamercontroller.beamer.executor.CommandPriority;
+import com.timvisee.beamercontroller.beamer.response.Response;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+public class PowerGate {
+
+    /**
+     * Value of the power attribute when the beamer is on.
+     */
+    private static final String POWER_ON_VALUE = "on";
+
+    /**
+     * Value of the power attribute when the beamer is off.
+     */
+    private static final String POWER_OFF_VALUE = "off";
+
+    /**
+     * Shared scheduler used to probe and end power transitions.
+     */
+    private static final ScheduledThreadPoolExecutor SCHEDULER;
+
+    static {
+        SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "beamer-power-gate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Power profile of the beamer.
+     */
+    private final PowerProfile profile;
+
+    /**
+     * Read command that only succeeds once the beamer is ready, or null to wait the full warm-up time.
+     */
+    private final Command probe;
+
+    /**
+     * Function sending a command to the beamer.
+     */
+    private final BiFunction<Command, CommandPriority, CompletableFuture<Response>> sender;
+
+    /**
+     * Commands held until the power transition ends, oldest first.
+     */
+    private final Deque<HeldCommand> held = new ArrayDeque<>();
+
+    /**
+     * Current power state.
+     */
+    private volatile PowerState state = PowerState.UNKNOWN;
+
+    /**
+     * Time in nanoseconds the current power transition must end at.
+     */
+    private long deadline;
+
+    /**
+     * Scheduled probe or end of the current power transition, or null.
+     */
+    private ScheduledFuture<?> timer;
+
+    /**
+     * Constructor.
+     *
+     * @param profile Power profile of the beamer.
+     * @param probe Read command that only succeeds once the beamer is ready, or null to wait the full warm-up time.
+     * @param sender Function sending a command to the beamer with a priority.
+     */
+    public PowerGate(PowerProfile profile, Command probe, BiFunction<Command, CommandPriority, CompletableFuture<Response>> sender) {
+        this.profile = profile;
+        this.probe = probe;
+        this.sender = sender;
+    }
+
+    /**
+     * Get the current power state.
+     *
+     * @return Power state.
+     */
+    public PowerState getState() {
+        return this.state;
+    }
+
+    /**
+     * Get the number of commands held until the power transition ends.
+     *
+     * @return Number of held commands.
+     */
+    public synchronized int getHeldCount() {
+        return this.held.size();
+    }
+
+    /**
+     * Submit a command.
+     * While the beamer is warming up or cooling down, all commands except power reads are held until it's ready,
+     * as the beamer would reject them anyway.
+     *
+     * @param command Command to submit.
+     * @param priority Command priority.
+     *
+     * @return Future completing with the command response, or completing exceptionally if the command failed.
+     */
+    public CompletableFuture<Response> submit(Command command, CommandPriority priority) {
+        // Hold the command while transitioning, or while earlier commands are held to keep their order
+        synchronized(this) {
+            if(isGated(command) && (this.state.isTransitioning() || !this.held.isEmpty())) {
+                final HeldCommand heldCommand = new HeldCommand(command, priority);
+                this.held.addLast(heldCommand);
+                return heldCommand.future;
+            }
+        }
+
+        // Send the command
+        return send(command, priority);
+    }
+
+    /**
+     * Send a command, and track the power state from its response.
+     *
+     * @param command Command to send.
+     * @param priority Command priority.
+     *
+     * @return Future completing with the command response.
+     */
+    private CompletableFuture<Response> send(Command command, CommandPriority priority) {
+        // Track other commands by their response only
+        if(!isPowerCommand(command))
+            return this.sender.apply(command, priority);
+
+        // Start holding commands as soon as the power is switched, the transition begins once acknowledged
+        final PowerState previous;
+        final PowerState transition;
+        synchronized(this) {
+            previous = this.state;
+            transition = command.getCommandType() == CommandType.WRITE ? getTransition(command.getStateValue()) : null;
+            if(transition != null)
+                this.state = transition;
+        }
+
+        // Send the command, and update the power state once completed
+        return this.sender.apply(command, priority).whenComplete((response, throwable) -> {
+            if(transition != null)
+                onSwitched(transition, previous, throwable == null);
+            else if(throwable == null)
+                onPowerResponse(response);
+        });
+    }
+
+    /**
+     * Get the transition a power write with the given value starts.
+     *
+     * @param value Written power value.
+     *
+     * @return Transitional power state, or null if the power doesn't change.
+     */
+    private PowerState getTransition(String value) {
+        if(POWER_ON_VALUE.equalsIgnoreCase(value) && this.state != PowerState.ON && this.state != PowerState.WARMING_UP)
+            return PowerState.WARMING_UP;
+        if(POWER_OFF_VALUE.equalsIgnoreCase(value) && this.state != PowerState.OFF && this.state != PowerState.COOLING_DOWN)
+            return PowerState.COOLING_DOWN;
+        return null;
+    }
+
+    /**
+     * Called when a power write completed.
+     *
+     * @param transition Transitional power state the write started.
+     * @param previous Power state before the write.
+     * @param success True if the beamer accepted the write, false if not.
+     */
+    private void onSwitched(PowerState transition, PowerState previous, boolean success) {
+        synchronized(this) {
+            // Ignore stale writes
+            if(this.state != transition)
+                return;
+
+            // Start the transition, probing whether the beamer is ready while warming up
+            if(success) {
+                cancelTimer();
+                if(transition == PowerState.COOLING_DOWN)
+                    schedule(() -> finish(PowerState.COOLING_DOWN, PowerState.OFF), this.profile.getCoolDownTime());
+                else if(this.probe == null)
+                    schedule(() -> finish(PowerState.WARMING_UP, PowerState.ON), this.profile.getWarmUpTime());
+                else {
+                    this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.profile.getWarmUpTime());
+                    schedule(this::probe, this.profile.getProbeInterval());
+                }
+                return;
+            }
+
+            // Restore the previous state if the beamer rejected the switch
+            this.state = previous;
+        }
+
+        // Release the commands held meanwhile
+        release();
+    }
+
+    /**
+     * Called when a power read completed, to learn the power state of the beamer if it isn't known.
+     * Power reads are ignored while transitioning, as the beamer already reports the state it's transitioning to.
+     *
+     * @param response Power read response.
+     */
+    private void onPowerResponse(Response response) {
+        synchronized(this) {
+            if(this.state.isTransitioning())
+                return;
+            if(response.is(POWER_ON_VALUE))
+                this.state = PowerState.ON;
+            else if(response.is(POWER_OFF_VALUE))
+                this.state = PowerState.OFF;
+        }
+    }
+
+    /**
+     * Probe whether the beamer finished warming up, and probe again after the probe interval if it didn't.
+     * The warm-up ends after the maximum warm-up time regardless, so held commands are never held forever.
+     */
+    private void probe() {
+        // Only probe while warming up
+        if(this.state != PowerState.WARMING_UP)
+            return;
+
+        this.sender.apply(this.probe, CommandPriority.INTERACTIVE).whenComplete((response, throwable) -> {
+            // Probe again if the beamer rejected the probe, and the maximum warm-up time didn't pass yet
+            synchronized(this) {
+                if(this.state != PowerState.WARMING_UP)
+                    return;
+                if(throwable != null && System.nanoTime() - this.deadline < 0) {
+                    schedule(this::probe, this.profile.getProbeInterval());
+                    return;
+                }
+            }
+
+            // The beamer is ready
+            finish(PowerState.WARMING_UP, PowerState.ON);
+        });
+    }
+
+    /**
+     * End a power transition, and release the held commands.
+     *
+     * @param transition Transitional power state to end.
+     * @param state Power state to end in.
+     */
+    private void finish(PowerState transition, PowerState state) {
+        synchronized(this) {
+            if(this.state != transition)
+                return;
+            this.state = state;
+            this.timer = null;
+        }
+        release();
+    }
+
+    /**
+     * Send held commands in order, until a released power write starts a new transition.
+     */
+    private void release() {
+        while(true) {
+            // Take the oldest held command
+            final HeldCommand heldCommand;
+            synchronized(this) {
+                if(this.state.isTransitioning() || this.held.isEmpty())
+                    return;
+                heldCommand = this.held.pollFirst();
+            }
+
+            // Send it, and complete its future
+            send(heldCommand.command, heldCommand.priority).whenComplete((response, throwable) -> {
+                if(throwable != null)
+                    heldCommand.future.completeExceptionally(throwable);
+                else
+                    heldCommand.future.complete(response);
+            });
+        }
+    }
+
+    /**
+     * Reset the power state to unknown, and fail all held commands.
+     * This should be called when the connection to the beamer is closed or reopened.
+     *
+     * @param cause Cause to fail held commands with.
+     */
+    public void reset(Throwable cause) {
+        final Deque<HeldCommand> failed;
+        synchronized(this) {
+            cancelTimer();
+            this.state = PowerState.UNKNOWN;
+            failed = new ArrayDeque<>(this.held);
+            this.held.clear();
+        }
+        for(HeldCommand heldCommand : failed)
+            heldCommand.future.completeExceptionally(cause);
+    }
+
+    /**
+     * Schedule a task on the shared scheduler, replacing the current timer.
+     *
+     * @param task Task.
+     * @param delay Delay in milliseconds.
+     */
+    private void schedule(Runnable task, long delay) {
+        this.timer = SCHEDULER.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancel the current timer, if any.
+     */
+    private void cancelTimer() {
+        if(this.timer != null)
+            this.timer.cancel(false);
+        this.timer = null;
+    }
+
+    /**
+     * Check whether the given command is held while transitioning.
+     * Power reads are never held, as the beamer always answers them.
+     *
+     * @param command Command.
+     *
+     * @return True if gated, false if not.
+     */
+    private static boolean isGated(Command command) {
+        return !isPowerCommand(command) || command.getCommandType() != CommandType.READ;
+    }
+
+    /**
+     * Check whether the given command reads or writes the power attribute.
+     *
+     * @param command Command.
+     *
+     * @return True if it's a power command, false if not.
+     */
+    private static boolean isPowerCommand(Command command) {
+        return StateAttribute.POWER.getKey().equalsIgnoreCase(command.getKey());
+    }
+
+    /**
+     * Command held until the power transition ends.
+     */
+    private static class HeldCommand {
+
+        /**
+         * Held command.
+         */
+        final Command command;
+
+        /**
+         * Priority of the held command.
+         */
+        final CommandPriority priority;
+
+        /**
+         * Future to complete with the command response once sent.
+         */
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+
+        /**
+         * Constructor.
+         *
+         * @param command Held command.
+         * @param priority Priority of the held command.
+         */
+        HeldCommand(Command command, CommandPriority priority) {
+            this.command = command;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.power;
+
+import com.timvisee.yamlwrapper.ConfigurationSection;
+
+public class PowerProfile {
+
+    /**
+     * Default maximum warm-up time in milliseconds.
+     */
+    public static final int DEFAULT_WARM_UP_TIME = 60000;
+
+    /**
+     * Default cool-down time in milliseconds.
+     */
+    public static final int DEFAULT_COOL_DOWN_TIME = 90000;
+
+    /**
+     * Default interval in milliseconds to probe whether the beamer is ready while warming up.
+     */
+    public static final int DEFAULT_PROBE_INTERVAL = 1000;
+
+    /**
+     * Maximum time in milliseconds the beamer takes to warm up after powering on.
+     */
+    private int warmUpTime = DEFAULT_WARM_UP_TIME;
+
+    /**
+     * Time in milliseconds the beamer takes to cool down after powering off.
+     */
+    private int coolDownTime = DEFAULT_COOL_DOWN_TIME;
+
+    /**
+     * Interval in milliseconds to probe whether the beamer is ready while warming up.
+     */
+    private int probeInterval = DEFAULT_PROBE_INTERVAL;
+
+    /**
+     * ID of the read command that only succeeds once the beamer is ready, or null to wait the full warm-up time.
+     */
+    private String probe;
+
+    /**
+     * Constructor.
+     */
+    public PowerProfile() {}
+
+    /**
+     * Constructor.
+     *
+     * @param warmUpTime Maximum warm-up time in milliseconds.
+     * @param coolDownTime Cool-down time in milliseconds.
+     * @param probeInterval Probe interval in milliseconds.
+     * @param probe ID of the probe read command, or null.
+     */
+    public PowerProfile(int warmUpTime, int coolDownTime, int probeInterval, String probe) {
+        this.warmUpTime = warmUpTime;
+        this.coolDownTime = coolDownTime;
+        this.probeInterval = probeInterval;
+        this.probe = probe;
+    }
+
+    /**
+     * Get the maximum time the beamer takes to warm up after powering on.
+     *
+     * @return Warm-up time in milliseconds.
+     */
+    public int getWarmUpTime() {
+        return this.warmUpTime;
+    }
+
+    /**
+     * Get the time the beamer takes to cool down after powering off.
+     *
+     * @return Cool-down time in milliseconds.
+     */
+    public int getCoolDownTime() {
+        return this.coolDownTime;
+    }
+
+    /**
+     * Get the interval to probe whether the beamer is ready while warming up.
+     *
+     * @return Probe interval in milliseconds.
+     */
+    public int getProbeInterval() {
+        return this.probeInterval;
+    }
+
+    /**
+     * Get the ID of the read command that only succeeds once the beamer is ready.
+     *
+     * @return Probe command ID, or null to wait the full warm-up time.
+     */
+    public String getProbe() {
+        return this.probe;
+    }
+
+    /**
+     * Load a power profile from the given configuration section.
+     *
+     * @param config Configuration section.
+     *
+     * @return Power profile.
+     */
+    public static PowerProfile load(ConfigurationSection config) {
+        return new PowerProfile(
+                config.getInt("warmUpTime", DEFAULT_WARM_UP_TIME),
+                config.getInt("coolDownTime", DEFAULT_COOL_DOWN_TIME),
+                config.getInt("probeInterval", DEFAULT_PROBE_INTERVAL),
+                config.getString("probe", null)
+        );
+    }
+}
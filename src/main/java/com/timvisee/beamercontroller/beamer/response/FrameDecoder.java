@@ -0,0 +1,254 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.response;
+
+import com.timvisee.beamercontroller.beamer.command.CommandFraming;
+import com.timvisee.beamercontroller.util.ByteRingBuffer;
+
+public class FrameDecoder {
+
+    /**
+     * Default maximum length of a frame in bytes.
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 256;
+
+    /**
+     * Decoder state, searching for the start delimiter.
+     */
+    private static final int STATE_SEEK_START = 0;
+
+    /**
+     * Decoder state, reading the content of a frame.
+     */
+    private static final int STATE_IN_FRAME = 1;
+
+    /**
+     * Decoder state, discarding an oversized frame until its end delimiter.
+     */
+    private static final int STATE_DISCARD = 2;
+
+    /**
+     * Delimiter starting a frame, may be empty.
+     */
+    private final byte[] start;
+
+    /**
+     * Delimiter ending a frame.
+     */
+    private final byte[] end;
+
+    /**
+     * Buffer holding the content of the frame that is currently decoded.
+     */
+    private final byte[] frame;
+
+    /**
+     * Current decoder state.
+     */
+    private int state;
+
+    /**
+     * Number of bytes in the frame buffer.
+     */
+    private int frameLength = 0;
+
+    /**
+     * Number of bytes of the start delimiter that have been matched.
+     */
+    private int startMatched = 0;
+
+    /**
+     * Number of bytes of the end delimiter that have been matched.
+     */
+    private int endMatched = 0;
+
+    /**
+     * Number of decoded frames.
+     */
+    private long frameCount = 0;
+
+    /**
+     * Number of frames that were discarded, because they were too long or interrupted by a new frame.
+     */
+    private long discardedCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param start Delimiter starting a frame, may be empty if frames only have an end delimiter.
+     * @param end Delimiter ending a frame.
+     * @param maxFrameLength Maximum length of a frame, including the end delimiter.
+     */
+    public FrameDecoder(byte[] start, byte[] end, int maxFrameLength) {
+        // Make sure frames can be separated
+        if(end.length == 0)
+            throw new IllegalArgumentException("frame end delimiter must not be empty");
+        if(maxFrameLength <= end.length)
+            throw new IllegalArgumentException("maximum frame length must be larger than the end delimiter");
+
+        // Set the delimiters and create the frame buffer
+        this.start = start.clone();
+        this.end = end.clone();
+        this.frame = new byte[maxFrameLength];
+        this.state = initialState();
+    }
+
+    /**
+     * Create a frame decoder for the given command prefix and suffix.
+     * Surrounding whitespace is trimmed from the delimiters, as beamers don't always send it in their responses.
+     *
+     * @param commandPrefix Command prefix.
+     * @param commandSuffix Command suffix.
+     *
+     * @return Frame decoder.
+     */
+    public static FrameDecoder forCommandDelimiters(String commandPrefix, String commandSuffix) {
+        return new FrameDecoder(
+                commandPrefix.trim().getBytes(CommandFraming.CHARSET),
+                commandSuffix.trim().getBytes(CommandFraming.CHARSET),
+                DEFAULT_MAX_FRAME_LENGTH
+        );
+    }
+
+    /**
+     * Get the number of decoded frames.
+     *
+     * @return Number of frames.
+     */
+    public long getFrameCount() {
+        return this.frameCount;
+    }
+
+    /**
+     * Get the number of discarded frames.
+     *
+     * @return Number of discarded frames.
+     */
+    public long getDiscardedCount() {
+        return this.discardedCount;
+    }
+
+    /**
+     * Decode all data available in the given ring buffer.
+     * Incomplete frames are kept, and completed when more data is decoded.
+     *
+     * @param buffer Buffer to read the data from.
+     * @param listener Listener to call for each decoded frame.
+     */
+    public void decode(ByteRingBuffer buffer, FrameListener listener) {
+        int b;
+        while((b = buffer.read()) >= 0)
+            decode((byte) b, listener);
+    }
+
+    /**
+     * Decode a single byte.
+     *
+     * @param b Byte to decode.
+     * @param listener Listener to call if this completes a frame.
+     */
+    public void decode(byte b, FrameListener listener) {
+        // Track the start delimiter, a new frame start resyncs the decoder
+        if(this.start.length > 0) {
+            this.startMatched = advance(this.start, this.startMatched, b);
+            if(this.startMatched == this.start.length) {
+                // Discard the interrupted frame
+                if(this.state == STATE_DISCARD || this.frameLength >= this.start.length)
+                    this.discardedCount++;
+
+                // Start a new frame
+                this.state = STATE_IN_FRAME;
+                this.startMatched = 0;
+                this.frameLength = 0;
+                this.endMatched = 0;
+                return;
+            }
+        }
+
+        // Skip data outside of frames
+        if(this.state == STATE_SEEK_START)
+            return;
+
+        // Track the end delimiter
+        this.endMatched = advance(this.end, this.endMatched, b);
+
+        // Skip the data of oversized frames until the frame ends
+        if(this.state == STATE_DISCARD) {
+            if(this.endMatched == this.end.length)
+                reset();
+            return;
+        }
+
+        // Discard the frame if it's too long
+        if(this.frameLength == this.frame.length) {
+            this.discardedCount++;
+            this.frameLength = 0;
+            this.state = this.start.length > 0 ? STATE_SEEK_START : STATE_DISCARD;
+            return;
+        }
+
+        // Append the byte to the frame
+        this.frame[this.frameLength++] = b;
+
+        // Complete the frame when the end delimiter is matched
+        if(this.endMatched == this.end.length) {
+            final int length = this.frameLength - this.end.length;
+            this.frameCount++;
+            reset();
+            listener.onFrame(this.frame, 0, length);
+        }
+    }
+
+    /**
+     * Reset the decoder to wait for the next frame.
+     */
+    public void reset() {
+        this.state = initialState();
+        this.frameLength = 0;
+        this.startMatched = 0;
+        this.endMatched = 0;
+    }
+
+    /**
+     * Get the state the decoder starts a new frame in.
+     *
+     * @return Initial decoder state.
+     */
+    private int initialState() {
+        return this.start.length > 0 ? STATE_SEEK_START : STATE_IN_FRAME;
+    }
+
+    /**
+     * Advance the number of matched delimiter bytes with the given byte.
+     *
+     * @param delimiter Delimiter to match.
+     * @param matched Number of delimiter bytes matched so far.
+     * @param b Next byte.
+     *
+     * @return New number of matched delimiter bytes.
+     */
+    private static int advance(byte[] delimiter, int matched, byte b) {
+        if(delimiter[matched] == b)
+            return matched + 1;
+        return delimiter[0] == b ? 1 : 0;
+    }
+}
@@ -0,0 +1,98 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.response;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+
+public class Response {
+
+    /**
+     * Command this is a response to.
+     */
+    private final Command command;
+
+    /**
+     * Response key, such as {@code POW}.
+     */
+    private final String key;
+
+    /**
+     * Response value, such as {@code ON}.
+     */
+    private final String value;
+
+    /**
+     * Constructor.
+     *
+     * @param command Command this is a response to.
+     * @param key Response key.
+     * @param value Response value.
+     */
+    public Response(Command command, String key, String value) {
+        this.command = command;
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * Get the command this is a response to.
+     *
+     * @return Command.
+     */
+    public Command getCommand() {
+        return this.command;
+    }
+
+    /**
+     * Get the response key.
+     *
+     * @return Response key.
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Get the response value.
+     *
+     * @return Response value.
+     */
+    public String getValue() {
+        return this.value;
+    }
+
+    /**
+     * Check whether the response value equals the given value, ignoring case.
+     *
+     * @param value Value to compare to.
+     *
+     * @return True if equal, false if not.
+     */
+    public boolean is(String value) {
+        return this.value.equalsIgnoreCase(value);
+    }
+
+    @Override
+    public String toString() {
+        return this.key + "=" + this.value;
+    }
+}
@@ -0,0 +1,318 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.response;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandFraming;
+import com.timvisee.beamercontroller.util.CommandUtils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ResponseCorrelator implements FrameListener {
+
+    /**
+     * Value a beamer echoes for a read command, which isn't an actual response.
+     */
+    private static final byte QUERY_VALUE = '?';
+
+    /**
+     * Shared scheduler used to enforce response timeouts.
+     */
+    private static final ScheduledThreadPoolExecutor TIMEOUT_SCHEDULER;
+
+    static {
+        TIMEOUT_SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "beamer-response-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        TIMEOUT_SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Outstanding read commands, oldest first.
+     */
+    private final Deque<PendingResponse> pending = new ArrayDeque<>();
+
+    /**
+     * Constructor.
+     */
+    public ResponseCorrelator() {}
+
+    /**
+     * Register a read command that has been sent, and of which a response is expected.
+     * The given future is completed with the response, or completes exceptionally if the command timed out.
+     *
+     * @param command Read command.
+     * @param future Future to complete with the response.
+     */
+    public void register(Command command, CompletableFuture<Response> future) {
+        // Create the pending response
+        final PendingResponse pendingResponse = new PendingResponse(command, future);
+
+        // Enforce the command timeout
+        final ScheduledFuture<?> timeout = TIMEOUT_SCHEDULER.schedule(
+                () -> future.completeExceptionally(new TimeoutException("no response to " + command.getId() + " within " + command.getTimeout() + " ms")),
+                command.getTimeout(),
+                TimeUnit.MILLISECONDS
+        );
+        future.whenComplete((response, throwable) -> timeout.cancel(false));
+
+        synchronized(this.pending) {
+            // Drop responses that were completed already, such as timed out ones
+            removeCompleted();
+
+            // Add the pending response
+            this.pending.addLast(pendingResponse);
+        }
+    }
+
+    /**
+     * Get the number of outstanding read commands.
+     *
+     * @return Number of outstanding read commands.
+     */
+    public int getPendingCount() {
+        synchronized(this.pending) {
+            removeCompleted();
+            return this.pending.size();
+        }
+    }
+
+    /**
+     * Handle a received response frame, without its prefix and suffix.
+     * For example {@code POW=ON} for the frame {@code *POW=ON#}.
+     *
+     * @param frame Frame content.
+     */
+    public void onFrame(String frame) {
+        final byte[] data = frame.getBytes(CommandFraming.CHARSET);
+        onFrame(data, 0, data.length);
+    }
+
+    /**
+     * Handle a received response frame, without its prefix and suffix.
+     * For example {@code POW=ON} for the frame {@code *POW=ON#}.
+     * This only allocates when the frame completes an outstanding read command.
+     *
+     * @param frame Buffer holding the frame content.
+     * @param offset Offset of the frame content in the buffer.
+     * @param length Length of the frame content.
+     */
+    @Override
+    public void onFrame(byte[] frame, int offset, int length) {
+        // Trim surrounding whitespace
+        int start = offset;
+        int end = offset + length;
+        while(start < end && frame[start] <= ' ')
+            start++;
+        while(end > start && frame[end - 1] <= ' ')
+            end--;
+
+        // Ignore empty frames
+        if(start == end)
+            return;
+
+        // Find the key and value separator
+        int separator = start;
+        while(separator < end && frame[separator] != '=')
+            separator++;
+
+        // Frames without a separator are error messages, such as "Block item" or "Illegal format"
+        if(separator == end) {
+            completeOldest(frame, start, 0, start, end);
+            return;
+        }
+
+        // Ignore echoed read commands, and echoed write commands that are sent exactly as pending
+        if(end - separator == 2 && frame[separator + 1] == QUERY_VALUE)
+            return;
+        if(isEcho(frame, start, end))
+            return;
+
+        // Complete the oldest command with a matching key
+        completeOldest(frame, start, separator - start, separator + 1, end);
+    }
+
+    /**
+     * Fail all outstanding read commands.
+     *
+     * @param throwable Cause.
+     */
+    public void failAll(Throwable throwable) {
+        synchronized(this.pending) {
+            PendingResponse pendingResponse;
+            while((pendingResponse = this.pending.pollFirst()) != null)
+                pendingResponse.future.completeExceptionally(throwable);
+        }
+    }
+
+    /**
+     * Complete the oldest outstanding command matching the key in the given frame.
+     *
+     * @param frame Buffer holding the frame.
+     * @param keyOffset Offset of the key.
+     * @param keyLength Length of the key, or 0 if this frame is an error message and matches any command.
+     * @param valueOffset Offset of the value, or of the error message.
+     * @param valueEnd End of the value, or of the error message.
+     */
+    private void completeOldest(byte[] frame, int keyOffset, int keyLength, int valueOffset, int valueEnd) {
+        // Find and remove the oldest matching pending response
+        PendingResponse match = null;
+        synchronized(this.pending) {
+            final Iterator<PendingResponse> iterator = this.pending.iterator();
+            while(iterator.hasNext()) {
+                final PendingResponse pendingResponse = iterator.next();
+
+                // Remove completed responses while iterating
+                if(pendingResponse.future.isDone()) {
+                    iterator.remove();
+                    continue;
+                }
+
+                // Match the key
+                if(keyLength == 0 || keyEquals(frame, keyOffset, keyLength, pendingResponse.command.getKey())) {
+                    iterator.remove();
+                    match = pendingResponse;
+                    break;
+                }
+            }
+        }
+
+        // Print unexpected frames to the console
+        if(match == null) {
+            System.out.println("Received unexpected response from beamer: " + CommandUtils.formatCommand(new String(frame, keyOffset, valueEnd - keyOffset, CommandFraming.CHARSET)));
+            return;
+        }
+
+        // Complete the future
+        final String value = new String(frame, valueOffset, valueEnd - valueOffset, CommandFraming.CHARSET).trim();
+        if(keyLength == 0)
+            match.future.completeExceptionally(new ResponseException(value));
+        else
+            match.future.complete(new Response(match.command, new String(frame, keyOffset, keyLength, CommandFraming.CHARSET).trim(), value));
+    }
+
+    /**
+     * Check whether the given frame is the echo of a pending command.
+     * A beamer echoes a command exactly as it was sent, while responses are formatted by the beamer.
+     *
+     * @param frame Frame buffer.
+     * @param start Start offset of the trimmed frame.
+     * @param end End offset of the trimmed frame.
+     *
+     * @return True if the frame is an echo, false if not.
+     */
+    private boolean isEcho(byte[] frame, int start, int end) {
+        synchronized(this.pending) {
+            for(PendingResponse pendingResponse : this.pending)
+                if(!pendingResponse.future.isDone() && bytesEqual(frame, start, end - start, pendingResponse.command.getCommand()))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether the bytes in the given buffer equal the given string, case sensitively.
+     *
+     * @param frame Buffer holding the bytes.
+     * @param offset Offset of the bytes.
+     * @param length Length of the bytes.
+     * @param value String to compare to.
+     *
+     * @return True if equal, false if not.
+     */
+    private static boolean bytesEqual(byte[] frame, int offset, int length, String value) {
+        if(length != value.length())
+            return false;
+        for(int i = 0; i < length; i++)
+            if((char) (frame[offset + i] & 0xFF) != value.charAt(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Check whether the key in the given buffer equals the given key, ignoring case and surrounding whitespace.
+     *
+     * @param frame Buffer holding the key.
+     * @param offset Offset of the key.
+     * @param length Length of the key.
+     * @param key Key to compare to.
+     *
+     * @return True if equal, false if not.
+     */
+    private static boolean keyEquals(byte[] frame, int offset, int length, String key) {
+        // Trim whitespace before the separator
+        while(length > 0 && frame[offset + length - 1] <= ' ')
+            length--;
+
+        // Compare the length and characters
+        if(length != key.length())
+            return false;
+        for(int i = 0; i < length; i++)
+            if(Character.toLowerCase((char) (frame[offset + i] & 0xFF)) != Character.toLowerCase(key.charAt(i)))
+                return false;
+        return true;
+    }
+
+    /**
+     * Remove completed pending responses from the head of the queue.
+     */
+    private void removeCompleted() {
+        while(!this.pending.isEmpty() && this.pending.peekFirst().future.isDone())
+            this.pending.pollFirst();
+    }
+
+    /**
+     * Read command waiting for its response.
+     */
+    private static class PendingResponse {
+
+        /**
+         * Read command.
+         */
+        final Command command;
+
+        /**
+         * Future to complete with the response.
+         */
+        final CompletableFuture<Response> future;
+
+        /**
+         * Constructor.
+         *
+         * @param command Read command.
+         * @param future Future to complete with the response.
+         */
+        PendingResponse(Command command, CompletableFuture<Response> future) {
+            this.command = command;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.response;
+
+import com.timvisee.beamercontroller.beamer.transport.TransportReceiver;
+import com.timvisee.beamercontroller.util.ByteRingBuffer;
+
+public class ResponseReader implements TransportReceiver {
+
+    /**
+     * Default capacity of the receive buffer in bytes.
+     */
+    public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+
+    /**
+     * Buffer received data is written to before it's decoded.
+     * This buffer has a fixed size, so a beamer streaming garbage can't use unbounded memory.
+     */
+    private final ByteRingBuffer buffer;
+
+    /**
+     * Decoder cutting the received data into frames.
+     */
+    private final FrameDecoder decoder;
+
+    /**
+     * Correlator to pass the received frames to.
+     */
+    private final ResponseCorrelator correlator;
+
+    /**
+     * Constructor.
+     *
+     * @param commandPrefix Command prefix, starting a frame.
+     * @param commandSuffix Command suffix, ending a frame.
+     * @param correlator Correlator to pass received frames to.
+     */
+    public ResponseReader(String commandPrefix, String commandSuffix, ResponseCorrelator correlator) {
+        this(new ByteRingBuffer(DEFAULT_BUFFER_CAPACITY), FrameDecoder.forCommandDelimiters(commandPrefix, commandSuffix), correlator);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param buffer Receive buffer.
+     * @param decoder Frame decoder.
+     * @param correlator Correlator to pass received frames to.
+     */
+    public ResponseReader(ByteRingBuffer buffer, FrameDecoder decoder, ResponseCorrelator correlator) {
+        this.buffer = buffer;
+        this.decoder = decoder;
+        this.correlator = correlator;
+    }
+
+    /**
+     * Get the frame decoder.
+     *
+     * @return Frame decoder.
+     */
+    public FrameDecoder getDecoder() {
+        return this.decoder;
+    }
+
+    @Override
+    public synchronized void onReceive(byte[] data, int offset, int length) {
+        // Buffer the received data, and decode all complete frames
+        this.buffer.write(data, offset, length);
+        this.decoder.decode(this.buffer, this.correlator);
+    }
+}
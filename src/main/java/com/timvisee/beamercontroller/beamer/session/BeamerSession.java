@@ -0,0 +1,556 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.session;
+
+import com.timvisee.beamercontroller.beamer.Beamer;
+import com.timvisee.beamercontroller.beamer.circuit.CircuitBreaker;
+import com.timvisee.beamercontroller.beamer.circuit.CircuitOpenException;
+import com.timvisee.beamercontroller.beamer.circuit.CircuitState;
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.delivery.CommandDelivery;
+import com.timvisee.beamercontroller.beamer.event.StateAttribute;
+import com.timvisee.beamercontroller.beamer.event.StateEventBus;
+import com.timvisee.beamercontroller.beamer.executor.CommandExecutor;
+import com.timvisee.beamercontroller.beamer.executor.CommandPriority;
+import com.timvisee.beamercontroller.beamer.iface.BeamerInterface;
+import com.timvisee.beamercontroller.beamer.power.PowerGate;
+import com.timvisee.beamercontroller.beamer.power.PowerProfile;
+import com.timvisee.beamercontroller.beamer.power.PowerState;
+import com.timvisee.beamercontroller.beamer.response.Response;
+import com.timvisee.beamercontroller.beamer.state.StateCache;
+import com.timvisee.beamercontroller.beamer.transport.Transport;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BeamerSession {
+
+    /**
+     * Session ID, identifying the controlled beamer.
+     */
+    private final String id;
+
+    /**
+     * Beamer profile.
+     */
+    private final Beamer beamer;
+
+    /**
+     * Transport to the beamer.
+     */
+    private final Transport transport;
+
+    /**
+     * Command executor, owning the transport.
+     */
+    private final CommandExecutor executor;
+
+    /**
+     * Last known state of the beamer, to answer read commands from.
+     */
+    private final StateCache stateCache;
+
+    /**
+     * Delivery of commands, retrying and verifying them according to their delivery policy.
+     */
+    private final CommandDelivery delivery;
+
+    /**
+     * Power gate holding commands while the beamer warms up or cools down, or null if the beamer switches instantly.
+     */
+    private final PowerGate powerGate;
+
+    /**
+     * Circuit breaker failing commands fast while the beamer is unreachable.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * True to skip write commands that set an attribute to the value it currently has.
+     */
+    private volatile boolean deduplicateWrites = false;
+
+    /**
+     * Number of write commands skipped because the attribute already had the written value.
+     */
+    private final LongAdder skippedWriteCount = new LongAdder();
+
+    /**
+     * Names of the groups this session is part of, in lowercase.
+     */
+    private final Set<String> groups = new CopyOnWriteArraySet<>();
+
+    /**
+     * Current session state.
+     */
+    private volatile SessionState state = SessionState.CREATED;
+
+    /**
+     * Error that caused the session to fail, or null.
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Constructor.
+     * The session uses a dedicated writer thread.
+     *
+     * @param id Session ID.
+     * @param beamer Beamer profile.
+     * @param transport Transport to the beamer.
+     * @param beamerInterface Beamer interface the transport connects to.
+     */
+    public BeamerSession(String id, Beamer beamer, Transport transport, BeamerInterface beamerInterface) {
+        this(id, beamer, transport, beamerInterface, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param id Session ID.
+     * @param beamer Beamer profile.
+     * @param transport Transport to the beamer.
+     * @param beamerInterface Beamer interface the transport connects to.
+     * @param workers Workers shared between sessions to write commands on, or null to use a dedicated writer thread.
+     */
+    public BeamerSession(String id, Beamer beamer, Transport transport, BeamerInterface beamerInterface, ScheduledExecutorService workers) {
+        this(id, beamer, transport, beamerInterface, workers, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param id Session ID.
+     * @param beamer Beamer profile.
+     * @param transport Transport to the beamer.
+     * @param beamerInterface Beamer interface the transport connects to.
+     * @param workers Workers shared between sessions to write commands on, or null to use a dedicated writer thread.
+     * @param eventBus Event bus to publish state changes of the beamer on, or null.
+     */
+    public BeamerSession(String id, Beamer beamer, Transport transport, BeamerInterface beamerInterface, ScheduledExecutorService workers, StateEventBus eventBus) {
+        this.id = id;
+        this.beamer = beamer;
+        this.transport = transport;
+        this.executor = new CommandExecutor(transport, beamerInterface, workers);
+        this.stateCache = new StateCache(id, eventBus);
+        this.delivery = new CommandDelivery(beamer.getCommandManager(), this::sendOnce);
+
+        // Probe an open circuit with a power read, or let a trial command through if the beamer can't read its power
+        final Command powerRead = beamer.getCommandManager().getReadCommand(StateAttribute.POWER.getKey());
+        this.circuitBreaker = new CircuitBreaker(powerRead != null ? () -> write(powerRead, CommandPriority.INTERACTIVE) : null);
+
+        // Gate commands on the power state, if the beamer warms up or cools down
+        final PowerProfile powerProfile = beamer.getPowerProfile();
+        if(powerProfile != null) {
+            final Command probe = powerProfile.getProbe() != null ? beamer.getCommandManager().getCommand(powerProfile.getProbe()) : null;
+            this.powerGate = new PowerGate(powerProfile, probe, this::send);
+        } else
+            this.powerGate = null;
+    }
+
+    /**
+     * Get the session ID.
+     *
+     * @return Session ID.
+     */
+    public String getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the beamer profile.
+     *
+     * @return Beamer profile.
+     */
+    public Beamer getBeamer() {
+        return this.beamer;
+    }
+
+    /**
+     * Get the transport to the beamer.
+     *
+     * @return Transport.
+     */
+    public Transport getTransport() {
+        return this.transport;
+    }
+
+    /**
+     * Get the command executor.
+     *
+     * @return Command executor.
+     */
+    public CommandExecutor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Get the last known state of the beamer.
+     *
+     * @return State cache.
+     */
+    public StateCache getStateCache() {
+        return this.stateCache;
+    }
+
+    /**
+     * Check whether write commands are skipped if the attribute currently has the written value.
+     *
+     * @return True if redundant writes are skipped, false if not.
+     */
+    public boolean isDeduplicateWrites() {
+        return this.deduplicateWrites;
+    }
+
+    /**
+     * Set whether to skip write commands that set an attribute to the value it currently has.
+     * The current value is taken from the state cache, if it's younger than the cache TTL of the read command of the attribute.
+     *
+     * @param deduplicateWrites True to skip redundant writes, false to always send them.
+     */
+    public void setDeduplicateWrites(boolean deduplicateWrites) {
+        this.deduplicateWrites = deduplicateWrites;
+    }
+
+    /**
+     * Get the number of write commands that were skipped because the attribute already had the written value.
+     *
+     * @return Number of skipped writes.
+     */
+    public long getSkippedWriteCount() {
+        return this.skippedWriteCount.sum();
+    }
+
+    /**
+     * Get the number of command attempts that were retried after a timeout, transport failure or failed verification.
+     *
+     * @return Number of retries.
+     */
+    public long getRetryCount() {
+        return this.delivery.getRetryCount();
+    }
+
+    /**
+     * Get the power state of the beamer.
+     *
+     * @return Power state, or {@link PowerState#UNKNOWN} if the beamer switches instantly and the state isn't tracked.
+     */
+    public PowerState getPowerState() {
+        return this.powerGate != null ? this.powerGate.getState() : PowerState.UNKNOWN;
+    }
+
+    /**
+     * Get the number of commands held until the beamer finished warming up or cooling down.
+     *
+     * @return Number of held commands.
+     */
+    public int getHeldCount() {
+        return this.powerGate != null ? this.powerGate.getHeldCount() : 0;
+    }
+
+    /**
+     * Get the circuit breaker failing commands fast while the beamer is unreachable.
+     *
+     * @return Circuit breaker.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
+
+    /**
+     * Get the state of the circuit breaker.
+     *
+     * @return Circuit state, {@link CircuitState#OPEN} if commands currently fail fast.
+     */
+    public CircuitState getCircuitState() {
+        return this.circuitBreaker.getState();
+    }
+
+    /**
+     * Get the names of the groups this session is part of.
+     *
+     * @return Unmodifiable set of lowercase group names.
+     */
+    public Set<String> getGroups() {
+        return Collections.unmodifiableSet(this.groups);
+    }
+
+    /**
+     * Add this session to a group.
+     *
+     * @param group Group name, case insensitive.
+     */
+    public void addGroup(String group) {
+        this.groups.add(group.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Check whether this session is part of the given group.
+     *
+     * @param group Group name, case insensitive.
+     *
+     * @return True if part of the group, false if not.
+     */
+    public boolean isInGroup(String group) {
+        return this.groups.contains(group.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the current session state.
+     *
+     * @return Session state.
+     */
+    public SessionState getState() {
+        return this.state;
+    }
+
+    /**
+     * Get the error that caused the session to fail.
+     *
+     * @return Failure, or null if the session didn't fail.
+     */
+    public Throwable getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * Open the transport, and start executing commands.
+     *
+     * @throws IOException Throws if opening the transport failed.
+     */
+    public synchronized void open() throws IOException {
+        // Don't open twice
+        if(this.state == SessionState.OPEN)
+            return;
+
+        // Open the transport
+        this.state = SessionState.OPENING;
+        try {
+            this.transport.open();
+        } catch(IOException | RuntimeException e) {
+            this.failure = e;
+            this.state = SessionState.FAILED;
+            throw e;
+        }
+
+        // Start executing commands, with a clean state as the beamer may have changed while closed
+        this.stateCache.invalidateAll();
+        if(this.powerGate != null)
+            this.powerGate.reset(new IllegalStateException("session reopened"));
+        this.circuitBreaker.reset();
+        this.executor.start();
+        this.failure = null;
+        this.state = SessionState.OPEN;
+    }
+
+    /**
+     * Submit the command with the given ID.
+     *
+     * @param commandId Command ID.
+     *
+     * @return Future completing with the command response, or completing exceptionally if the command is unknown or failed.
+     */
+    public CompletableFuture<Response> submit(String commandId) {
+        // Find the command
+        final Command command = this.beamer.getCommandManager().getCommand(commandId);
+
+        // Fail if the command is unknown
+        if(command == null) {
+            final CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalArgumentException("unknown command: " + commandId));
+            return future;
+        }
+
+        // Submit the command
+        return submit(command);
+    }
+
+    /**
+     * Submit an interactive command.
+     *
+     * @param command Command to submit.
+     *
+     * @return Future completing with the command response, or completing exceptionally if the command failed.
+     */
+    public CompletableFuture<Response> submit(Command command) {
+        return submit(command, CommandPriority.INTERACTIVE);
+    }
+
+    /**
+     * Submit a command with the given priority.
+     * Read commands are answered from the state cache while the cached response is fresh,
+     * responses and write acknowledgements update the cache.
+     * If enabled, write commands are answered from the state cache too if they wouldn't change the current value.
+     * While the beamer warms up or cools down, commands it would reject are held until it's ready.
+     *
+     * @param command Command to submit.
+     * @param priority Command priority, higher priority commands are written before queued lower priority commands.
+     *
+     * @return Future completing with the command response, or completing exceptionally if the command failed.
+     */
+    public CompletableFuture<Response> submit(Command command, CommandPriority priority) {
+        // Answer from the state cache if fresh
+        final Response cached = this.stateCache.get(command);
+        if(cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        // Skip writes that wouldn't change the current value
+        final Response current = getRedundantWriteResponse(command);
+        if(current != null) {
+            this.skippedWriteCount.increment();
+            return CompletableFuture.completedFuture(current);
+        }
+
+        // Send the command
+        return refresh(command, priority);
+    }
+
+    /**
+     * Submit a command to the beamer, without answering it from the state cache.
+     * This is used to refresh the cached state, the response updates the cache.
+     * While the beamer warms up or cools down, commands it would reject are held until it's ready.
+     *
+     * @param command Command to submit.
+     * @param priority Command priority, higher priority commands are written before queued lower priority commands.
+     *
+     * @return Future completing with the command response, or completing exceptionally if the command failed.
+     */
+    public CompletableFuture<Response> refresh(Command command, CommandPriority priority) {
+        // Hold the command while the beamer warms up or cools down
+        if(this.powerGate != null)
+            return this.powerGate.submit(command, priority);
+
+        // Send the command
+        return send(command, priority);
+    }
+
+    /**
+     * Send a command to the beamer, retrying and verifying it according to its delivery policy.
+     *
+     * @param command Command to send.
+     * @param priority Command priority.
+     *
+     * @return Future completing with the command response, or completing exceptionally if all attempts failed.
+     */
+    private CompletableFuture<Response> send(Command command, CommandPriority priority) {
+        return this.delivery.deliver(command, priority);
+    }
+
+    /**
+     * Send a command to the beamer once, unless the circuit is open.
+     * Timeouts and transport failures are reported to the circuit breaker. When this opens the circuit,
+     * queued commands fail right away instead of each waiting out its timeout.
+     *
+     * @param command Command to send.
+     * @param priority Command priority.
+     *
+     * @return Future completing with the command response, or completing exceptionally if the command failed.
+     */
+    private CompletableFuture<Response> sendOnce(Command command, CommandPriority priority) {
+        // Fail fast while the circuit is open
+        if(!this.circuitBreaker.allowRequest()) {
+            final CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(new CircuitOpenException(this.id + " is unreachable, circuit is open"));
+            return future;
+        }
+
+        // Send the command, and report the result to the circuit breaker
+        final CompletableFuture<Response> future = write(command, priority);
+        future.whenComplete((response, throwable) -> {
+            if(this.circuitBreaker.onResult(throwable)) {
+                System.out.println("Circuit of " + this.id + " opened, failing commands fast: " + throwable.getMessage());
+                this.executor.failQueued(new CircuitOpenException(this.id + " is unreachable, circuit is open"));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Write a command to the beamer, and update the state cache before completing.
+     *
+     * @param command Command to write.
+     * @param priority Command priority.
+     *
+     * @return Future completing with the command response, or completing exceptionally if the command failed.
+     */
+    private CompletableFuture<Response> write(Command command, CommandPriority priority) {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        this.stateCache.onSubmit(command);
+        this.executor.submit(command, priority).whenComplete((response, throwable) -> {
+            this.stateCache.onComplete(command, response, throwable);
+            if(throwable != null)
+                future.completeExceptionally(throwable);
+            else
+                future.complete(response);
+        });
+        return future;
+    }
+
+    /**
+     * Get the current state of the attribute of a write command, if the write is redundant and may be skipped.
+     *
+     * @param command Command to check.
+     *
+     * @return Response holding the current value, or null if the command must be sent.
+     */
+    private Response getRedundantWriteResponse(Command command) {
+        // Only skip writes if enabled, and if the resulting value is known
+        if(!this.deduplicateWrites || command.getCommandType() != CommandType.WRITE)
+            return null;
+        final String stateValue = command.getStateValue();
+        if(stateValue == null)
+            return null;
+
+        // The attribute must be cached, for as long as its read command allows
+        final Command readCommand = this.beamer.getCommandManager().getReadCommand(command.getKey());
+        if(readCommand == null || readCommand.getCacheTtl() <= 0)
+            return null;
+
+        // Skip the write if the current value equals the resulting value
+        final Response current = this.stateCache.getCurrent(command, readCommand.getCacheTtl());
+        return current != null && current.is(stateValue) ? current : null;
+    }
+
+    /**
+     * Stop executing commands, and close the transport.
+     *
+     * @throws IOException Throws if closing the transport failed.
+     */
+    public synchronized void close() throws IOException {
+        this.state = SessionState.CLOSED;
+        if(this.powerGate != null)
+            this.powerGate.reset(new IllegalStateException("session closed"));
+        this.executor.stop();
+        this.transport.close();
+    }
+
+    @Override
+    public String toString() {
+        return this.id + " (" + this.beamer.getName() + " on " + this.transport.getName() + ")";
+    }
+}
@@ -0,0 +1,295 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.session;
+
+import com.timvisee.beamercontroller.beamer.Beamer;
+import com.timvisee.beamercontroller.beamer.broadcast.BroadcastListener;
+import com.timvisee.beamercontroller.beamer.broadcast.BroadcastResult;
+import com.timvisee.beamercontroller.beamer.broadcast.Broadcaster;
+import com.timvisee.beamercontroller.beamer.event.StateEventBus;
+import com.timvisee.beamercontroller.beamer.iface.BeamerInterface;
+import com.timvisee.beamercontroller.beamer.transport.Transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SessionManager {
+
+    /**
+     * Default number of worker threads shared by all sessions.
+     */
+    public static final int DEFAULT_WORKER_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Name of the group every session is part of.
+     */
+    public static final String GROUP_ALL = "all";
+
+    /**
+     * Worker threads shared by all sessions, to write commands and run session tasks on.
+     */
+    private final ScheduledExecutorService workers;
+
+    /**
+     * Registered sessions, by session ID.
+     */
+    private final ConcurrentMap<String, BeamerSession> sessions = new ConcurrentSkipListMap<>();
+
+    /**
+     * Broadcaster, to send commands to groups of sessions.
+     */
+    private final Broadcaster broadcaster;
+
+    /**
+     * Event bus the state changes of all sessions are published on.
+     */
+    private final StateEventBus eventBus = new StateEventBus();
+
+    /**
+     * Constructor.
+     */
+    public SessionManager() {
+        this(DEFAULT_WORKER_COUNT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param workerCount Number of worker threads shared by all sessions.
+     */
+    public SessionManager(int workerCount) {
+        this(workerCount, Broadcaster.DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param workerCount Number of worker threads shared by all sessions.
+     * @param broadcastConcurrency Maximum number of sessions a broadcast command is in flight on at the same time.
+     */
+    public SessionManager(int workerCount, int broadcastConcurrency) {
+        this.broadcaster = new Broadcaster(broadcastConcurrency);
+        final AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = Executors.newScheduledThreadPool(workerCount, runnable -> {
+            final Thread thread = new Thread(runnable, "beamer-worker-" + workerIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the worker threads shared by all sessions.
+     *
+     * @return Shared workers.
+     */
+    public ScheduledExecutorService getWorkers() {
+        return this.workers;
+    }
+
+    /**
+     * Get the event bus the state changes of all sessions are published on.
+     *
+     * @return State event bus.
+     */
+    public StateEventBus getEventBus() {
+        return this.eventBus;
+    }
+
+    /**
+     * Create and register a new session, using the shared workers.
+     *
+     * @param id Session ID.
+     * @param beamer Beamer profile.
+     * @param transport Transport to the beamer.
+     * @param beamerInterface Beamer interface the transport connects to.
+     *
+     * @return Created session.
+     *
+     * @throws IllegalArgumentException Throws if a session with this ID is registered already.
+     */
+    public BeamerSession createSession(String id, Beamer beamer, Transport transport, BeamerInterface beamerInterface) {
+        // Create the session
+        final BeamerSession session = new BeamerSession(id, beamer, transport, beamerInterface, this.workers, this.eventBus);
+
+        // Register the session
+        if(this.sessions.putIfAbsent(id, session) != null)
+            throw new IllegalArgumentException("session already exists: " + id);
+
+        return session;
+    }
+
+    /**
+     * Get a session by its ID.
+     *
+     * @param id Session ID.
+     *
+     * @return Session, or null if no session with this ID is registered.
+     */
+    public BeamerSession getSession(String id) {
+        return this.sessions.get(id);
+    }
+
+    /**
+     * Get all registered sessions, ordered by their ID.
+     *
+     * @return Unmodifiable collection of sessions.
+     */
+    public Collection<BeamerSession> getSessions() {
+        return Collections.unmodifiableCollection(this.sessions.values());
+    }
+
+    /**
+     * Get the number of registered sessions.
+     *
+     * @return Number of sessions.
+     */
+    public int getSessionCount() {
+        return this.sessions.size();
+    }
+
+    /**
+     * Get all sessions that are part of the given group, ordered by their ID.
+     * The {@link #GROUP_ALL} group contains all sessions.
+     *
+     * @param group Group name, case insensitive.
+     *
+     * @return List of sessions, which is empty if the group is unknown.
+     */
+    public List<BeamerSession> getGroup(String group) {
+        // Return all sessions for the all group
+        if(group.trim().equalsIgnoreCase(GROUP_ALL))
+            return new ArrayList<>(this.sessions.values());
+
+        // Collect the sessions in the group
+        final List<BeamerSession> members = new ArrayList<>();
+        for(BeamerSession session : this.sessions.values())
+            if(session.isInGroup(group))
+                members.add(session);
+        return members;
+    }
+
+    /**
+     * Get the broadcaster, used to send commands to groups of sessions.
+     *
+     * @return Broadcaster.
+     */
+    public Broadcaster getBroadcaster() {
+        return this.broadcaster;
+    }
+
+    /**
+     * Send a command to all sessions in a group concurrently.
+     *
+     * @param group Group name, case insensitive.
+     * @param commandId ID of the command to send, resolved for the beamer of each session.
+     * @param listener Listener receiving the result of each session as soon as it finishes, or null.
+     *
+     * @return Future completing with the results of all sessions in the group, when all sessions finished.
+     */
+    public CompletableFuture<List<BroadcastResult>> broadcast(String group, String commandId, BroadcastListener listener) {
+        return this.broadcaster.broadcast(getGroup(group), commandId, listener);
+    }
+
+    /**
+     * Open all registered sessions that aren't open yet, concurrently on the shared workers.
+     * Sessions that fail to open are reported, and left in the failed state.
+     *
+     * @return Future completing when all sessions have been opened or failed.
+     */
+    public CompletableFuture<Void> openAll() {
+        final List<CompletableFuture<Void>> opening = new ArrayList<>();
+        for(BeamerSession session : this.sessions.values()) {
+            // Skip sessions that are open already
+            if(session.getState() == SessionState.OPEN)
+                continue;
+
+            // Open the session on a worker
+            opening.add(CompletableFuture.runAsync(() -> {
+                try {
+                    session.open();
+                    System.out.println("Opened session: " + session);
+                } catch(IOException | RuntimeException e) {
+                    System.out.println("Failed to open session " + session.getId() + ": " + e.getMessage());
+                }
+            }, this.workers));
+        }
+        return CompletableFuture.allOf(opening.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Close and unregister the session with the given ID.
+     *
+     * @param id Session ID.
+     *
+     * @return True if a session was removed, false if no session with this ID was registered.
+     */
+    public boolean removeSession(String id) {
+        // Unregister the session
+        final BeamerSession session = this.sessions.remove(id);
+        if(session == null)
+            return false;
+
+        // Close the session
+        closeSession(session);
+        return true;
+    }
+
+    /**
+     * Close all sessions, and stop the shared workers.
+     */
+    public void close() {
+        // Close all sessions
+        for(BeamerSession session : this.sessions.values())
+            closeSession(session);
+
+        // Stop the workers
+        this.workers.shutdown();
+        try {
+            this.workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Close a session, reporting failures.
+     *
+     * @param session Session to close.
+     */
+    private static void closeSession(BeamerSession session) {
+        try {
+            session.close();
+        } catch(IOException e) {
+            System.out.println("Failed to close session " + session.getId() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.session;
+
+public enum SessionState {
+
+    CREATED("created"),
+    OPENING("opening"),
+    OPEN("open"),
+    FAILED("failed"),
+    CLOSED("closed");
+
+    /**
+     * Session state ID.
+     */
+    public String id;
+
+    /**
+     * Constructor.
+     *
+     * @param id Session state ID.
+     */
+    SessionState(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Get the session state ID.
+     *
+     * @return Session state ID.
+     */
+    public String getId() {
+        return this.id;
+    }
+}
@@ -0,0 +1,124 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.state;
+
+import com.timvisee.beamercontroller.beamer.event.StateAttribute;
+import com.timvisee.yamlwrapper.ConfigurationSection;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class DesiredState {
+
+    /**
+     * Value of the power attribute when the beamer is off, in which case no other attributes can be set.
+     */
+    private static final String POWER_OFF_VALUE = "off";
+
+    /**
+     * Desired values by their lowercase command key, in the order they're converged in.
+     */
+    private final Map<String, String> values;
+
+    /**
+     * Constructor.
+     * The power attribute is always converged first, as other attributes can't be set while the beamer is off.
+     *
+     * @param values Desired values, by their command key or state attribute ID, such as {@code power} or {@code sour}.
+     */
+    public DesiredState(Map<String, String> values) {
+        // Put the power attribute first, followed by the other attributes in their given order
+        final Map<String, String> ordered = new LinkedHashMap<>();
+        for(Map.Entry<String, String> entry : values.entrySet())
+            if(toKey(entry.getKey()).equals(StateAttribute.POWER.getKey()))
+                ordered.put(StateAttribute.POWER.getKey(), entry.getValue().trim());
+        for(Map.Entry<String, String> entry : values.entrySet())
+            ordered.putIfAbsent(toKey(entry.getKey()), entry.getValue().trim());
+        this.values = Collections.unmodifiableMap(ordered);
+    }
+
+    /**
+     * Get the desired values, in the order they're converged in.
+     *
+     * @return Unmodifiable map of desired values, by their lowercase command key.
+     */
+    public Map<String, String> getValues() {
+        return this.values;
+    }
+
+    /**
+     * Get the desired value of an attribute.
+     *
+     * @param key Command key of the attribute, such as {@code pow}.
+     *
+     * @return Desired value, or null if the attribute has no desired value.
+     */
+    public String getValue(String key) {
+        return this.values.get(toKey(key));
+    }
+
+    /**
+     * Check whether the beamer should be powered off.
+     * Other attributes can't be converged while the beamer is off.
+     *
+     * @return True if powered off, false if not or if the power isn't part of the desired state.
+     */
+    public boolean isPowerOff() {
+        return POWER_OFF_VALUE.equalsIgnoreCase(this.values.get(StateAttribute.POWER.getKey()));
+    }
+
+    /**
+     * Get the command key for an attribute, given by its state attribute ID or command key.
+     *
+     * @param attribute State attribute ID or command key.
+     *
+     * @return Lowercase command key.
+     */
+    private static String toKey(String attribute) {
+        final StateAttribute stateAttribute = StateAttribute.getById(attribute.trim());
+        return stateAttribute != null ? stateAttribute.getKey() : attribute.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Load a desired state from the given configuration section.
+     *
+     * @param config Configuration section with a value for each attribute, such as {@code source: hdmi}.
+     *
+     * @return Desired state.
+     */
+    public static DesiredState load(ConfigurationSection config) {
+        final Map<String, String> values = new LinkedHashMap<>();
+        for(String key : config.getKeys("")) {
+            final String value = config.getString(key);
+            if(value != null)
+                values.put(key, value);
+        }
+        return new DesiredState(values);
+    }
+
+    @Override
+    public String toString() {
+        return this.values.toString();
+    }
+}
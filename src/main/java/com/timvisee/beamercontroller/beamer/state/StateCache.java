@@ -0,0 +1,273 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.state;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.event.StateAttribute;
+import com.timvisee.beamercontroller.beamer.event.StateEventBus;
+import com.timvisee.beamercontroller.beamer.response.Response;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+public class StateCache {
+
+    /**
+     * Cached attributes, by their lowercase command key.
+     */
+    private final ConcurrentMap<String, Attribute> attributes = new ConcurrentHashMap<>();
+
+    /**
+     * ID of the session this is the state of, used for state change events.
+     */
+    private final String sessionId;
+
+    /**
+     * Event bus to publish state changes on, or null.
+     */
+    private final StateEventBus eventBus;
+
+    /**
+     * Constructor.
+     */
+    public StateCache() {
+        this(null, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sessionId ID of the session this is the state of.
+     * @param eventBus Event bus to publish changes of known attributes on, or null.
+     */
+    public StateCache(String sessionId, StateEventBus eventBus) {
+        this.sessionId = sessionId;
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Get the cached response to a read command, if it's still fresh.
+     * A response is fresh if it's younger than the cache TTL of the command, and no write to the same attribute is pending.
+     *
+     * @param command Read command.
+     *
+     * @return Cached response, or null if the attribute isn't cached or is stale.
+     */
+    public Response get(Command command) {
+        // Only cache read commands that have a TTL
+        if(command.getCommandType() != CommandType.READ || command.getCacheTtl() <= 0)
+            return null;
+        return getCurrent(command, command.getCacheTtl());
+    }
+
+    /**
+     * Get the cached value of the attribute of a command as response, if it's younger than the given age.
+     * A value isn't current while a write to the same attribute is pending.
+     *
+     * @param command Command of the attribute.
+     * @param maxAge Maximum age of the value in milliseconds.
+     *
+     * @return Response holding the cached value, or null if the attribute isn't cached or is stale.
+     */
+    public Response getCurrent(Command command, int maxAge) {
+        // Get the attribute
+        final Attribute attribute = this.attributes.get(normalize(command.getKey()));
+        if(attribute == null)
+            return null;
+
+        synchronized(attribute) {
+            // Skip attributes without a value, or with a pending write
+            if(attribute.value == null || attribute.pendingWrites > 0)
+                return null;
+
+            // Skip stale values
+            if(System.nanoTime() - attribute.updatedAt >= TimeUnit.MILLISECONDS.toNanos(maxAge))
+                return null;
+
+            return new Response(command, attribute.responseKey, attribute.value);
+        }
+    }
+
+    /**
+     * Mark a command as submitted.
+     * For write commands, the cached value of the attribute is dropped and not served until the write completes.
+     *
+     * @param command Submitted command.
+     */
+    public void onSubmit(Command command) {
+        // Reads don't change the attribute
+        if(command.getCommandType() != CommandType.WRITE)
+            return;
+
+        // Drop the cached value, and hold off until the write completes
+        final Attribute attribute = this.attributes.computeIfAbsent(normalize(command.getKey()), Attribute::new);
+        synchronized(attribute) {
+            attribute.value = null;
+            attribute.pendingWrites++;
+        }
+    }
+
+    /**
+     * Update the cache with the result of a submitted command.
+     * The response of a read, or the acknowledgement of a write, becomes the cached value of the attribute.
+     * A failed write leaves the attribute uncached, because its state on the beamer is unknown.
+     * If the value of a known attribute changed, the change is published on the event bus.
+     *
+     * @param command Completed command.
+     * @param response Command response, or null if the command failed.
+     * @param throwable Failure, or null if the command succeeded.
+     */
+    public void onComplete(Command command, Response response, Throwable throwable) {
+        final Attribute attribute = this.attributes.computeIfAbsent(normalize(command.getKey()), Attribute::new);
+        final String oldValue;
+        synchronized(attribute) {
+            // Finish pending writes
+            if(command.getCommandType() == CommandType.WRITE && attribute.pendingWrites > 0)
+                attribute.pendingWrites--;
+
+            // Drop the value if the command failed, as the state is unknown
+            if(throwable != null || response == null) {
+                attribute.value = null;
+                return;
+            }
+
+            // Don't cache reads answered while a write is pending, they may be outdated already
+            if(command.getCommandType() == CommandType.READ && attribute.pendingWrites > 0)
+                return;
+
+            // Store the value
+            attribute.responseKey = response.getKey();
+            attribute.value = response.getValue();
+            attribute.updatedAt = System.nanoTime();
+
+            // Remember the previous value if it changed
+            if(attribute.lastKnown != null && attribute.lastKnown.equalsIgnoreCase(attribute.value))
+                return;
+            oldValue = attribute.lastKnown;
+            attribute.lastKnown = attribute.value;
+        }
+
+        // Publish the change of known attributes
+        if(this.eventBus != null && attribute.stateAttribute != null)
+            this.eventBus.publish(this.sessionId, attribute.stateAttribute, oldValue, response.getValue());
+    }
+
+    /**
+     * Drop the cached value of an attribute.
+     *
+     * @param key Command key of the attribute, such as {@code pow}.
+     */
+    public void invalidate(String key) {
+        final Attribute attribute = this.attributes.get(normalize(key));
+        if(attribute == null)
+            return;
+        synchronized(attribute) {
+            attribute.value = null;
+        }
+    }
+
+    /**
+     * Drop all cached values.
+     */
+    public void invalidateAll() {
+        for(String key : this.attributes.keySet())
+            invalidate(key);
+    }
+
+    /**
+     * Get the last known value of all cached attributes, regardless of their age.
+     *
+     * @return Unmodifiable map of values, by their lowercase command key.
+     */
+    public Map<String, String> getValues() {
+        final Map<String, String> values = new TreeMap<>();
+        for(Map.Entry<String, Attribute> entry : this.attributes.entrySet()) {
+            synchronized(entry.getValue()) {
+                if(entry.getValue().value != null)
+                    values.put(entry.getKey(), entry.getValue().value);
+            }
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Normalize a command key for use in the cache.
+     *
+     * @param key Command key.
+     *
+     * @return Lowercase command key.
+     */
+    private static String normalize(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Cached attribute of a beamer, guarded by its own monitor.
+     */
+    private static class Attribute {
+
+        /**
+         * State attribute for change events, or null if this isn't a known attribute.
+         */
+        final StateAttribute stateAttribute;
+
+        /**
+         * Response key of the cached value, such as {@code POW}.
+         */
+        String responseKey;
+
+        /**
+         * Cached value, or null if the attribute isn't cached.
+         */
+        String value;
+
+        /**
+         * Last value that was received, kept when the cached value is dropped, or null if never received.
+         */
+        String lastKnown;
+
+        /**
+         * Time the value was stored at, from {@link System#nanoTime()}.
+         */
+        long updatedAt;
+
+        /**
+         * Number of writes to this attribute that haven't completed yet.
+         */
+        int pendingWrites;
+
+        /**
+         * Constructor.
+         *
+         * @param key Lowercase command key of the attribute.
+         */
+        Attribute(String key) {
+            this.stateAttribute = StateAttribute.getByKey(key);
+        }
+    }
+}
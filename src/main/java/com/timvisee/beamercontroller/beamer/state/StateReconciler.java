@@ -0,0 +1,386 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.state;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandManager;
+import com.timvisee.beamercontroller.beamer.event.StateAttribute;
+import com.timvisee.beamercontroller.beamer.event.StateChangeEvent;
+import com.timvisee.beamercontroller.beamer.event.StateEventBus;
+import com.timvisee.beamercontroller.beamer.executor.CommandPriority;
+import com.timvisee.beamercontroller.beamer.response.Response;
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
+import com.timvisee.beamercontroller.beamer.session.SessionManager;
+import com.timvisee.beamercontroller.beamer.session.SessionState;
+import com.timvisee.beamercontroller.util.TimerWheel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StateReconciler {
+
+    /**
+     * Default interval in milliseconds to reconcile each beamer at.
+     */
+    public static final int DEFAULT_INTERVAL = 30000;
+
+    /**
+     * Default number of attempts to converge an attribute in a single pass.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * Default delay in milliseconds before the first retry, which grows linearly with each attempt.
+     */
+    public static final int DEFAULT_RETRY_DELAY = 2000;
+
+    /**
+     * Session manager of the reconciled sessions.
+     */
+    private final SessionManager sessionManager;
+
+    /**
+     * Timer wheel reconcile passes and retries are scheduled on.
+     */
+    private final TimerWheel timerWheel;
+
+    /**
+     * Interval in milliseconds to reconcile each beamer at.
+     */
+    private final int interval;
+
+    /**
+     * Number of attempts to converge an attribute in a single pass.
+     */
+    private final int maxAttempts;
+
+    /**
+     * Delay in milliseconds before the first retry.
+     */
+    private final int retryDelay;
+
+    /**
+     * Reconciled beamers, by session ID.
+     */
+    private final ConcurrentMap<String, Target> targets = new ConcurrentHashMap<>();
+
+    /**
+     * Number of write commands sent to converge.
+     */
+    private final LongAdder writeCount = new LongAdder();
+
+    /**
+     * Number of attributes that failed to converge in a pass.
+     */
+    private final LongAdder failureCount = new LongAdder();
+
+    /**
+     * Subscription to state changes, to reconcile beamers that drifted from their desired state.
+     */
+    private StateEventBus.Subscription subscription;
+
+    /**
+     * True while reconciling.
+     */
+    private volatile boolean running;
+
+    /**
+     * Constructor.
+     *
+     * @param sessionManager Session manager of the sessions to reconcile.
+     * @param timerWheel Timer wheel to schedule reconcile passes and retries on.
+     * @param interval Interval in milliseconds to reconcile each beamer at.
+     * @param maxAttempts Number of attempts to converge an attribute in a single pass.
+     * @param retryDelay Delay in milliseconds before the first retry.
+     */
+    public StateReconciler(SessionManager sessionManager, TimerWheel timerWheel, int interval, int maxAttempts, int retryDelay) {
+        // Make sure the configuration is valid
+        if(interval <= 0 || maxAttempts <= 0 || retryDelay < 0)
+            throw new IllegalArgumentException("invalid reconciler configuration");
+
+        this.sessionManager = sessionManager;
+        this.timerWheel = timerWheel;
+        this.interval = interval;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Set the desired state of a beamer, and reconcile it soon if running.
+     *
+     * @param sessionId Session ID of the beamer.
+     * @param desiredState Desired state.
+     */
+    public void setDesiredState(String sessionId, DesiredState desiredState) {
+        // Replace the target
+        final Target target = new Target(sessionId, desiredState);
+        final Target previous = this.targets.put(sessionId, target);
+        if(previous != null)
+            previous.cancel();
+
+        // Reconcile the new target
+        if(this.running)
+            schedule(target, 0);
+    }
+
+    /**
+     * Get the desired state of a beamer.
+     *
+     * @param sessionId Session ID of the beamer.
+     *
+     * @return Desired state, or null if the beamer has no desired state.
+     */
+    public DesiredState getDesiredState(String sessionId) {
+        final Target target = this.targets.get(sessionId);
+        return target != null ? target.desiredState : null;
+    }
+
+    /**
+     * Stop reconciling a beamer.
+     *
+     * @param sessionId Session ID of the beamer.
+     */
+    public void removeDesiredState(String sessionId) {
+        final Target target = this.targets.remove(sessionId);
+        if(target != null)
+            target.cancel();
+    }
+
+    /**
+     * Get the number of write commands sent to converge beamers.
+     *
+     * @return Number of writes.
+     */
+    public long getWriteCount() {
+        return this.writeCount.sum();
+    }
+
+    /**
+     * Get the number of times an attribute failed to converge in a pass, after all attempts.
+     *
+     * @return Number of failures.
+     */
+    public long getFailureCount() {
+        return this.failureCount.sum();
+    }
+
+    /**
+     * Start reconciling all beamers with a desired state continuously.
+     * The first passes are spread evenly over the interval, and beamers that drift from their desired state are reconciled immediately.
+     */
+    public synchronized void start() {
+        this.running = true;
+
+        // Reconcile beamers as soon as they drift
+        this.subscription = this.sessionManager.getEventBus().subscribe(this::onStateChange);
+
+        // Spread the first passes over the interval, reconciling the first beamer immediately
+        final List<Target> targets = new ArrayList<>(this.targets.values());
+        for(int i = 0; i < targets.size(); i++)
+            schedule(targets.get(i), (long) this.interval * i / targets.size());
+    }
+
+    /**
+     * Stop reconciling.
+     */
+    public synchronized void stop() {
+        this.running = false;
+        if(this.subscription != null)
+            this.subscription.unsubscribe();
+        for(Target target : this.targets.values())
+            target.cancel();
+    }
+
+    /**
+     * Reconcile a beamer soon if an attribute changed away from its desired value.
+     *
+     * @param event State change event.
+     */
+    private void onStateChange(StateChangeEvent event) {
+        // Find the desired value
+        final Target target = this.targets.get(event.getSessionId());
+        if(target == null)
+            return;
+        final String desired = target.desiredState.getValue(event.getAttribute().getKey());
+
+        // Reconcile if drifted, unless a pass is in progress
+        if(desired != null && !desired.equalsIgnoreCase(event.getNewValue()) && !target.reconciling && target.cancel())
+            schedule(target, 0);
+    }
+
+    /**
+     * Schedule a reconcile pass of a beamer.
+     *
+     * @param target Beamer to reconcile.
+     * @param delay Delay in milliseconds.
+     */
+    private void schedule(Target target, long delay) {
+        if(!this.running || this.targets.get(target.sessionId) != target)
+            return;
+        target.timeout = this.timerWheel.schedule(() -> reconcile(target), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run a reconcile pass on a beamer, converging its attributes one by one in their order, and schedule the next pass.
+     *
+     * @param target Beamer to reconcile.
+     */
+    private void reconcile(Target target) {
+        // Skip sessions that are gone or not open, and check them again in the next pass
+        final BeamerSession session = this.sessionManager.getSession(target.sessionId);
+        if(session == null || session.getState() != SessionState.OPEN) {
+            scheduleNext(target);
+            return;
+        }
+
+        // Converge each attribute after the previous one, only converging the power if the beamer should be off
+        target.reconciling = true;
+        CompletableFuture<Void> pass = CompletableFuture.completedFuture(null);
+        for(Map.Entry<String, String> entry : target.desiredState.getValues().entrySet()) {
+            if(target.desiredState.isPowerOff() && !entry.getKey().equals(StateAttribute.POWER.getKey()))
+                continue;
+            pass = pass.thenCompose(result -> converge(session, entry.getKey(), entry.getValue(), 1));
+        }
+
+        // Schedule the next pass when done
+        pass.whenComplete((result, throwable) -> {
+            target.reconciling = false;
+            scheduleNext(target);
+        });
+    }
+
+    /**
+     * Schedule the next reconcile pass of a beamer after the interval, with some jitter.
+     *
+     * @param target Beamer to reconcile.
+     */
+    private void scheduleNext(Target target) {
+        schedule(target, this.interval / 2 + ThreadLocalRandom.current().nextInt(this.interval));
+    }
+
+    /**
+     * Converge an attribute to its desired value.
+     * The current value is read, served from the state cache when fresh, and the write command is only sent if it differs.
+     * Failed attempts are retried after a growing delay.
+     *
+     * @param session Session of the beamer.
+     * @param key Command key of the attribute.
+     * @param value Desired value.
+     * @param attempt Number of this attempt, starting at 1.
+     *
+     * @return Future completing when converged, or when all attempts failed.
+     */
+    private CompletableFuture<Void> converge(BeamerSession session, String key, String value, int attempt) {
+        // Find the commands to read and set the attribute
+        final CommandManager commandManager = session.getBeamer().getCommandManager();
+        final Command writeCommand = commandManager.getWriteCommand(key, value);
+        if(writeCommand == null) {
+            System.out.println("Can't reconcile " + session.getId() + ": no command sets " + key + " to " + value);
+            return CompletableFuture.completedFuture(null);
+        }
+        final Command readCommand = commandManager.getReadCommand(key);
+
+        // Read the current value, and write the desired value if it differs
+        final CompletableFuture<Response> current = readCommand != null ? session.submit(readCommand, CommandPriority.AUTOMATION) : CompletableFuture.completedFuture(null);
+        final CompletableFuture<Response> converged = current.thenCompose(response -> {
+            if(response != null && response.is(writeCommand.getStateValue()))
+                return CompletableFuture.completedFuture(response);
+            this.writeCount.increment();
+            return session.submit(writeCommand, CommandPriority.AUTOMATION);
+        });
+
+        // Retry on failure, after a delay growing with each attempt
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        converged.whenComplete((response, throwable) -> {
+            if(throwable == null)
+                result.complete(null);
+            else if(attempt < this.maxAttempts && this.running)
+                this.timerWheel.schedule(
+                        () -> converge(session, key, value, attempt + 1).whenComplete((retried, retryThrowable) -> result.complete(null)),
+                        (long) this.retryDelay * attempt,
+                        TimeUnit.MILLISECONDS
+                );
+            else {
+                this.failureCount.increment();
+                final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                System.out.println("Failed to reconcile " + key + " of " + session.getId() + " to " + value + ": " + cause.getMessage());
+                result.complete(null);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Desired state of a beamer, and its reconcile schedule.
+     */
+    private static class Target {
+
+        /**
+         * Session ID of the beamer.
+         */
+        final String sessionId;
+
+        /**
+         * Desired state.
+         */
+        final DesiredState desiredState;
+
+        /**
+         * True while a reconcile pass is in progress.
+         */
+        volatile boolean reconciling;
+
+        /**
+         * Timeout of the next pass, or null if not scheduled.
+         */
+        volatile TimerWheel.Timeout timeout;
+
+        /**
+         * Constructor.
+         *
+         * @param sessionId Session ID of the beamer.
+         * @param desiredState Desired state.
+         */
+        Target(String sessionId, DesiredState desiredState) {
+            this.sessionId = sessionId;
+            this.desiredState = desiredState;
+        }
+
+        /**
+         * Cancel the next pass.
+         *
+         * @return True if a scheduled pass was cancelled, false if none was scheduled.
+         */
+        boolean cancel() {
+            final TimerWheel.Timeout timeout = this.timeout;
+            return timeout != null && timeout.cancel();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.timing;
+
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.executor.CommandExecutor;
+import com.timvisee.beamercontroller.beamer.executor.RateLimiter;
+import com.timvisee.beamercontroller.beamer.response.Response;
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class GapCalibrator {
+
+    /**
+     * Default largest gap in milliseconds to search, which the device must answer reliably at.
+     */
+    public static final int DEFAULT_MAX_GAP = 500;
+
+    /**
+     * Default resolution of the search in milliseconds.
+     */
+    public static final int DEFAULT_RESOLUTION = 5;
+
+    /**
+     * Default number of read commands sent for each tested gap.
+     */
+    public static final int DEFAULT_ROUNDS = 20;
+
+    /**
+     * Default margin in percent added to the shortest reliable gap.
+     */
+    public static final int DEFAULT_MARGIN = 20;
+
+    /**
+     * Session of the device to calibrate.
+     */
+    private final BeamerSession session;
+
+    /**
+     * Largest gap in milliseconds to search.
+     */
+    private int maxGap = DEFAULT_MAX_GAP;
+
+    /**
+     * Resolution of the search in milliseconds.
+     */
+    private int resolution = DEFAULT_RESOLUTION;
+
+    /**
+     * Number of read commands sent for each tested gap.
+     */
+    private int rounds = DEFAULT_ROUNDS;
+
+    /**
+     * Margin in percent added to the shortest reliable gap.
+     */
+    private int margin = DEFAULT_MARGIN;
+
+    /**
+     * Constructor.
+     *
+     * @param session Open session of the device to calibrate.
+     */
+    public GapCalibrator(BeamerSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Set the largest gap to search, which the device must answer reliably at.
+     *
+     * @param maxGap Maximum gap in milliseconds.
+     */
+    public void setMaxGap(int maxGap) {
+        this.maxGap = maxGap;
+    }
+
+    /**
+     * Set the resolution of the search.
+     *
+     * @param resolution Resolution in milliseconds.
+     */
+    public void setResolution(int resolution) {
+        this.resolution = Math.max(resolution, 1);
+    }
+
+    /**
+     * Set the number of read commands sent for each tested gap.
+     *
+     * @param rounds Number of commands.
+     */
+    public void setRounds(int rounds) {
+        this.rounds = Math.max(rounds, 1);
+    }
+
+    /**
+     * Set the margin added to the shortest reliable gap.
+     *
+     * @param margin Margin in percent.
+     */
+    public void setMargin(int margin) {
+        this.margin = Math.max(margin, 0);
+    }
+
+    /**
+     * Calibrate the device by binary searching the shortest gap between commands at which it answers all read commands.
+     * The rate limit of the beamer interface is lifted while calibrating, so only the gap is measured.
+     * The calibrated gap, including the margin, is applied to the session. This blocks until calibration is done.
+     *
+     * @return Calibrated timing profile of the device.
+     *
+     * @throws IOException Throws if the device doesn't answer reliably, even at the maximum gap.
+     * @throws InterruptedException Throws if interrupted while calibrating.
+     */
+    public TimingProfile calibrate() throws IOException, InterruptedException {
+        // Measure only the gap, without the rate limit of the interface
+        final CommandExecutor executor = this.session.getExecutor();
+        final RateLimiter rateLimiter = executor.getRateLimiter();
+        executor.setRateLimiter(new RateLimiter(0, 1, this.maxGap));
+        try {
+            // Find the read commands the device answers in its current state, some are rejected while it's off
+            final List<Command> commands = getAnsweredCommands(executor);
+            if(commands.isEmpty())
+                throw new IOException("device " + this.session.getId() + " doesn't answer any read command");
+
+            // The device must be reliable at the maximum gap
+            if(!isReliable(executor, commands, this.maxGap))
+                throw new IOException("device " + this.session.getId() + " isn't reliable at a gap of " + this.maxGap + " ms");
+
+            // Binary search the shortest reliable gap, between an unreliable lower and a reliable upper bound
+            int lower = -1;
+            int upper = this.maxGap;
+            while(upper - lower > this.resolution) {
+                final int gap = lower < 0 ? 0 : (lower + upper) / 2;
+                if(isReliable(executor, commands, gap))
+                    upper = gap;
+                else
+                    lower = gap;
+            }
+
+            // Add the margin, and apply the calibrated gap to the original rate limiter
+            final int minimumGap = upper + (upper * this.margin + 99) / 100;
+            rateLimiter.setMinimumGap(minimumGap);
+            return new TimingProfile(this.session.getId(), minimumGap, System.currentTimeMillis());
+
+        } finally {
+            // Restore the original rate limiter
+            executor.setRateLimiter(rateLimiter);
+        }
+    }
+
+    /**
+     * Get the read commands the device answers at the maximum gap.
+     *
+     * @param executor Command executor of the device.
+     *
+     * @return Answered read commands.
+     *
+     * @throws InterruptedException Throws if interrupted.
+     */
+    private List<Command> getAnsweredCommands(CommandExecutor executor) throws InterruptedException {
+        executor.setMinimumGap(this.maxGap);
+        final List<Command> commands = new ArrayList<>();
+        for(Command command : this.session.getBeamer().getCommandManager().getCommands())
+            if(command.getCommandType() == CommandType.READ && isAnswered(executor.submit(command)))
+                commands.add(command);
+        return commands;
+    }
+
+    /**
+     * Check whether the device answers a burst of read commands at the given gap.
+     *
+     * @param executor Command executor of the device.
+     * @param commands Read commands to send, in turn.
+     * @param gap Gap in milliseconds.
+     *
+     * @return True if all commands were answered, false if not.
+     *
+     * @throws InterruptedException Throws if interrupted.
+     */
+    private boolean isReliable(CommandExecutor executor, List<Command> commands, int gap) throws InterruptedException {
+        // Let the device settle after the previous burst
+        Thread.sleep(this.maxGap);
+
+        // Send the burst at the given gap
+        executor.setMinimumGap(gap);
+        final List<CompletableFuture<Response>> futures = new ArrayList<>(this.rounds);
+        for(int i = 0; i < this.rounds; i++)
+            futures.add(executor.submit(commands.get(i % commands.size())));
+
+        // All commands must be answered
+        boolean reliable = true;
+        for(CompletableFuture<Response> future : futures)
+            reliable &= isAnswered(future);
+        return reliable;
+    }
+
+    /**
+     * Wait for a command to complete, and check whether it was answered.
+     *
+     * @param future Command future.
+     *
+     * @return True if answered, false if it failed.
+     *
+     * @throws InterruptedException Throws if interrupted.
+     */
+    private static boolean isAnswered(CompletableFuture<Response> future) throws InterruptedException {
+        try {
+            future.get();
+            return true;
+        } catch(ExecutionException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.timing;
+
+import com.timvisee.beamercontroller.util.DirectoryUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+public class TimingProfile {
+
+    /**
+     * Name of the directory timing profiles are saved in, inside the application directory.
+     */
+    public static final String DIRECTORY_NAME = "timing";
+
+    /**
+     * Property key of the minimum gap.
+     */
+    private static final String PROPERTY_MINIMUM_GAP = "minimumGap";
+
+    /**
+     * Property key of the calibration time.
+     */
+    private static final String PROPERTY_CALIBRATED_AT = "calibratedAt";
+
+    /**
+     * Device ID.
+     */
+    private final String deviceId;
+
+    /**
+     * Minimum time in milliseconds between two commands at which the device answers reliably.
+     */
+    private final int minimumGap;
+
+    /**
+     * Time in milliseconds since the epoch the device was calibrated at.
+     */
+    private final long calibratedAt;
+
+    /**
+     * Constructor.
+     *
+     * @param deviceId Device ID.
+     * @param minimumGap Minimum gap in milliseconds.
+     * @param calibratedAt Time in milliseconds since the epoch the device was calibrated at.
+     */
+    public TimingProfile(String deviceId, int minimumGap, long calibratedAt) {
+        this.deviceId = deviceId;
+        this.minimumGap = minimumGap;
+        this.calibratedAt = calibratedAt;
+    }
+
+    /**
+     * Get the device ID.
+     *
+     * @return Device ID.
+     */
+    public String getDeviceId() {
+        return this.deviceId;
+    }
+
+    /**
+     * Get the minimum time between two commands at which the device answers reliably.
+     *
+     * @return Minimum gap in milliseconds.
+     */
+    public int getMinimumGap() {
+        return this.minimumGap;
+    }
+
+    /**
+     * Get the time the device was calibrated at.
+     *
+     * @return Time in milliseconds since the epoch.
+     */
+    public long getCalibratedAt() {
+        return this.calibratedAt;
+    }
+
+    /**
+     * Save this timing profile in the application directory.
+     *
+     * @throws IOException Throws if saving failed.
+     */
+    public void save() throws IOException {
+        // Make sure the directory exists
+        final File file = getFile(this.deviceId);
+        if(!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs())
+            throw new IOException("failed to create directory " + file.getParentFile().getAbsolutePath());
+
+        // Write the properties
+        final Properties properties = new Properties();
+        properties.setProperty(PROPERTY_MINIMUM_GAP, String.valueOf(this.minimumGap));
+        properties.setProperty(PROPERTY_CALIBRATED_AT, String.valueOf(this.calibratedAt));
+        try(OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "Calibrated command timing of " + this.deviceId);
+        }
+    }
+
+    /**
+     * Load the saved timing profile of a device.
+     *
+     * @param deviceId Device ID.
+     *
+     * @return Timing profile, or null if the device wasn't calibrated or its profile couldn't be read.
+     */
+    public static TimingProfile load(String deviceId) {
+        // The device must have been calibrated
+        final File file = getFile(deviceId);
+        if(!file.isFile())
+            return null;
+
+        // Read the properties
+        final Properties properties = new Properties();
+        try(InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+            return new TimingProfile(
+                    deviceId,
+                    Integer.parseInt(properties.getProperty(PROPERTY_MINIMUM_GAP, "").trim()),
+                    Long.parseLong(properties.getProperty(PROPERTY_CALIBRATED_AT, "0").trim())
+            );
+
+        } catch(IOException | NumberFormatException e) {
+            System.out.println("Failed to load timing profile " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get the file the timing profile of a device is saved in.
+     *
+     * @param deviceId Device ID.
+     *
+     * @return Timing profile file.
+     */
+    public static File getFile(String deviceId) {
+        return new File(new File(DirectoryUtils.getApplicationDirectory(), DIRECTORY_NAME), deviceId.replaceAll("[^A-Za-z0-9_.-]", "_") + ".properties");
+    }
+
+    @Override
+    public String toString() {
+        return this.deviceId + ": " + this.minimumGap + " ms";
+    }
+}
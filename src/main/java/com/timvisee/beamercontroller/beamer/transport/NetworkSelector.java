@@ -0,0 +1,166 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class NetworkSelector implements Runnable {
+
+    /**
+     * Size of the buffer data is received in.
+     */
+    private static final int RECEIVE_BUFFER_SIZE = 8192;
+
+    /**
+     * Default selector instance, shared by all network transports.
+     */
+    private static NetworkSelector defaultSelector;
+
+    /**
+     * NIO selector, multiplexing all connections.
+     */
+    private final Selector selector;
+
+    /**
+     * Tasks to run on the selector thread, such as registering channels and updating interests.
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Buffer data is received in.
+     * This buffer is only used on the selector thread.
+     */
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(RECEIVE_BUFFER_SIZE);
+
+    /**
+     * Selector thread.
+     */
+    private final Thread thread;
+
+    /**
+     * Constructor.
+     * This starts the selector thread.
+     *
+     * @param name Name of the selector thread.
+     *
+     * @throws IOException Throws if the selector couldn't be opened.
+     */
+    public NetworkSelector(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Get the default selector, shared by all network transports.
+     * The selector is started when it's first requested.
+     *
+     * @return Default selector.
+     *
+     * @throws IOException Throws if the selector couldn't be opened.
+     */
+    public static synchronized NetworkSelector getDefault() throws IOException {
+        if(defaultSelector == null)
+            defaultSelector = new NetworkSelector("beamer-network-selector");
+        return defaultSelector;
+    }
+
+    /**
+     * Run a task on the selector thread.
+     *
+     * @param task Task to run.
+     */
+    void execute(Runnable task) {
+        this.tasks.add(task);
+        this.selector.wakeup();
+    }
+
+    /**
+     * Check whether the current thread is the selector thread.
+     *
+     * @return True if on the selector thread, false if not.
+     */
+    boolean inSelectorThread() {
+        return Thread.currentThread() == this.thread;
+    }
+
+    /**
+     * Register a channel with this selector.
+     * Must be called on the selector thread.
+     *
+     * @param channel Non-blocking channel to register.
+     * @param interestOps Initial interest operations.
+     * @param transport Transport handling the events of the channel.
+     *
+     * @return Selection key.
+     *
+     * @throws ClosedChannelException Throws if the channel is closed.
+     */
+    SelectionKey register(SocketChannel channel, int interestOps, NetworkTransport transport) throws ClosedChannelException {
+        return channel.register(this.selector, interestOps, transport);
+    }
+
+    @Override
+    public void run() {
+        while(this.selector.isOpen()) {
+            try {
+                // Run the pending tasks
+                Runnable task;
+                while((task = this.tasks.poll()) != null)
+                    task.run();
+
+                // Wait for events
+                this.selector.select();
+
+                // Handle the events of each ready channel
+                for(SelectionKey key : this.selector.selectedKeys()) {
+                    final NetworkTransport transport = (NetworkTransport) key.attachment();
+                    try {
+                        if(!key.isValid())
+                            continue;
+                        if(key.isConnectable())
+                            transport.onConnectable();
+                        if(key.isValid() && key.isReadable())
+                            transport.onReadable(this.receiveBuffer);
+                        if(key.isValid() && key.isWritable())
+                            transport.onWritable();
+
+                    } catch(IOException e) {
+                        transport.onFailure(e);
+                    }
+                }
+                this.selector.selectedKeys().clear();
+
+            } catch(IOException | RuntimeException e) {
+                System.out.println("Error in network selector: " + e);
+            }
+        }
+    }
+}
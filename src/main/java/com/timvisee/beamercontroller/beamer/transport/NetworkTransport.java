@@ -0,0 +1,395 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class NetworkTransport implements Transport {
+
+    /**
+     * Default time in milliseconds to wait for a connection.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+
+    /**
+     * Shared scheduler used to enforce connect timeouts.
+     */
+    private static final ScheduledThreadPoolExecutor CONNECT_TIMEOUT_SCHEDULER;
+
+    static {
+        CONNECT_TIMEOUT_SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "beamer-connect-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CONNECT_TIMEOUT_SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Host to connect to.
+     */
+    private final String host;
+
+    /**
+     * TCP port to connect to.
+     */
+    private final int port;
+
+    /**
+     * Time in milliseconds to wait for a connection.
+     */
+    private final int connectTimeout;
+
+    /**
+     * Selector multiplexing the connection, or null to use the default selector.
+     */
+    private NetworkSelector selector;
+
+    /**
+     * Receiver for incoming data, or null.
+     */
+    private volatile TransportReceiver receiver;
+
+    /**
+     * True if the transport is opened, and should stay connected.
+     */
+    private volatile boolean opened = false;
+
+    /**
+     * Current connection channel, or null if not connected.
+     */
+    private volatile SocketChannel channel;
+
+    /**
+     * Selection key of the current channel.
+     * Only used on the selector thread.
+     */
+    private SelectionKey key;
+
+    /**
+     * Future completing when the current channel is connected.
+     */
+    private volatile CompletableFuture<Void> connected;
+
+    /**
+     * Data that couldn't be written yet without blocking, in order.
+     * All writes synchronize on this queue.
+     */
+    private final Queue<ByteBuffer> pending = new ArrayDeque<>();
+
+    /**
+     * Constructor.
+     * The transport uses the default selector.
+     *
+     * @param host Host to connect to.
+     * @param port TCP port to connect to.
+     */
+    public NetworkTransport(String host, int port) {
+        this(host, port, null, DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param host Host to connect to.
+     * @param port TCP port to connect to.
+     * @param selector Selector to multiplex the connection on, or null to use the default selector.
+     * @param connectTimeout Time in milliseconds to wait for a connection.
+     */
+    public NetworkTransport(String host, int port, NetworkSelector selector, int connectTimeout) {
+        this.host = host;
+        this.port = port;
+        this.selector = selector;
+        this.connectTimeout = connectTimeout;
+    }
+
+    @Override
+    public String getName() {
+        return this.host + ":" + this.port;
+    }
+
+    @Override
+    public void open() throws IOException {
+        // Use the default selector if none is set, and start connecting
+        final CompletableFuture<Void> connected;
+        synchronized(this) {
+            if(this.selector == null)
+                this.selector = NetworkSelector.getDefault();
+            this.opened = true;
+            connected = connect();
+        }
+
+        // Wait for the connection, outside the lock so writes and closing don't wait along
+        try {
+            connected.get();
+        } catch(ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException("failed to connect to " + getName(), e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while connecting to " + getName(), e);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.opened;
+    }
+
+    /**
+     * Check whether the transport is currently connected.
+     * An opened transport that lost its connection starts reconnecting on the next write.
+     *
+     * @return True if connected, false if not.
+     */
+    public boolean isConnected() {
+        final SocketChannel channel = this.channel;
+        return channel != null && channel.isConnected();
+    }
+
+    /**
+     * Start connecting a new channel on the selector, without waiting for the connection.
+     * If the channel is connected or still connecting already, no new channel is connected.
+     *
+     * @return Future completing when the channel is connected, or completing exceptionally if connecting failed or timed out.
+     *
+     * @throws IOException Throws if the channel couldn't be opened, or the host is unknown.
+     */
+    private synchronized CompletableFuture<Void> connect() throws IOException {
+        // Don't connect if connected or connecting already
+        if(isConnected() || (this.connected != null && !this.connected.isDone()))
+            return this.connected;
+
+        // Open a non-blocking channel
+        final SocketChannel channel = SocketChannel.open();
+        final CompletableFuture<Void> connected = new CompletableFuture<>();
+        this.channel = channel;
+        this.connected = connected;
+
+        try {
+            // Configure the channel, commands are small and should be sent immediately
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+
+            // Start connecting, and register the channel on the selector thread
+            final boolean immediate = channel.connect(new InetSocketAddress(this.host, this.port));
+            this.selector.execute(() -> {
+                try {
+                    this.key = this.selector.register(channel, immediate ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+                    if(immediate)
+                        connected.complete(null);
+                } catch(IOException e) {
+                    connected.completeExceptionally(e);
+                }
+            });
+
+        } catch(UnresolvedAddressException e) {
+            closeChannel(channel);
+            connected.completeExceptionally(new IOException("unknown host " + this.host, e));
+            throw new IOException("unknown host " + this.host, e);
+        } catch(IOException e) {
+            closeChannel(channel);
+            connected.completeExceptionally(e);
+            throw e;
+        }
+
+        // Enforce the connect timeout, and close the channel if connecting failed
+        final ScheduledFuture<?> timeout = CONNECT_TIMEOUT_SCHEDULER.schedule(
+                () -> connected.completeExceptionally(new IOException("timed out connecting to " + getName())),
+                this.connectTimeout,
+                TimeUnit.MILLISECONDS
+        );
+        connected.whenComplete((result, throwable) -> {
+            timeout.cancel(false);
+            if(throwable != null)
+                closeChannel(channel);
+        });
+
+        return connected;
+    }
+
+    @Override
+    public void write(byte[] data) throws IOException {
+        // Make sure the transport is opened
+        if(!this.opened)
+            throw new IOException("network transport " + getName() + " is not opened");
+
+        // Start reconnecting if the connection was lost, and fail right away rather than blocking the writing thread
+        if(!isConnected()) {
+            connect();
+            throw new IOException("not connected to " + getName() + ", reconnecting");
+        }
+        final SocketChannel channel = this.channel;
+
+        // Wrap the data, the buffer only moves its own position and doesn't modify the shared data
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        synchronized(this.pending) {
+            // Write directly if nothing is pending, this doesn't block
+            if(this.pending.isEmpty()) {
+                try {
+                    channel.write(buffer);
+                } catch(IOException e) {
+                    closeChannel(channel);
+                    throw new IOException("failed to write to " + getName(), e);
+                }
+                if(!buffer.hasRemaining())
+                    return;
+            }
+
+            // Queue the remainder, and write it when the channel is writable again
+            this.pending.add(buffer);
+            if(this.pending.size() == 1)
+                this.selector.execute(() -> setWriteInterest(true));
+        }
+    }
+
+    @Override
+    public void setReceiver(TransportReceiver receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.opened = false;
+        final SocketChannel channel = this.channel;
+        if(channel != null)
+            closeChannel(channel);
+    }
+
+    /**
+     * Finish connecting the channel.
+     * Called on the selector thread.
+     *
+     * @throws IOException Throws if connecting failed.
+     */
+    void onConnectable() throws IOException {
+        if(this.channel.finishConnect()) {
+            this.key.interestOps(SelectionKey.OP_READ);
+            this.connected.complete(null);
+        }
+    }
+
+    /**
+     * Read the available data, and pass it to the receiver.
+     * Called on the selector thread.
+     *
+     * @param buffer Buffer to read into, shared by all connections of the selector.
+     *
+     * @throws IOException Throws if reading failed.
+     */
+    void onReadable(ByteBuffer buffer) throws IOException {
+        // Read the available data
+        buffer.clear();
+        final int read = this.channel.read(buffer);
+        if(read < 0)
+            throw new EOFException("connection closed by " + getName());
+
+        // Pass it to the receiver
+        final TransportReceiver receiver = this.receiver;
+        if(read > 0 && receiver != null)
+            receiver.onReceive(buffer.array(), buffer.arrayOffset(), read);
+    }
+
+    /**
+     * Write the pending data.
+     * Called on the selector thread.
+     *
+     * @throws IOException Throws if writing failed.
+     */
+    void onWritable() throws IOException {
+        synchronized(this.pending) {
+            // Write pending buffers until the channel is full
+            ByteBuffer buffer;
+            while((buffer = this.pending.peek()) != null) {
+                this.channel.write(buffer);
+                if(buffer.hasRemaining())
+                    return;
+                this.pending.poll();
+            }
+
+            // Everything is written
+            setWriteInterest(false);
+        }
+    }
+
+    /**
+     * Handle a connection failure, the transport reconnects on the next write if it's still opened.
+     * Called on the selector thread.
+     *
+     * @param e Failure.
+     */
+    void onFailure(IOException e) {
+        // Fail a pending connection attempt
+        final CompletableFuture<Void> connected = this.connected;
+        if(connected != null && !connected.isDone()) {
+            connected.completeExceptionally(e);
+            return;
+        }
+
+        // Close the connection, failures after closing the transport are expected
+        if(this.opened)
+            System.out.println("Lost connection to " + getName() + ": " + e.getMessage());
+        closeChannel(this.channel);
+    }
+
+    /**
+     * Set whether the selector should report when the channel is writable.
+     * Called on the selector thread.
+     *
+     * @param write True to report writability, false to only report readability.
+     */
+    private void setWriteInterest(boolean write) {
+        if(this.key != null && this.key.isValid())
+            this.key.interestOps(write ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Close the given channel, and drop the data that was pending for it.
+     *
+     * @param channel Channel to close.
+     */
+    private void closeChannel(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch(IOException ignored) {}
+
+        synchronized(this.pending) {
+            if(this.channel == channel)
+                this.pending.clear();
+        }
+    }
+}
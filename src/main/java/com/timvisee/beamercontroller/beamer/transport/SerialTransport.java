@@ -0,0 +1,125 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.transport;
+
+import com.timvisee.beamercontroller.serial.SerialConfig;
+import jssc.SerialPort;
+import jssc.SerialPortException;
+
+import java.io.IOException;
+
+public class SerialTransport implements Transport {
+
+    /**
+     * Serial port instance.
+     */
+    private final SerialPort port;
+
+    /**
+     * Serial configuration to apply to the port when it's opened.
+     */
+    private final SerialConfig serialConfig;
+
+    /**
+     * Receiver for incoming data, or null.
+     */
+    private volatile TransportReceiver receiver;
+
+    /**
+     * Constructor.
+     *
+     * @param portName Name of the serial port.
+     * @param serialConfig Serial configuration to apply to the port.
+     */
+    public SerialTransport(String portName, SerialConfig serialConfig) {
+        this.port = new SerialPort(portName);
+        this.serialConfig = serialConfig;
+    }
+
+    @Override
+    public String getName() {
+        return this.port.getPortName();
+    }
+
+    @Override
+    public void open() throws IOException {
+        try {
+            // Open the serial port, and apply the serial configuration
+            this.port.openPort();
+            this.serialConfig.applyToPort(this.port);
+
+            // Forward received data to the receiver
+            this.port.addEventListener(event -> {
+                if(event.isRXCHAR() && event.getEventValue() > 0) {
+                    try {
+                        // Read the available data
+                        final byte[] data = this.port.readBytes(event.getEventValue());
+
+                        // Pass it to the receiver if there is any
+                        final TransportReceiver receiver = this.receiver;
+                        if(data != null && receiver != null)
+                            receiver.onReceive(data, 0, data.length);
+
+                    } catch(SerialPortException e) {
+                        System.out.println("Error in receiving data from serial port: " + e);
+                    }
+                }
+            }, SerialPort.MASK_RXCHAR);
+
+        } catch(SerialPortException e) {
+            throw new IOException("failed to open serial port " + getName(), e);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.port.isOpened();
+    }
+
+    @Override
+    public void write(byte[] data) throws IOException {
+        try {
+            this.port.writeBytes(data);
+        } catch(SerialPortException e) {
+            throw new IOException("failed to write to serial port " + getName(), e);
+        }
+    }
+
+    @Override
+    public void setReceiver(TransportReceiver receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Don't close if the port isn't opened
+        if(!this.port.isOpened())
+            return;
+
+        try {
+            this.port.removeEventListener();
+            this.port.closePort();
+        } catch(SerialPortException e) {
+            throw new IOException("failed to close serial port " + getName(), e);
+        }
+    }
+}
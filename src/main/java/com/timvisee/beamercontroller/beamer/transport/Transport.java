@@ -0,0 +1,72 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.transport;
+
+import java.io.IOException;
+
+public interface Transport {
+
+    /**
+     * Get the name of the transport, such as the name of the serial port.
+     *
+     * @return Transport name.
+     */
+    String getName();
+
+    /**
+     * Open the transport, and configure it to be ready for use.
+     *
+     * @throws IOException Throws if opening the transport failed.
+     */
+    void open() throws IOException;
+
+    /**
+     * Check whether the transport is opened.
+     *
+     * @return True if opened, false if not.
+     */
+    boolean isOpen();
+
+    /**
+     * Write the given bytes to the transport.
+     * The given data may be shared, and must not be modified.
+     *
+     * @param data Data to write.
+     *
+     * @throws IOException Throws if writing failed.
+     */
+    void write(byte[] data) throws IOException;
+
+    /**
+     * Set the receiver that is called for all data received through this transport.
+     *
+     * @param receiver Transport receiver, or null to drop received data.
+     */
+    void setReceiver(TransportReceiver receiver);
+
+    /**
+     * Close the transport.
+     *
+     * @throws IOException Throws if closing the transport failed.
+     */
+    void close() throws IOException;
+}
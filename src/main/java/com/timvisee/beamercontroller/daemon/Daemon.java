@@ -0,0 +1,770 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.daemon;
+
+import com.timvisee.beamercontroller.api.ApiServer;
+import com.timvisee.beamercontroller.beamer.Beamer;
+import com.timvisee.beamercontroller.beamer.BeamerManager;
+import com.timvisee.beamercontroller.beamer.broadcast.Broadcaster;
+import com.timvisee.beamercontroller.beamer.circuit.CircuitBreaker;
+import com.timvisee.beamercontroller.beamer.command.Command;
+import com.timvisee.beamercontroller.beamer.command.CommandType;
+import com.timvisee.beamercontroller.beamer.iface.BeamerInterface;
+import com.timvisee.beamercontroller.beamer.iface.InterfaceType;
+import com.timvisee.beamercontroller.beamer.iface.NetworkBeamerInterface;
+import com.timvisee.beamercontroller.beamer.iface.SerialBeamerInterface;
+import com.timvisee.beamercontroller.beamer.poll.StatusPoller;
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
+import com.timvisee.beamercontroller.beamer.session.SessionManager;
+import com.timvisee.beamercontroller.beamer.session.SessionState;
+import com.timvisee.beamercontroller.beamer.state.DesiredState;
+import com.timvisee.beamercontroller.beamer.state.StateReconciler;
+import com.timvisee.beamercontroller.beamer.timing.GapCalibrator;
+import com.timvisee.beamercontroller.beamer.timing.TimingProfile;
+import com.timvisee.beamercontroller.beamer.transport.NetworkTransport;
+import com.timvisee.beamercontroller.beamer.transport.SerialTransport;
+import com.timvisee.beamercontroller.emulator.BeamerEmulator;
+import com.timvisee.beamercontroller.emulator.EmulatorConfig;
+import com.timvisee.beamercontroller.emulator.EmulatorTransport;
+import com.timvisee.beamercontroller.serial.BaudRateType;
+import com.timvisee.beamercontroller.serial.SerialConfig;
+import com.timvisee.beamercontroller.util.DirectoryUtils;
+import com.timvisee.beamercontroller.util.TimerWheel;
+import com.timvisee.yamlwrapper.ConfigurationSection;
+import com.timvisee.yamlwrapper.YamlConfiguration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class Daemon {
+
+    /**
+     * Name of the default daemon configuration file, in the application directory.
+     */
+    public static final String CONFIG_FILE_NAME = "daemon.yml";
+
+    /**
+     * Configuration section key for the devices.
+     */
+    private static final String CONFIG_DEVICES_SECTION = "devices";
+
+    /**
+     * Configuration key for the number of worker threads shared by all devices.
+     */
+    private static final String CONFIG_WORKERS_KEY = "workers";
+
+    /**
+     * Configuration key for the maximum number of devices a broadcast command is in flight on at the same time.
+     */
+    private static final String CONFIG_BROADCAST_CONCURRENCY_KEY = "broadcastConcurrency";
+
+    /**
+     * Configuration key to skip write commands that wouldn't change the cached state, for all devices or a single device.
+     */
+    private static final String CONFIG_DEDUPLICATE_WRITES_KEY = "deduplicateWrites";
+
+    /**
+     * Device configuration key for the beamer type ID.
+     */
+    private static final String CONFIG_DEVICE_BEAMER_KEY = "beamer";
+
+    /**
+     * Device configuration key for the host of a beamer controlled over the network.
+     */
+    private static final String CONFIG_DEVICE_HOST_KEY = "host";
+
+    /**
+     * Device configuration key for the serial port name, or the TCP port for network devices.
+     */
+    private static final String CONFIG_DEVICE_PORT_KEY = "port";
+
+    /**
+     * Device configuration key for a custom baud rate.
+     */
+    private static final String CONFIG_DEVICE_BAUD_KEY = "baud";
+
+    /**
+     * Device configuration section key for an emulated beamer, used instead of a real device.
+     */
+    private static final String CONFIG_DEVICE_EMULATOR_SECTION = "emulator";
+
+    /**
+     * Device configuration key for the comma separated groups the device is part of.
+     */
+    private static final String CONFIG_DEVICE_GROUP_KEY = "group";
+
+    /**
+     * Prefix of a group name on the standard input, to broadcast a command to the group.
+     */
+    private static final String GROUP_PREFIX = "@";
+
+    /**
+     * Configuration section key for the HTTP API.
+     */
+    private static final String CONFIG_API_SECTION = "api";
+
+    /**
+     * HTTP API configuration key for whether the API is enabled.
+     */
+    private static final String CONFIG_API_ENABLED_KEY = "enabled";
+
+    /**
+     * HTTP API configuration key for the host to bind to.
+     */
+    private static final String CONFIG_API_HOST_KEY = "host";
+
+    /**
+     * HTTP API configuration key for the port to bind to.
+     */
+    private static final String CONFIG_API_PORT_KEY = "port";
+
+    /**
+     * Default host the HTTP API binds to.
+     */
+    private static final String DEFAULT_API_HOST = "127.0.0.1";
+
+    /**
+     * Default port the HTTP API binds to.
+     */
+    private static final int DEFAULT_API_PORT = 8080;
+
+    /**
+     * Status poller configuration section key.
+     */
+    private static final String CONFIG_POLLER_SECTION = "poller";
+
+    /**
+     * Status poller configuration key to enable polling.
+     */
+    private static final String CONFIG_POLLER_ENABLED_KEY = "enabled";
+
+    /**
+     * Status poller configuration key for the interval right after a state change, in milliseconds.
+     */
+    private static final String CONFIG_POLLER_MIN_INTERVAL_KEY = "minInterval";
+
+    /**
+     * Status poller configuration key for the interval of idle devices, in milliseconds.
+     */
+    private static final String CONFIG_POLLER_MAX_INTERVAL_KEY = "maxInterval";
+
+    /**
+     * Device configuration section key for the desired state of the beamer.
+     */
+    private static final String CONFIG_DEVICE_DESIRED_SECTION = "desired";
+
+    /**
+     * Device configuration key to calibrate the command gap of the device, if it wasn't calibrated before.
+     */
+    private static final String CONFIG_DEVICE_CALIBRATE_KEY = "calibrate";
+
+    /**
+     * State reconciler configuration section key.
+     */
+    private static final String CONFIG_RECONCILER_SECTION = "reconciler";
+
+    /**
+     * State reconciler configuration key to enable reconciling.
+     */
+    private static final String CONFIG_RECONCILER_ENABLED_KEY = "enabled";
+
+    /**
+     * State reconciler configuration key for the interval between passes, in milliseconds.
+     */
+    private static final String CONFIG_RECONCILER_INTERVAL_KEY = "interval";
+
+    /**
+     * State reconciler configuration key for the number of attempts to converge an attribute.
+     */
+    private static final String CONFIG_RECONCILER_ATTEMPTS_KEY = "attempts";
+
+    /**
+     * State reconciler configuration key for the delay before the first retry, in milliseconds.
+     */
+    private static final String CONFIG_RECONCILER_RETRY_DELAY_KEY = "retryDelay";
+
+    /**
+     * Circuit breaker configuration section key.
+     */
+    private static final String CONFIG_CIRCUIT_BREAKER_SECTION = "circuitBreaker";
+
+    /**
+     * Circuit breaker configuration key for the number of consecutive failures after which a circuit opens.
+     */
+    private static final String CONFIG_CIRCUIT_BREAKER_FAILURE_THRESHOLD_KEY = "failureThreshold";
+
+    /**
+     * Circuit breaker configuration key for the time a circuit stays open before it's probed, in milliseconds.
+     */
+    private static final String CONFIG_CIRCUIT_BREAKER_OPEN_TIME_KEY = "openTime";
+
+    /**
+     * Circuit breaker configuration key for the maximum time a circuit stays open after failed probes, in milliseconds.
+     */
+    private static final String CONFIG_CIRCUIT_BREAKER_MAX_OPEN_TIME_KEY = "maxOpenTime";
+
+    /**
+     * Beamer manager.
+     */
+    private final BeamerManager beamerManager = new BeamerManager();
+
+    /**
+     * Session manager holding a session for each device, or null if the daemon isn't started.
+     */
+    private SessionManager sessionManager;
+
+    /**
+     * Latch that is released when the daemon is stopped.
+     */
+    private final CountDownLatch stopLatch = new CountDownLatch(1);
+
+    /**
+     * HTTP API server, or null if the API isn't enabled.
+     */
+    private ApiServer apiServer;
+
+    /**
+     * Timer wheel the daemon schedules periodic tasks on, or null if not started.
+     */
+    private TimerWheel timerWheel;
+
+    /**
+     * Status poller, or null if not started.
+     */
+    private StatusPoller statusPoller;
+
+    /**
+     * State reconciler, or null if not started.
+     */
+    private StateReconciler stateReconciler;
+
+    /**
+     * Constructor.
+     */
+    public Daemon() {}
+
+    /**
+     * Get the default daemon configuration file.
+     *
+     * @return Default configuration file.
+     */
+    public static File getDefaultConfigFile() {
+        return new File(DirectoryUtils.getApplicationDirectory(), CONFIG_FILE_NAME);
+    }
+
+    /**
+     * Get the beamer manager.
+     *
+     * @return Beamer manager.
+     */
+    public BeamerManager getBeamerManager() {
+        return this.beamerManager;
+    }
+
+    /**
+     * Get the session manager, holding a session for each device.
+     *
+     * @return Session manager, or null if the daemon isn't started.
+     */
+    public SessionManager getSessionManager() {
+        return this.sessionManager;
+    }
+
+    /**
+     * Start the daemon, opening all devices configured in the given configuration file.
+     * Devices that fail to open are reported, and skipped.
+     *
+     * @param configFile Daemon configuration file.
+     *
+     * @throws IOException Throws if the configuration file couldn't be loaded.
+     */
+    public void start(File configFile) throws IOException {
+        // Load the beamer types
+        this.beamerManager.load();
+
+        // Load the daemon configuration
+        System.out.println("Loading daemon configuration: " + configFile.getAbsolutePath());
+        final YamlConfiguration config;
+        try(InputStream in = new FileInputStream(configFile)) {
+            config = YamlConfiguration.loadFromStream(in);
+        }
+
+        // Make sure devices are configured
+        if(config == null || !config.isConfigurationSection(CONFIG_DEVICES_SECTION))
+            throw new IOException("no devices configured in " + configFile.getAbsolutePath());
+
+        // Create the session manager, with a bounded number of workers shared by all devices
+        this.sessionManager = new SessionManager(
+                config.getInt(CONFIG_WORKERS_KEY, SessionManager.DEFAULT_WORKER_COUNT),
+                config.getInt(CONFIG_BROADCAST_CONCURRENCY_KEY, Broadcaster.DEFAULT_CONCURRENCY)
+        );
+
+        // Create a session for each configured device
+        final ConfigurationSection devicesSection = config.getConfigurationSection(CONFIG_DEVICES_SECTION);
+        final boolean deduplicateWrites = config.getBoolean(CONFIG_DEDUPLICATE_WRITES_KEY, false);
+        for(String deviceId : devicesSection.getKeys("")) {
+            try {
+                createSession(deviceId, devicesSection.getConfigurationSection(deviceId), deduplicateWrites);
+            } catch(RuntimeException e) {
+                System.out.println("Failed to create device " + deviceId + ": " + e.getMessage());
+            }
+        }
+
+        // Configure the circuit breakers of all devices
+        if(config.isConfigurationSection(CONFIG_CIRCUIT_BREAKER_SECTION))
+            configureCircuitBreakers(config.getConfigurationSection(CONFIG_CIRCUIT_BREAKER_SECTION));
+
+        // Report state changes of all devices
+        this.sessionManager.getEventBus().subscribe(System.out::println);
+
+        // Open all devices concurrently
+        this.sessionManager.openAll().join();
+
+        // Calibrate devices that weren't calibrated before, before anything else sends commands to them
+        final List<Thread> calibrations = new ArrayList<>();
+        for(String deviceId : devicesSection.getKeys("")) {
+            final BeamerSession session = this.sessionManager.getSession(deviceId);
+            if(session != null && session.getState() == SessionState.OPEN && TimingProfile.load(deviceId) == null
+                    && devicesSection.getConfigurationSection(deviceId).getBoolean(CONFIG_DEVICE_CALIBRATE_KEY, false))
+                calibrations.add(startCalibration(session));
+        }
+        for(Thread calibration : calibrations) {
+            try {
+                calibration.join();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while calibrating devices");
+            }
+        }
+
+        // Start polling the status of the devices if configured
+        if(config.isConfigurationSection(CONFIG_POLLER_SECTION))
+            startPoller(config.getConfigurationSection(CONFIG_POLLER_SECTION));
+
+        // Start reconciling devices to their desired state if configured
+        if(config.isConfigurationSection(CONFIG_RECONCILER_SECTION))
+            startReconciler(config.getConfigurationSection(CONFIG_RECONCILER_SECTION), devicesSection);
+
+        // Start the HTTP API if configured
+        if(config.isConfigurationSection(CONFIG_API_SECTION))
+            startApi(config.getConfigurationSection(CONFIG_API_SECTION));
+
+        // Close all devices when the JVM shuts down
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "daemon-shutdown"));
+
+        // Show a status message
+        final int count = this.sessionManager.getSessionCount();
+        System.out.println("Daemon started with " + count + " device" + (count != 1 ? "s" : "") + ".");
+    }
+
+    /**
+     * Configure the circuit breakers of all devices with the given configuration.
+     *
+     * @param circuitBreakerSection Circuit breaker configuration section.
+     */
+    private void configureCircuitBreakers(ConfigurationSection circuitBreakerSection) {
+        for(BeamerSession session : this.sessionManager.getSessions()) {
+            final CircuitBreaker circuitBreaker = session.getCircuitBreaker();
+            circuitBreaker.setFailureThreshold(circuitBreakerSection.getInt(CONFIG_CIRCUIT_BREAKER_FAILURE_THRESHOLD_KEY, CircuitBreaker.DEFAULT_FAILURE_THRESHOLD));
+            circuitBreaker.setOpenTime(circuitBreakerSection.getInt(CONFIG_CIRCUIT_BREAKER_OPEN_TIME_KEY, CircuitBreaker.DEFAULT_OPEN_TIME));
+            circuitBreaker.setMaxOpenTime(circuitBreakerSection.getInt(CONFIG_CIRCUIT_BREAKER_MAX_OPEN_TIME_KEY, CircuitBreaker.DEFAULT_MAX_OPEN_TIME));
+        }
+    }
+
+    /**
+     * Start polling the status of all devices with the given configuration.
+     *
+     * @param pollerSection Status poller configuration section.
+     */
+    private void startPoller(ConfigurationSection pollerSection) {
+        // Don't start if disabled
+        if(!pollerSection.getBoolean(CONFIG_POLLER_ENABLED_KEY, true))
+            return;
+
+        // Create and start the poller, on a single timer wheel for all devices
+        this.statusPoller = new StatusPoller(
+                this.sessionManager,
+                getTimerWheel(),
+                pollerSection.getInt(CONFIG_POLLER_MIN_INTERVAL_KEY, StatusPoller.DEFAULT_MIN_INTERVAL),
+                pollerSection.getInt(CONFIG_POLLER_MAX_INTERVAL_KEY, StatusPoller.DEFAULT_MAX_INTERVAL)
+        );
+        this.statusPoller.start();
+    }
+
+    /**
+     * Start reconciling the devices that have a desired state, with the given configuration.
+     *
+     * @param reconcilerSection State reconciler configuration section.
+     * @param devicesSection Devices configuration section, holding the desired state of each device.
+     */
+    private void startReconciler(ConfigurationSection reconcilerSection, ConfigurationSection devicesSection) {
+        // Don't start if disabled
+        if(!reconcilerSection.getBoolean(CONFIG_RECONCILER_ENABLED_KEY, true))
+            return;
+
+        // Create the reconciler
+        this.stateReconciler = new StateReconciler(
+                this.sessionManager,
+                getTimerWheel(),
+                reconcilerSection.getInt(CONFIG_RECONCILER_INTERVAL_KEY, StateReconciler.DEFAULT_INTERVAL),
+                reconcilerSection.getInt(CONFIG_RECONCILER_ATTEMPTS_KEY, StateReconciler.DEFAULT_MAX_ATTEMPTS),
+                reconcilerSection.getInt(CONFIG_RECONCILER_RETRY_DELAY_KEY, StateReconciler.DEFAULT_RETRY_DELAY)
+        );
+
+        // Set the desired state of each device that has one
+        for(String deviceId : devicesSection.getKeys("")) {
+            final ConfigurationSection deviceSection = devicesSection.getConfigurationSection(deviceId);
+            if(this.sessionManager.getSession(deviceId) != null && deviceSection.isConfigurationSection(CONFIG_DEVICE_DESIRED_SECTION))
+                this.stateReconciler.setDesiredState(deviceId, DesiredState.load(deviceSection.getConfigurationSection(CONFIG_DEVICE_DESIRED_SECTION)));
+        }
+
+        // Start reconciling
+        this.stateReconciler.start();
+    }
+
+    /**
+     * Calibrate the command gap of a device in the background, and save its timing profile for later sessions.
+     * Nothing else may send commands to the device until calibration is done, or they skew the measurement.
+     *
+     * @param session Open session of the device.
+     *
+     * @return Calibration thread, ending when calibration is done.
+     */
+    private Thread startCalibration(BeamerSession session) {
+        final Thread thread = new Thread(() -> {
+            System.out.println("Calibrating command gap of " + session.getId() + "...");
+            try {
+                final TimingProfile timingProfile = new GapCalibrator(session).calibrate();
+                timingProfile.save();
+                System.out.println("Calibrated command gap of " + timingProfile + ".");
+
+            } catch(IOException e) {
+                System.out.println("Failed to calibrate " + session.getId() + ": " + e.getMessage());
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "daemon-calibration-" + session.getId());
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Get the timer wheel the daemon schedules periodic tasks on, creating it if it doesn't exist yet.
+     *
+     * @return Timer wheel.
+     */
+    private TimerWheel getTimerWheel() {
+        if(this.timerWheel == null)
+            this.timerWheel = new TimerWheel("daemon-timer");
+        return this.timerWheel;
+    }
+
+    /**
+     * Start the HTTP API with the given configuration.
+     *
+     * @param apiSection HTTP API configuration section.
+     *
+     * @throws IOException Throws if the API server couldn't be started.
+     */
+    private void startApi(ConfigurationSection apiSection) throws IOException {
+        // Don't start if disabled
+        if(!apiSection.getBoolean(CONFIG_API_ENABLED_KEY, true))
+            return;
+
+        // Create and start the API server
+        final InetSocketAddress address = new InetSocketAddress(
+                apiSection.getString(CONFIG_API_HOST_KEY, DEFAULT_API_HOST),
+                apiSection.getInt(CONFIG_API_PORT_KEY, DEFAULT_API_PORT)
+        );
+        this.apiServer = new ApiServer(address, this.sessionManager);
+        this.apiServer.start();
+    }
+
+    /**
+     * Create and register a beamer session for the given device configuration.
+     *
+     * @param deviceId Device ID.
+     * @param deviceSection Device configuration section.
+     * @param deduplicateWrites True to skip redundant writes by default, unless configured for the device.
+     *
+     * @return Beamer session.
+     */
+    private BeamerSession createSession(String deviceId, ConfigurationSection deviceSection, boolean deduplicateWrites) {
+        // Find the beamer type
+        final String beamerId = deviceSection.getString(CONFIG_DEVICE_BEAMER_KEY);
+        final Beamer beamer = beamerId != null ? this.beamerManager.getBeamer(beamerId) : null;
+        if(beamer == null)
+            throw new IllegalArgumentException("unknown beamer type: " + beamerId);
+
+        // Create the session for an emulated beamer, over the network if a host is configured, or over a serial port otherwise
+        final String host = deviceSection.getString(CONFIG_DEVICE_HOST_KEY);
+        final BeamerSession session;
+        if(deviceSection.isConfigurationSection(CONFIG_DEVICE_EMULATOR_SECTION))
+            session = createEmulatorSession(deviceId, deviceSection.getConfigurationSection(CONFIG_DEVICE_EMULATOR_SECTION), beamer);
+        else if(host != null)
+            session = createNetworkSession(deviceId, deviceSection, beamer, host);
+        else
+            session = createSerialSession(deviceId, deviceSection, beamer);
+
+        // Add the session to its groups
+        final String groups = deviceSection.getString(CONFIG_DEVICE_GROUP_KEY);
+        if(groups != null)
+            for(String group : groups.split(","))
+                if(!group.trim().isEmpty())
+                    session.addGroup(group);
+
+        // Skip redundant writes if enabled
+        session.setDeduplicateWrites(deviceSection.getBoolean(CONFIG_DEDUPLICATE_WRITES_KEY, deduplicateWrites));
+
+        // Start at the calibrated command gap if the device was calibrated before
+        final TimingProfile timingProfile = TimingProfile.load(deviceId);
+        if(timingProfile != null)
+            session.getExecutor().setMinimumGap(timingProfile.getMinimumGap());
+
+        return session;
+    }
+
+    /**
+     * Create and register a beamer session for a device connected to a serial port.
+     *
+     * @param deviceId Device ID.
+     * @param deviceSection Device configuration section.
+     * @param beamer Beamer type.
+     *
+     * @return Beamer session.
+     */
+    private BeamerSession createSerialSession(String deviceId, ConfigurationSection deviceSection, Beamer beamer) {
+        // Get the serial port name
+        final String portName = deviceSection.getString(CONFIG_DEVICE_PORT_KEY);
+        if(portName == null)
+            throw new IllegalArgumentException("no serial port configured");
+
+        // Find the serial interface of the beamer
+        final SerialBeamerInterface serialInterface = (SerialBeamerInterface) beamer.getBeamerInterfaceManager().getInterface(InterfaceType.SERIAL);
+        if(serialInterface == null)
+            throw new IllegalArgumentException("beamer type " + beamer.getId() + " has no serial interface");
+
+        // Copy the serial configuration, and apply a custom baud rate for this device
+        final SerialConfig serialConfig = serialInterface.getSerialConfig().clone();
+        final int baud = deviceSection.getInt(CONFIG_DEVICE_BAUD_KEY, -1);
+        if(baud > 0)
+            serialConfig.setBaudRateType(BaudRateType.getByRate(baud));
+
+        // Create the session
+        return this.sessionManager.createSession(deviceId, beamer, new SerialTransport(portName, serialConfig), serialInterface);
+    }
+
+    /**
+     * Create and register a beamer session for a device controlled over the network.
+     * All network devices share a single selector thread.
+     *
+     * @param deviceId Device ID.
+     * @param deviceSection Device configuration section.
+     * @param beamer Beamer type.
+     * @param host Host of the device.
+     *
+     * @return Beamer session.
+     */
+    private BeamerSession createNetworkSession(String deviceId, ConfigurationSection deviceSection, Beamer beamer, String host) {
+        // Find the network interface of the beamer
+        final NetworkBeamerInterface networkInterface = (NetworkBeamerInterface) beamer.getBeamerInterfaceManager().getInterface(InterfaceType.NETWORK);
+        if(networkInterface == null)
+            throw new IllegalArgumentException("beamer type " + beamer.getId() + " has no network interface");
+
+        // Use a custom port for this device if configured
+        final int port = deviceSection.getInt(CONFIG_DEVICE_PORT_KEY, networkInterface.getPort());
+
+        // Create the session
+        return this.sessionManager.createSession(deviceId, beamer, new NetworkTransport(host, port), networkInterface);
+    }
+
+    /**
+     * Create and register a beamer session for an emulated beamer.
+     *
+     * @param deviceId Device ID.
+     * @param emulatorSection Emulator configuration section.
+     * @param beamer Beamer type.
+     *
+     * @return Beamer session.
+     */
+    private BeamerSession createEmulatorSession(String deviceId, ConfigurationSection emulatorSection, Beamer beamer) {
+        // Use the framing of the first interface of the beamer
+        final List<BeamerInterface> interfaces = beamer.getBeamerInterfaceManager().getInterfaces();
+        if(interfaces.isEmpty())
+            throw new IllegalArgumentException("beamer type " + beamer.getId() + " has no interface");
+
+        // Create the emulator and session
+        final BeamerEmulator emulator = new BeamerEmulator(EmulatorConfig.load(emulatorSection));
+        return this.sessionManager.createSession(deviceId, beamer, new EmulatorTransport("emulator:" + deviceId, emulator), interfaces.get(0));
+    }
+
+    /**
+     * Serve commands entered on the standard input, until the daemon is stopped.
+     * If the standard input is closed, the daemon keeps running until it's stopped.
+     */
+    public void serve() {
+        // Show usage
+        System.out.println("Enter '<device> <command>' to run a command, '" + GROUP_PREFIX + "<group> <command>' to run it on a group, 'list' to list devices, or 'quit' to stop.");
+
+        try {
+            // Read commands from the standard input
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+            String line;
+            while(this.stopLatch.getCount() > 0 && (line = reader.readLine()) != null) {
+                // Skip empty lines
+                line = line.trim();
+                if(line.isEmpty())
+                    continue;
+
+                // Handle the line
+                if(line.equalsIgnoreCase("quit"))
+                    stop();
+                else if(line.equalsIgnoreCase("list"))
+                    this.sessionManager.getSessions().forEach(session -> System.out.println(session + ": " + session.getState().getId()));
+                else
+                    runCommand(line);
+            }
+
+            // Keep running until the daemon is stopped
+            this.stopLatch.await();
+
+        } catch(IOException e) {
+            System.out.println("Failed to read from standard input: " + e.getMessage());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run a command line in the format {@code <device> <command>} or {@code @<group> <command>}.
+     *
+     * @param line Command line.
+     */
+    private void runCommand(String line) {
+        // Split the line in a device and command ID
+        final String[] parts = line.split("\\s+");
+        if(parts.length != 2) {
+            System.out.println("Invalid command, use '<device> <command>' or '" + GROUP_PREFIX + "<group> <command>'.");
+            return;
+        }
+
+        // Broadcast to a group
+        if(parts[0].startsWith(GROUP_PREFIX)) {
+            broadcastCommand(parts[0].substring(GROUP_PREFIX.length()), parts[1]);
+            return;
+        }
+
+        // Find the session
+        final BeamerSession session = this.sessionManager.getSession(parts[0]);
+        if(session == null) {
+            System.out.println("Unknown device: " + parts[0]);
+            return;
+        }
+
+        // Submit the command, and report the result
+        session.submit(parts[1]).whenComplete((response, throwable) -> {
+            if(throwable != null)
+                System.out.println(session.getId() + ": command " + parts[1] + " failed: " + throwable.getMessage());
+            else {
+                System.out.println(session.getId() + ": executed " + parts[1] + (response != null ? " (" + response + ")" : ""));
+                wakePoller(session, parts[1]);
+            }
+        });
+    }
+
+    /**
+     * Poll a device soon after a write command succeeded on it, as its state probably changed.
+     *
+     * @param session Beamer session.
+     * @param commandId ID of the executed command.
+     */
+    private void wakePoller(BeamerSession session, String commandId) {
+        final Command command = session.getBeamer().getCommandManager().getCommand(commandId);
+        if(this.statusPoller != null && command != null && command.getCommandType() == CommandType.WRITE)
+            this.statusPoller.wake(session.getId());
+    }
+
+    /**
+     * Broadcast a command to all devices in a group, and report the result of each device as it finishes.
+     *
+     * @param group Group name.
+     * @param commandId Command ID.
+     */
+    private void broadcastCommand(String group, String commandId) {
+        // Make sure the group has devices
+        final int count = this.sessionManager.getGroup(group).size();
+        if(count == 0) {
+            System.out.println("Unknown or empty group: " + group);
+            return;
+        }
+
+        // Broadcast the command, and report the results
+        final long start = System.nanoTime();
+        this.sessionManager.broadcast(group, commandId, result -> {
+            System.out.println(result);
+            if(result.isSuccess())
+                wakePoller(result.getSession(), commandId);
+        }).thenAccept(results -> {
+            final long failed = results.stream().filter(result -> !result.isSuccess()).count();
+            System.out.println("Broadcast " + commandId + " to " + count + " device" + (count != 1 ? "s" : "") + " in group " + group +
+                    " finished in " + (System.nanoTime() - start) / 1000000L + " ms, " + failed + " failed.");
+        });
+    }
+
+    /**
+     * Stop the daemon, and close all devices.
+     */
+    public synchronized void stop() {
+        // Don't stop twice
+        if(this.stopLatch.getCount() == 0)
+            return;
+
+        // Stop the HTTP API
+        if(this.apiServer != null)
+            this.apiServer.stop();
+
+        // Stop polling and reconciling
+        if(this.statusPoller != null)
+            this.statusPoller.stop();
+        if(this.stateReconciler != null)
+            this.stateReconciler.stop();
+        if(this.timerWheel != null)
+            this.timerWheel.stop();
+
+        // Close all sessions
+        if(this.sessionManager != null)
+            this.sessionManager.close();
+
+        // Release the stop latch
+        System.out.println("Daemon stopped.");
+        this.stopLatch.countDown();
+    }
+}
@@ -0,0 +1,411 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.emulator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class BeamerEmulator {
+
+    /**
+     * Character a command starts with.
+     */
+    private static final char COMMAND_START = '*';
+
+    /**
+     * Character a command ends with.
+     */
+    private static final char COMMAND_END = '#';
+
+    /**
+     * Maximum length of a command, longer commands are rejected.
+     */
+    private static final int MAX_COMMAND_LENGTH = 64;
+
+    /**
+     * Response for commands that aren't allowed in the current state.
+     */
+    public static final String RESPONSE_BLOCK_ITEM = "Block item";
+
+    /**
+     * Response for commands that can't be parsed.
+     */
+    public static final String RESPONSE_ILLEGAL_FORMAT = "Illegal format";
+
+    /**
+     * Response for commands the beamer doesn't support.
+     */
+    public static final String RESPONSE_UNSUPPORTED_ITEM = "Unsupported item";
+
+    /**
+     * Supported sources, in lowercase.
+     */
+    private static final Set<String> SOURCES = new HashSet<>(Arrays.asList(
+            "rgb", "rgb2", "dvia", "dvid", "hdmi", "hdmi2", "network", "svid", "usbdisplay", "usbreader", "vid", "ypbr"
+    ));
+
+    /**
+     * Supported picture modes, in lowercase.
+     */
+    private static final Set<String> PICTURE_MODES = new HashSet<>(Arrays.asList(
+            "bright", "cine", "dynamic", "game", "livingroom", "preset", "srgb", "std", "user1", "user2", "user3"
+    ));
+
+    /**
+     * Emulator configuration.
+     */
+    private final EmulatorConfig config;
+
+    /**
+     * Random source for error injection.
+     */
+    private final Random random;
+
+    /**
+     * True if the beamer is powered on or warming up, false if it's off or cooling down.
+     */
+    private boolean powered = false;
+
+    /**
+     * Time in nanoseconds the power was last switched.
+     */
+    private long powerSwitchedAt = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+
+    /**
+     * Selected source, in uppercase.
+     */
+    private String source = "HDMI";
+
+    /**
+     * Selected picture mode, in uppercase.
+     */
+    private String pictureMode = "STD";
+
+    /**
+     * Command currently being received.
+     */
+    private final StringBuilder command = new StringBuilder();
+
+    /**
+     * True if a command is being received.
+     */
+    private boolean inCommand = false;
+
+    /**
+     * Time in nanoseconds the last accepted command was received at.
+     */
+    private long lastCommandAt = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+
+    /**
+     * Number of received commands.
+     */
+    private long commandCount = 0;
+
+    /**
+     * Number of commands answered with an injected error.
+     */
+    private long errorCount = 0;
+
+    /**
+     * Number of commands that weren't answered.
+     */
+    private long dropCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param config Emulator configuration.
+     */
+    public BeamerEmulator(EmulatorConfig config) {
+        this(config, new Random());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param config Emulator configuration.
+     * @param random Random source for error injection, seed it to get reproducible errors.
+     */
+    public BeamerEmulator(EmulatorConfig config, Random random) {
+        this.config = config;
+        this.random = random;
+    }
+
+    /**
+     * Get the emulator configuration.
+     *
+     * @return Emulator configuration.
+     */
+    public EmulatorConfig getConfig() {
+        return this.config;
+    }
+
+    /**
+     * Receive data sent to the beamer, and respond to each complete command.
+     *
+     * @param data Data buffer.
+     * @param offset Offset of the received data.
+     * @param length Length of the received data.
+     * @param output Output to send the echo and responses to.
+     */
+    public synchronized void receive(byte[] data, int offset, int length, EmulatorOutput output) {
+        for(int i = offset; i < offset + length; i++) {
+            final char c = (char) (data[i] & 0xFF);
+
+            // Start a new command, discarding a partially received one
+            if(c == COMMAND_START) {
+                this.command.setLength(0);
+                this.inCommand = true;
+                continue;
+            }
+
+            // Skip data outside of commands, and line breaks
+            if(!this.inCommand || c == '\r' || c == '\n')
+                continue;
+
+            // Complete the command
+            if(c == COMMAND_END) {
+                this.inCommand = false;
+                respond(this.command.toString(), output);
+                continue;
+            }
+
+            // Append to the command, reject commands that are too long
+            this.command.append(c);
+            if(this.command.length() > MAX_COMMAND_LENGTH) {
+                this.inCommand = false;
+                output.send(frame(RESPONSE_ILLEGAL_FORMAT), this.config.getResponseDelay());
+            }
+        }
+    }
+
+    /**
+     * Echo a received command, and send its response.
+     *
+     * @param command Received command, without delimiters.
+     * @param output Output to send to.
+     */
+    private void respond(String command, EmulatorOutput output) {
+        // Echo the command
+        if(this.config.isEcho())
+            output.send((COMMAND_START + command + COMMAND_END).getBytes(StandardCharsets.US_ASCII), 0);
+
+        // Send the response, unless it's dropped
+        final String response = process(command);
+        if(response != null)
+            output.send(frame(response), this.config.getResponseDelay());
+    }
+
+    /**
+     * Process a command, and get its response.
+     * Errors are injected at the configured rates.
+     *
+     * @param command Command, such as {@code pow=?}.
+     *
+     * @return Response, such as {@code POW=ON}, or null if the command isn't answered.
+     */
+    public synchronized String process(String command) {
+        this.commandCount++;
+
+        // Drop commands that arrive too soon after the previous one
+        final long now = System.nanoTime();
+        if(now - this.lastCommandAt < TimeUnit.MILLISECONDS.toNanos(this.config.getMinimumGap())) {
+            this.dropCount++;
+            return null;
+        }
+        this.lastCommandAt = now;
+
+        // Inject dropped responses and errors
+        if(this.config.getDropRate() > 0 && this.random.nextDouble() < this.config.getDropRate()) {
+            this.dropCount++;
+            return null;
+        }
+        if(this.config.getErrorRate() > 0 && this.random.nextDouble() < this.config.getErrorRate()) {
+            this.errorCount++;
+            return RESPONSE_ILLEGAL_FORMAT;
+        }
+
+        // Split the command in its key and value
+        final int separator = command.indexOf('=');
+        if(separator <= 0)
+            return RESPONSE_ILLEGAL_FORMAT;
+        final String key = command.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+        final String value = command.substring(separator + 1).trim();
+        final boolean query = value.equals("?");
+
+        // Handle the command
+        switch(key) {
+            case "pow":
+                return processPower(value, query);
+
+            case "sour":
+                if(getPowerState() != EmulatorPowerState.ON)
+                    return RESPONSE_BLOCK_ITEM;
+                if(!query) {
+                    if(!SOURCES.contains(value.toLowerCase(Locale.ROOT)))
+                        return RESPONSE_BLOCK_ITEM;
+                    this.source = value.toUpperCase(Locale.ROOT);
+                }
+                return "SOUR=" + this.source;
+
+            case "appmod":
+                if(getPowerState() != EmulatorPowerState.ON)
+                    return RESPONSE_BLOCK_ITEM;
+                if(!query) {
+                    if(!PICTURE_MODES.contains(value.toLowerCase(Locale.ROOT)))
+                        return RESPONSE_BLOCK_ITEM;
+                    this.pictureMode = value.toUpperCase(Locale.ROOT);
+                }
+                return "APPMOD=" + this.pictureMode;
+
+            default:
+                return RESPONSE_UNSUPPORTED_ITEM;
+        }
+    }
+
+    /**
+     * Process a power command.
+     * While warming up or cooling down, switching the power is blocked.
+     *
+     * @param value Command value.
+     * @param query True if the power state is queried.
+     *
+     * @return Response.
+     */
+    private String processPower(String value, boolean query) {
+        final EmulatorPowerState state = getPowerState();
+
+        // Report the power state, warming up reports on and cooling down reports off
+        if(query)
+            return this.powered ? "POW=ON" : "POW=OFF";
+
+        // Switch the power
+        if(value.equalsIgnoreCase("on")) {
+            if(state == EmulatorPowerState.COOLING_DOWN)
+                return RESPONSE_BLOCK_ITEM;
+            if(state == EmulatorPowerState.OFF)
+                switchPower(true);
+            return "POW=ON";
+        }
+        if(value.equalsIgnoreCase("off")) {
+            if(state == EmulatorPowerState.WARMING_UP)
+                return RESPONSE_BLOCK_ITEM;
+            if(state == EmulatorPowerState.ON)
+                switchPower(false);
+            return "POW=OFF";
+        }
+        return RESPONSE_BLOCK_ITEM;
+    }
+
+    /**
+     * Switch the power, and start warming up or cooling down.
+     *
+     * @param on True to power on, false to power off.
+     */
+    private void switchPower(boolean on) {
+        this.powered = on;
+        this.powerSwitchedAt = System.nanoTime();
+    }
+
+    /**
+     * Set the power state immediately, skipping warming up or cooling down.
+     *
+     * @param on True to power on, false to power off.
+     */
+    public synchronized void setPowered(boolean on) {
+        this.powered = on;
+        this.powerSwitchedAt = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    }
+
+    /**
+     * Get the current power state.
+     *
+     * @return Power state.
+     */
+    public synchronized EmulatorPowerState getPowerState() {
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.powerSwitchedAt);
+        if(this.powered)
+            return elapsed < this.config.getWarmUpTime() ? EmulatorPowerState.WARMING_UP : EmulatorPowerState.ON;
+        return elapsed < this.config.getCoolDownTime() ? EmulatorPowerState.COOLING_DOWN : EmulatorPowerState.OFF;
+    }
+
+    /**
+     * Get the selected source.
+     *
+     * @return Source, in uppercase.
+     */
+    public synchronized String getSource() {
+        return this.source;
+    }
+
+    /**
+     * Get the selected picture mode.
+     *
+     * @return Picture mode, in uppercase.
+     */
+    public synchronized String getPictureMode() {
+        return this.pictureMode;
+    }
+
+    /**
+     * Get the number of received commands.
+     *
+     * @return Command count.
+     */
+    public synchronized long getCommandCount() {
+        return this.commandCount;
+    }
+
+    /**
+     * Get the number of commands answered with an injected error.
+     *
+     * @return Error count.
+     */
+    public synchronized long getErrorCount() {
+        return this.errorCount;
+    }
+
+    /**
+     * Get the number of commands that weren't answered.
+     *
+     * @return Drop count.
+     */
+    public synchronized long getDropCount() {
+        return this.dropCount;
+    }
+
+    /**
+     * Frame a response the way the beamer sends it.
+     *
+     * @param response Response.
+     *
+     * @return Framed response.
+     */
+    private static byte[] frame(String response) {
+        return ("\r" + COMMAND_START + response + COMMAND_END + "\r").getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,315 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.emulator;
+
+import com.timvisee.yamlwrapper.ConfigurationSection;
+
+public class EmulatorConfig implements Cloneable {
+
+    /**
+     * Configuration key for the warm-up time property.
+     */
+    public static final String CONFIG_WARM_UP_TIME_KEY = "warmUpTime";
+
+    /**
+     * Configuration key for the cool-down time property.
+     */
+    public static final String CONFIG_COOL_DOWN_TIME_KEY = "coolDownTime";
+
+    /**
+     * Configuration key for the response delay property.
+     */
+    public static final String CONFIG_RESPONSE_DELAY_KEY = "responseDelay";
+
+    /**
+     * Configuration key for the baud rate property.
+     */
+    public static final String CONFIG_BAUD_RATE_KEY = "baud";
+
+    /**
+     * Configuration key for the echo property.
+     */
+    public static final String CONFIG_ECHO_KEY = "echo";
+
+    /**
+     * Configuration key for the error rate property, in percent.
+     */
+    public static final String CONFIG_ERROR_RATE_KEY = "errorRate";
+
+    /**
+     * Configuration key for the drop rate property, in percent.
+     */
+    public static final String CONFIG_DROP_RATE_KEY = "dropRate";
+
+    /**
+     * Configuration key for the minimum gap property.
+     */
+    public static final String CONFIG_MINIMUM_GAP_KEY = "minimumGap";
+
+    /**
+     * Number of bits on the line for each byte, with one start and one stop bit.
+     */
+    private static final int BITS_PER_BYTE = 10;
+
+    /**
+     * Time in milliseconds the emulated beamer takes to warm up after powering on.
+     */
+    private int warmUpTime = 0;
+
+    /**
+     * Time in milliseconds the emulated beamer takes to cool down after powering off.
+     */
+    private int coolDownTime = 0;
+
+    /**
+     * Time in milliseconds the emulated beamer takes to process a command before replying.
+     */
+    private int responseDelay = 0;
+
+    /**
+     * Emulated baud rate, or 0 to transfer bytes without line delay.
+     */
+    private int baudRate = 0;
+
+    /**
+     * True if received commands are echoed.
+     */
+    private boolean echo = true;
+
+    /**
+     * Chance from 0 to 1 that a command is answered with an error.
+     */
+    private double errorRate = 0;
+
+    /**
+     * Chance from 0 to 1 that a command isn't answered at all.
+     */
+    private double dropRate = 0;
+
+    /**
+     * Minimum time in milliseconds between two commands, commands arriving sooner are dropped.
+     */
+    private int minimumGap = 0;
+
+    /**
+     * Constructor.
+     * This creates an emulator configuration that responds immediately, without errors.
+     */
+    public EmulatorConfig() {}
+
+    /**
+     * Constructor.
+     * This copies the emulator configuration from the other instance.
+     *
+     * @param other Other instance to copy from.
+     */
+    public EmulatorConfig(EmulatorConfig other) {
+        this.warmUpTime = other.warmUpTime;
+        this.coolDownTime = other.coolDownTime;
+        this.responseDelay = other.responseDelay;
+        this.baudRate = other.baudRate;
+        this.echo = other.echo;
+        this.errorRate = other.errorRate;
+        this.dropRate = other.dropRate;
+        this.minimumGap = other.minimumGap;
+    }
+
+    /**
+     * Get the warm-up time.
+     *
+     * @return Warm-up time in milliseconds.
+     */
+    public int getWarmUpTime() {
+        return this.warmUpTime;
+    }
+
+    /**
+     * Set the warm-up time.
+     *
+     * @param warmUpTime Warm-up time in milliseconds.
+     */
+    public void setWarmUpTime(int warmUpTime) {
+        this.warmUpTime = warmUpTime;
+    }
+
+    /**
+     * Get the cool-down time.
+     *
+     * @return Cool-down time in milliseconds.
+     */
+    public int getCoolDownTime() {
+        return this.coolDownTime;
+    }
+
+    /**
+     * Set the cool-down time.
+     *
+     * @param coolDownTime Cool-down time in milliseconds.
+     */
+    public void setCoolDownTime(int coolDownTime) {
+        this.coolDownTime = coolDownTime;
+    }
+
+    /**
+     * Get the response delay.
+     *
+     * @return Response delay in milliseconds.
+     */
+    public int getResponseDelay() {
+        return this.responseDelay;
+    }
+
+    /**
+     * Set the response delay.
+     *
+     * @param responseDelay Response delay in milliseconds.
+     */
+    public void setResponseDelay(int responseDelay) {
+        this.responseDelay = responseDelay;
+    }
+
+    /**
+     * Get the emulated baud rate.
+     *
+     * @return Baud rate, or 0 if bytes are transferred without line delay.
+     */
+    public int getBaudRate() {
+        return this.baudRate;
+    }
+
+    /**
+     * Set the emulated baud rate.
+     *
+     * @param baudRate Baud rate, or 0 to transfer bytes without line delay.
+     */
+    public void setBaudRate(int baudRate) {
+        this.baudRate = baudRate;
+    }
+
+    /**
+     * Get the time a single byte takes on the line, at the emulated baud rate.
+     *
+     * @return Byte time in nanoseconds, or 0 if there is no line delay.
+     */
+    public long getByteTimeNanos() {
+        return this.baudRate > 0 ? BITS_PER_BYTE * 1000000000L / this.baudRate : 0;
+    }
+
+    /**
+     * Check whether received commands are echoed.
+     *
+     * @return True if echoed, false if not.
+     */
+    public boolean isEcho() {
+        return this.echo;
+    }
+
+    /**
+     * Set whether received commands are echoed.
+     *
+     * @param echo True to echo, false to not echo.
+     */
+    public void setEcho(boolean echo) {
+        this.echo = echo;
+    }
+
+    /**
+     * Get the chance that a command is answered with an error.
+     *
+     * @return Chance from 0 to 1.
+     */
+    public double getErrorRate() {
+        return this.errorRate;
+    }
+
+    /**
+     * Set the chance that a command is answered with an error.
+     *
+     * @param errorRate Chance from 0 to 1.
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Get the chance that a command isn't answered at all.
+     *
+     * @return Chance from 0 to 1.
+     */
+    public double getDropRate() {
+        return this.dropRate;
+    }
+
+    /**
+     * Set the chance that a command isn't answered at all.
+     *
+     * @param dropRate Chance from 0 to 1.
+     */
+    public void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * Get the minimum time between two commands.
+     * Like the firmware of a real beamer, commands arriving sooner after the previous command are dropped.
+     *
+     * @return Minimum gap in milliseconds, or 0 to accept commands at any rate.
+     */
+    public int getMinimumGap() {
+        return this.minimumGap;
+    }
+
+    /**
+     * Set the minimum time between two commands.
+     *
+     * @param minimumGap Minimum gap in milliseconds, or 0 to accept commands at any rate.
+     */
+    public void setMinimumGap(int minimumGap) {
+        this.minimumGap = minimumGap;
+    }
+
+    /**
+     * Load an emulator configuration from the given configuration section.
+     * Properties that aren't configured keep their default value.
+     *
+     * @param config Configuration section to load from.
+     *
+     * @return Emulator configuration.
+     */
+    public static EmulatorConfig load(ConfigurationSection config) {
+        final EmulatorConfig emulatorConfig = new EmulatorConfig();
+        emulatorConfig.setWarmUpTime(config.getInt(CONFIG_WARM_UP_TIME_KEY, emulatorConfig.warmUpTime));
+        emulatorConfig.setCoolDownTime(config.getInt(CONFIG_COOL_DOWN_TIME_KEY, emulatorConfig.coolDownTime));
+        emulatorConfig.setResponseDelay(config.getInt(CONFIG_RESPONSE_DELAY_KEY, emulatorConfig.responseDelay));
+        emulatorConfig.setBaudRate(config.getInt(CONFIG_BAUD_RATE_KEY, emulatorConfig.baudRate));
+        emulatorConfig.setEcho(config.getBoolean(CONFIG_ECHO_KEY, emulatorConfig.echo));
+        emulatorConfig.setErrorRate(config.getInt(CONFIG_ERROR_RATE_KEY, 0) / 100.0);
+        emulatorConfig.setDropRate(config.getInt(CONFIG_DROP_RATE_KEY, 0) / 100.0);
+        emulatorConfig.setMinimumGap(config.getInt(CONFIG_MINIMUM_GAP_KEY, emulatorConfig.minimumGap));
+        return emulatorConfig;
+    }
+
+    @Override
+    public EmulatorConfig clone() {
+        return new EmulatorConfig(this);
+    }
+}
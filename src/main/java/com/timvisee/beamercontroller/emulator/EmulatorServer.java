@@ -0,0 +1,159 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.emulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class EmulatorServer {
+
+    /**
+     * Emulated beamer, shared by all connections.
+     */
+    private final BeamerEmulator emulator;
+
+    /**
+     * Server socket, or null if not started.
+     */
+    private ServerSocket serverSocket;
+
+    /**
+     * Scheduler sending delayed responses.
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param emulator Emulated beamer to serve.
+     */
+    public EmulatorServer(BeamerEmulator emulator) {
+        this.emulator = emulator;
+    }
+
+    /**
+     * Get the emulated beamer.
+     *
+     * @return Beamer emulator.
+     */
+    public BeamerEmulator getEmulator() {
+        return this.emulator;
+    }
+
+    /**
+     * Start serving on the loopback address.
+     *
+     * @param port TCP port to listen on, or 0 to pick a free port.
+     *
+     * @throws IOException Throws if the server couldn't be started.
+     */
+    public synchronized void start(int port) throws IOException {
+        // Listen on the loopback address
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "beamer-emulator-server-responder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Accept connections
+        final Thread acceptor = new Thread(this::accept, "beamer-emulator-server-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Get the TCP port the server listens on.
+     *
+     * @return TCP port, or -1 if not started.
+     */
+    public int getPort() {
+        return this.serverSocket != null ? this.serverSocket.getLocalPort() : -1;
+    }
+
+    /**
+     * Accept connections until the server is stopped.
+     */
+    private void accept() {
+        final ServerSocket serverSocket = this.serverSocket;
+        while(!serverSocket.isClosed()) {
+            try {
+                // Accept a connection, and serve it on its own thread
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                final Thread thread = new Thread(() -> serve(socket), "beamer-emulator-connection-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+
+            } catch(IOException e) {
+                if(!serverSocket.isClosed())
+                    System.out.println("Failed to accept emulator connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Serve a connection until it's closed.
+     *
+     * @param socket Connection socket.
+     */
+    private void serve(Socket socket) {
+        try(Socket connection = socket) {
+            final InputStream in = connection.getInputStream();
+            final OutputStream out = connection.getOutputStream();
+
+            // Pass received data to the emulator, and send its output after the requested delay
+            final byte[] buffer = new byte[1024];
+            int read;
+            while((read = in.read(buffer)) >= 0)
+                this.emulator.receive(buffer, 0, read, (data, delay) -> this.scheduler.schedule(() -> {
+                    try {
+                        out.write(data);
+                        out.flush();
+                    } catch(IOException ignored) {}
+                }, delay, TimeUnit.MILLISECONDS));
+
+        } catch(IOException ignored) {}
+    }
+
+    /**
+     * Stop the server.
+     */
+    public synchronized void stop() {
+        // Don't stop if not started
+        if(this.serverSocket == null)
+            return;
+
+        try {
+            this.serverSocket.close();
+        } catch(IOException ignored) {}
+        this.scheduler.shutdownNow();
+        this.serverSocket = null;
+    }
+}
@@ -0,0 +1,174 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.emulator;
+
+import com.timvisee.beamercontroller.beamer.transport.Transport;
+import com.timvisee.beamercontroller.beamer.transport.TransportReceiver;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class EmulatorTransport implements Transport {
+
+    /**
+     * Scheduler delivering data between all emulated transports and their beamers.
+     * A single thread keeps the data of each transport in order.
+     */
+    private static final ScheduledThreadPoolExecutor SCHEDULER;
+
+    static {
+        SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "beamer-emulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Transport name.
+     */
+    private final String name;
+
+    /**
+     * Emulated beamer.
+     */
+    private final BeamerEmulator emulator;
+
+    /**
+     * Time a single byte takes on the line, in nanoseconds.
+     */
+    private final long byteTime;
+
+    /**
+     * Receiver for incoming data, or null.
+     */
+    private volatile TransportReceiver receiver;
+
+    /**
+     * True if the transport is opened.
+     */
+    private volatile boolean open = false;
+
+    /**
+     * Time in nanoseconds the line towards the beamer is free again.
+     */
+    private long inputFreeAt = 0;
+
+    /**
+     * Time in nanoseconds the line from the beamer is free again.
+     */
+    private long outputFreeAt = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param name Transport name.
+     * @param emulator Emulated beamer to connect to.
+     */
+    public EmulatorTransport(String name, BeamerEmulator emulator) {
+        this.name = name;
+        this.emulator = emulator;
+        this.byteTime = emulator.getConfig().getByteTimeNanos();
+    }
+
+    /**
+     * Get the emulated beamer.
+     *
+     * @return Beamer emulator.
+     */
+    public BeamerEmulator getEmulator() {
+        return this.emulator;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public void open() {
+        this.open = true;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public void write(byte[] data) throws IOException {
+        // Make sure the transport is opened
+        if(!this.open)
+            throw new IOException("emulator transport " + this.name + " is not opened");
+
+        // Deliver the data to the beamer when it's fully transferred over the line
+        final long arrival;
+        synchronized(this) {
+            arrival = Math.max(System.nanoTime(), this.inputFreeAt) + data.length * this.byteTime;
+            this.inputFreeAt = arrival;
+        }
+        schedule(() -> this.emulator.receive(data, 0, data.length, this::deliver), arrival);
+    }
+
+    /**
+     * Deliver data sent by the beamer to the receiver, when it's fully transferred over the line.
+     *
+     * @param data Data sent by the beamer.
+     * @param delay Time in milliseconds the beamer takes before it starts sending.
+     */
+    private void deliver(byte[] data, int delay) {
+        // Determine when the data has arrived
+        final long arrival;
+        synchronized(this) {
+            arrival = Math.max(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay), this.outputFreeAt) + data.length * this.byteTime;
+            this.outputFreeAt = arrival;
+        }
+
+        // Pass the data to the receiver
+        schedule(() -> {
+            final TransportReceiver receiver = this.receiver;
+            if(this.open && receiver != null)
+                receiver.onReceive(data, 0, data.length);
+        }, arrival);
+    }
+
+    /**
+     * Schedule a task at the given time.
+     *
+     * @param task Task to run.
+     * @param at Time in nanoseconds to run the task at.
+     */
+    private static void schedule(Runnable task, long at) {
+        SCHEDULER.schedule(task, Math.max(0, at - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void setReceiver(TransportReceiver receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void close() {
+        this.open = false;
+    }
+}
@@ -25,12 +25,8 @@ import com.timvisee.beamercontroller.App;
 import com.timvisee.beamercontroller.BeamerController;
 import com.timvisee.beamercontroller.beamer.Beamer;
 import com.timvisee.beamercontroller.beamer.command.Command;
-import com.timvisee.beamercontroller.beamer.command.CommandManager;
 import com.timvisee.beamercontroller.beamer.command.CommandType;
-import com.timvisee.beamercontroller.beamer.iface.SerialBeamerInterface;
-import com.timvisee.beamercontroller.util.ProgressDialog;
-import jssc.SerialPort;
-import jssc.SerialPortException;
+import com.timvisee.beamercontroller.beamer.session.BeamerSession;
 
 import javax.swing.*;
 import java.awt.*;
@@ -50,10 +46,9 @@ public class DashboardFrame extends JFrame {
     private static final int WINDOW_SIZE_WIDTH_MAX = 900;
 
     /**
-     * Serial port instance.
+     * Session of the beamer port.
      */
-    // TODO: This should be removed, this is only used for rapid snapshot release.
-    private SerialPort port;
+    private BeamerSession session;
 
     /**
      * Beamer instance.
@@ -64,26 +59,26 @@ public class DashboardFrame extends JFrame {
     /**
      * Constructor.
      *
-     * @param port Serial port.
+     * @param session Beamer session.
      * @param beamer Beamer instance.
      */
-    public DashboardFrame(SerialPort port, Beamer beamer) {
-        this(null, port, beamer);
+    public DashboardFrame(BeamerSession session, Beamer beamer) {
+        this(null, session, beamer);
     }
 
     /**
      * Constructor.
      *
      * @param owner Owning window, or null.
-     * @param port Serial port.
+     * @param session Beamer session.
      * @param beamer Beamer instance.
      */
-    public DashboardFrame(Window owner, SerialPort port, Beamer beamer) {
+    public DashboardFrame(Window owner, BeamerSession session, Beamer beamer) {
         // Construct the super, with the window title
         super(WINDOW_TITLE + " - " + BeamerController.APP_NAME);
 
-        // Set the serial port and beamer
-        this.port = port;
+        // Set the beamer session and beamer
+        this.session = session;
         this.beamer = beamer;
 
         // Build the UI
@@ -139,23 +134,23 @@ public class DashboardFrame extends JFrame {
     /**
      * Show the dialog.
      *
-     * @param port Serial port.
+     * @param session Beamer session.
      * @param beamer Beamer instance.
      */
-    public static void showFrame(SerialPort port, Beamer beamer) {
-        showFrame(null, port, beamer);
+    public static void showFrame(BeamerSession session, Beamer beamer) {
+        showFrame(null, session, beamer);
     }
 
     /**
      * Show the dialog.
      *
      * @param owner Owning window, or null.
-     * @param port Serial port.
+     * @param session Beamer session.
      * @param beamer Beamer instance.
      */
-    public static void showFrame(Window owner, SerialPort port, Beamer beamer) {
+    public static void showFrame(Window owner, BeamerSession session, Beamer beamer) {
         // Create a new instance
-        final DashboardFrame frame = new DashboardFrame(owner, port, beamer);
+        final DashboardFrame frame = new DashboardFrame(owner, session, beamer);
 
         // Show the dialog
         frame.setVisible(true);
@@ -194,7 +189,7 @@ public class DashboardFrame extends JFrame {
         buttonPanel.add(new JLabel("Picture mode:"), c);
 
         // Link the commands to the buttons
-        createButton("On", "powerSetOn", buttonPanel, 0, 1, "The beamer should be starting now. This might take a while.");
+        createButton("On", "powerSetOn", buttonPanel, 0, 1, "The beamer is warming up now. Other commands are held until it's ready.");
         createButton("Off", "powerSetOff", buttonPanel, 0, 2);
         createButton("HDMI", "sourceSetHdmi", buttonPanel, 1, 1);
         createButton("HDMI 2", "sourceSetHdmi2", buttonPanel, 1, 2);
@@ -313,24 +308,17 @@ public class DashboardFrame extends JFrame {
      * @param id Command ID.
      */
     public void runCommand(String id) {
-        // Get the beamer's command manager
-        CommandManager commandManager = this.beamer.getCommandManager();
-
-        // Loop through the commands, and find the correct one
-        for(Command command : commandManager.getCommands()) {
-            // Continue if this command isn't correct
-            if(!command.getId().equalsIgnoreCase(id))
-                continue;
+        // Find the command
+        final Command command = this.beamer.getCommandManager().getCommand(id);
 
-            // Run the command
-            runCommand(command);
-
-            // Return when done
+        // Show an error dialog if the command is unknown
+        if(command == null) {
+            JOptionPane.showMessageDialog(this, "Unknown command.", BeamerController.APP_NAME, JOptionPane.ERROR_MESSAGE);
             return;
         }
 
-        // Show an error dialog
-        JOptionPane.showMessageDialog(this, "Unknown command.", BeamerController.APP_NAME, JOptionPane.ERROR_MESSAGE);
+        // Run the command
+        runCommand(command);
     }
 
     /**
@@ -339,35 +327,20 @@ public class DashboardFrame extends JFrame {
      * @param command Command to run.
      */
     public void runCommand(Command command) {
-        // Get the serial beamer interface
-        SerialBeamerInterface serialBeamerInterface = (SerialBeamerInterface) this.beamer.getBeamerInterfaceManager().getInterfaces().get(0);
-
-        // Create a progress dialog
-        ProgressDialog progressDialog = new ProgressDialog(this, BeamerController.APP_NAME, false);
-        progressDialog.setStatus("Executing command...");
-        progressDialog.setShowProgress(false);
-        progressDialog.setVisible(true);
-
-        try {
-            // Execute the command
-            serialBeamerInterface.executeCommand(command, this.port);
-
-            // Dispose the progress dialog
-            progressDialog.dispose();
-
-            // Show a status message in the console
-            System.out.println("Executed beamer command: " + command.getName());
+        // Submit the command to the session, this doesn't block the UI
+        this.session.submit(command).whenComplete((result, throwable) -> {
+            // Show a status message in the console if the command succeeded
+            if(throwable == null) {
+                System.out.println("Executed beamer command: " + command.getName() + (result != null ? " (" + result + ")" : ""));
+                return;
+            }
 
-        } catch(SerialPortException e) {
-            // Dispose the progress dialog
-            progressDialog.dispose();
+            // Print an error to the console
+            throwable.printStackTrace();
 
             // Show an error dialog
-            JOptionPane.showMessageDialog(this, "Failed to execute command!", BeamerController.APP_NAME, JOptionPane.ERROR_MESSAGE);
-
-            // Print an error to the console
-            e.printStackTrace();
-        }
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "Failed to execute command!\n" + throwable.getMessage(), BeamerController.APP_NAME, JOptionPane.ERROR_MESSAGE));
+        });
     }
 
     /**
@@ -381,8 +354,9 @@ public class DashboardFrame extends JFrame {
         if(command == null || command.trim().length() == 0)
             return;
 
-        // Create a new command instance for this custom command
-        Command customCommand = new Command("customCommand", command, CommandType.WRITE, command);
+        // Create a new command instance for this custom command, commands asking for a value are read commands
+        final CommandType type = command.trim().endsWith("=?") ? CommandType.READ : CommandType.WRITE;
+        Command customCommand = new Command("customCommand", command, type, command);
 
         // Execute the command
         runCommand(customCommand);
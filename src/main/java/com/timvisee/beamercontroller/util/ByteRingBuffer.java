@@ -0,0 +1,145 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.util;
+
+public class ByteRingBuffer {
+
+    /**
+     * Buffer holding the data, of which the length is a power of two.
+     */
+    private final byte[] buffer;
+
+    /**
+     * Mask to wrap positions around the buffer.
+     */
+    private final int mask;
+
+    /**
+     * Position to read the next byte from.
+     */
+    private long readPosition = 0;
+
+    /**
+     * Position to write the next byte to.
+     */
+    private long writePosition = 0;
+
+    /**
+     * Number of bytes that were dropped because the buffer was full.
+     */
+    private long droppedCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Minimum buffer capacity in bytes, rounded up to the next power of two.
+     */
+    public ByteRingBuffer(int capacity) {
+        // Make sure the capacity is valid
+        if(capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException("invalid ring buffer capacity: " + capacity);
+
+        // Round the capacity up to a power of two, and create the buffer
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.buffer = new byte[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Get the buffer capacity.
+     *
+     * @return Capacity in bytes.
+     */
+    public int getCapacity() {
+        return this.buffer.length;
+    }
+
+    /**
+     * Get the number of bytes available to read.
+     *
+     * @return Number of available bytes.
+     */
+    public int available() {
+        return (int) (this.writePosition - this.readPosition);
+    }
+
+    /**
+     * Get the number of bytes that were dropped because the buffer was full.
+     *
+     * @return Number of dropped bytes.
+     */
+    public long getDroppedCount() {
+        return this.droppedCount;
+    }
+
+    /**
+     * Write the given data to the buffer.
+     * If the buffer doesn't have enough space left, the oldest data is dropped to make space.
+     *
+     * @param data Data to write.
+     * @param offset Offset of the data.
+     * @param length Number of bytes to write.
+     */
+    public void write(byte[] data, int offset, int length) {
+        // Only the last part of the data fits if it's larger than the buffer
+        if(length > this.buffer.length) {
+            this.droppedCount += length - this.buffer.length;
+            offset += length - this.buffer.length;
+            length = this.buffer.length;
+        }
+
+        // Drop the oldest data if there isn't enough space
+        final int free = this.buffer.length - available();
+        if(length > free) {
+            this.droppedCount += length - free;
+            this.readPosition += length - free;
+        }
+
+        // Copy the data in at most two parts, wrapping around the end of the buffer
+        final int start = (int) (this.writePosition & this.mask);
+        final int first = Math.min(length, this.buffer.length - start);
+        System.arraycopy(data, offset, this.buffer, start, first);
+        System.arraycopy(data, offset + first, this.buffer, 0, length - first);
+        this.writePosition += length;
+    }
+
+    /**
+     * Read the next byte from the buffer.
+     *
+     * @return Next byte as unsigned value, or -1 if the buffer is empty.
+     */
+    public int read() {
+        // Return -1 if empty
+        if(this.readPosition == this.writePosition)
+            return -1;
+
+        // Read the byte
+        return this.buffer[(int) (this.readPosition++ & this.mask)] & 0xFF;
+    }
+
+    /**
+     * Clear the buffer.
+     */
+    public void clear() {
+        this.readPosition = this.writePosition;
+    }
+}
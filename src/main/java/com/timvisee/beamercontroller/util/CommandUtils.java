@@ -33,4 +33,36 @@ public class CommandUtils {
     public static String formatCommand(String command) {
         return command.replaceAll("[^\\p{Print}]", "_");
     }
+
+    /**
+     * Get the key of the given command, which is the part before the value separator.
+     * For example, this returns {@code pow} for {@code pow=?}.
+     *
+     * @param command Command to get the key for.
+     *
+     * @return Command key, or the whole command if it has no value.
+     */
+    public static String getCommandKey(String command) {
+        // Find the value separator
+        final int separator = command.indexOf('=');
+
+        // Return the key
+        return separator >= 0 ? command.substring(0, separator) : command;
+    }
+
+    /**
+     * Get the value of the given command, which is the part after the value separator.
+     * For example, this returns {@code on} for {@code pow=on}.
+     *
+     * @param command Command to get the value for.
+     *
+     * @return Command value, or null if the command has no value.
+     */
+    public static String getCommandValue(String command) {
+        // Find the value separator
+        final int separator = command.indexOf('=');
+
+        // Return the value
+        return separator >= 0 ? command.substring(separator + 1) : null;
+    }
 }
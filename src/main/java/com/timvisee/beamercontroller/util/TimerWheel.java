@@ -0,0 +1,394 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimerWheel {
+
+    /**
+     * Default duration of a tick in milliseconds.
+     */
+    public static final int DEFAULT_TICK_DURATION = 100;
+
+    /**
+     * Default number of buckets in the wheel.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /**
+     * Thread the wheel turns on, and tasks run on.
+     */
+    private final Thread thread;
+
+    /**
+     * Duration of a tick in nanoseconds.
+     */
+    private final long tickDuration;
+
+    /**
+     * Buckets of the wheel, of which the number is a power of two.
+     */
+    private final Bucket[] wheel;
+
+    /**
+     * Mask to wrap ticks around the wheel.
+     */
+    private final int mask;
+
+    /**
+     * Timeouts that were scheduled, but not yet placed in a bucket.
+     */
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of timeouts that are scheduled and not yet expired or cancelled.
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * Time the wheel started at, from {@link System#nanoTime()}.
+     */
+    private final long startTime;
+
+    /**
+     * True while the wheel is turning.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Constructor.
+     * Uses the default tick duration and wheel size.
+     *
+     * @param name Name of the wheel thread.
+     */
+    public TimerWheel(String name) {
+        this(name, DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * The wheel starts turning immediately, on a daemon thread.
+     *
+     * @param name Name of the wheel thread.
+     * @param tickDuration Duration of a tick, which is the precision of the timeouts.
+     * @param unit Unit of the tick duration.
+     * @param wheelSize Minimum number of buckets in the wheel, rounded up to the next power of two.
+     */
+    public TimerWheel(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        // Make sure the configuration is valid
+        if(tickDuration <= 0)
+            throw new IllegalArgumentException("invalid tick duration: " + tickDuration);
+        if(wheelSize <= 0 || wheelSize > (1 << 30))
+            throw new IllegalArgumentException("invalid wheel size: " + wheelSize);
+
+        // Create the wheel, with a power of two number of buckets
+        final int size = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize : Integer.highestOneBit(wheelSize) << 1;
+        this.wheel = new Bucket[size];
+        for(int i = 0; i < size; i++)
+            this.wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.tickDuration = unit.toNanos(tickDuration);
+
+        // Start turning the wheel
+        this.startTime = System.nanoTime();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Schedule a task to run once after the given delay.
+     * Tasks run on the wheel thread, and must not block.
+     *
+     * @param task Task to run.
+     * @param delay Delay before running the task.
+     * @param unit Unit of the delay.
+     *
+     * @return Timeout, to cancel the task with.
+     *
+     * @throws IllegalStateException Throws if the wheel was stopped.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        // Make sure the wheel is running
+        if(!this.running)
+            throw new IllegalStateException("timer wheel is stopped");
+
+        // Queue the timeout, the wheel thread places it in its bucket
+        final Timeout timeout = new Timeout(this, task, System.nanoTime() - this.startTime + Math.max(0, unit.toNanos(delay)));
+        this.pendingCount.incrementAndGet();
+        this.scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Get the number of scheduled timeouts that haven't expired or been cancelled.
+     *
+     * @return Number of pending timeouts.
+     */
+    public int getPendingCount() {
+        return this.pendingCount.get();
+    }
+
+    /**
+     * Stop the wheel.
+     * Pending timeouts are dropped without running them.
+     */
+    public void stop() {
+        this.running = false;
+        this.thread.interrupt();
+    }
+
+    /**
+     * Turn the wheel until it's stopped.
+     */
+    private void run() {
+        long tick = 0;
+        while(this.running) {
+            // Wait for the next tick
+            final long deadline = (tick + 1) * this.tickDuration;
+            long sleep = deadline - (System.nanoTime() - this.startTime);
+            while(sleep > 0 && this.running) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch(InterruptedException e) {
+                    if(!this.running)
+                        return;
+                }
+                sleep = deadline - (System.nanoTime() - this.startTime);
+            }
+
+            // Place scheduled timeouts in their bucket, and expire the timeouts of the current bucket
+            transferScheduled(tick);
+            this.wheel[(int) (tick & this.mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * Place the scheduled timeouts in their bucket.
+     *
+     * @param tick Current tick.
+     */
+    private void transferScheduled(long tick) {
+        Timeout timeout;
+        while((timeout = this.scheduled.poll()) != null) {
+            // Skip cancelled timeouts
+            if(timeout.isCancelled())
+                continue;
+
+            // Place the timeout in the bucket of its tick, expiring overdue timeouts in the current bucket
+            final long timeoutTick = Math.max(tick, timeout.deadline / this.tickDuration);
+            timeout.remainingRounds = (timeoutTick - tick) / this.wheel.length;
+            this.wheel[(int) (timeoutTick & this.mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Bucket of the wheel, holding a linked list of timeouts.
+     * Only accessed from the wheel thread.
+     */
+    private static class Bucket {
+
+        /**
+         * First timeout in the bucket.
+         */
+        Timeout head;
+
+        /**
+         * Last timeout in the bucket.
+         */
+        Timeout tail;
+
+        /**
+         * Add a timeout to the bucket.
+         *
+         * @param timeout Timeout.
+         */
+        void add(Timeout timeout) {
+            if(this.head == null)
+                this.head = this.tail = timeout;
+            else {
+                this.tail.next = timeout;
+                timeout.prev = this.tail;
+                this.tail = timeout;
+            }
+        }
+
+        /**
+         * Run and remove the timeouts in this bucket that expire by the given deadline.
+         * Timeouts due in a later round of the wheel are kept, and cancelled timeouts are removed.
+         *
+         * @param deadline Deadline of the current tick, relative to the start of the wheel.
+         */
+        void expire(long deadline) {
+            Timeout timeout = this.head;
+            while(timeout != null) {
+                final Timeout next = timeout.next;
+                if(timeout.isCancelled())
+                    remove(timeout);
+                else if(timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    timeout.expire();
+                } else
+                    timeout.remainingRounds--;
+                timeout = next;
+            }
+        }
+
+        /**
+         * Remove a timeout from this bucket.
+         *
+         * @param timeout Timeout.
+         */
+        private void remove(Timeout timeout) {
+            if(timeout.prev != null)
+                timeout.prev.next = timeout.next;
+            else
+                this.head = timeout.next;
+            if(timeout.next != null)
+                timeout.next.prev = timeout.prev;
+            else
+                this.tail = timeout.prev;
+            timeout.prev = timeout.next = null;
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static class Timeout {
+
+        /**
+         * State of a timeout that is waiting to expire.
+         */
+        private static final int STATE_PENDING = 0;
+
+        /**
+         * State of a timeout that was cancelled.
+         */
+        private static final int STATE_CANCELLED = 1;
+
+        /**
+         * State of a timeout that expired, and of which the task ran.
+         */
+        private static final int STATE_EXPIRED = 2;
+
+        /**
+         * Wheel this timeout is scheduled on.
+         */
+        private final TimerWheel timerWheel;
+
+        /**
+         * Task to run.
+         */
+        private final Runnable task;
+
+        /**
+         * Deadline in nanoseconds, relative to the start of the wheel.
+         */
+        private final long deadline;
+
+        /**
+         * Current state.
+         */
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+
+        /**
+         * Number of wheel rounds left before this timeout expires, only accessed from the wheel thread.
+         */
+        long remainingRounds;
+
+        /**
+         * Previous timeout in the bucket, only accessed from the wheel thread.
+         */
+        Timeout prev;
+
+        /**
+         * Next timeout in the bucket, only accessed from the wheel thread.
+         */
+        Timeout next;
+
+        /**
+         * Constructor.
+         *
+         * @param timerWheel Wheel the timeout is scheduled on.
+         * @param task Task to run.
+         * @param deadline Deadline in nanoseconds, relative to the start of the wheel.
+         */
+        Timeout(TimerWheel timerWheel, Runnable task, long deadline) {
+            this.timerWheel = timerWheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the task, if it didn't run yet.
+         *
+         * @return True if cancelled, false if the task ran or was cancelled already.
+         */
+        public boolean cancel() {
+            if(!this.state.compareAndSet(STATE_PENDING, STATE_CANCELLED))
+                return false;
+            this.timerWheel.pendingCount.decrementAndGet();
+            return true;
+        }
+
+        /**
+         * Check whether the task was cancelled.
+         *
+         * @return True if cancelled, false if not.
+         */
+        public boolean isCancelled() {
+            return this.state.get() == STATE_CANCELLED;
+        }
+
+        /**
+         * Check whether the task ran.
+         *
+         * @return True if expired, false if not.
+         */
+        public boolean isExpired() {
+            return this.state.get() == STATE_EXPIRED;
+        }
+
+        /**
+         * Run the task, unless cancelled.
+         */
+        void expire() {
+            // Don't run cancelled tasks
+            if(!this.state.compareAndSet(STATE_PENDING, STATE_EXPIRED))
+                return;
+            this.timerWheel.pendingCount.decrementAndGet();
+
+            // Run the task, without stopping the wheel on failure
+            try {
+                this.task.run();
+            } catch(RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
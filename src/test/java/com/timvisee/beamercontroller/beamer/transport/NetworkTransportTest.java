@@ -0,0 +1,258 @@
+/******************************************************************************
+ * Copyright (c) Tim Visee 2016-2017. All rights reserved.                    *
+ *                                                                            *
+ * @author Tim Visee                                                          *
+ *                                                                            *
+ * Open Source != No Copyright                                                *
+ *                                                                            *
+ * Permission is hereby granted, free of charge, to any person obtaining a    *
+ * copy of this software and associated documentation files (the "Software")  *
+ * to deal in the Software without restriction, including without limitation  *
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,   *
+ * and/or sell copies of the Software, and to permit persons to whom the      *
+ * Software is furnished to do so, subject to the following conditions:       *
+ *                                                                            *
+ * The above copyright notice and this permission notice shall be included    *
+ * in all copies or substantial portions of the Software.                     *
+ *                                                                            *
+ * You should have received a copy of The MIT License (MIT) along with this   *
+ * program. If not, see <http://opensource.org/licenses/MIT/>.                *
+ ******************************************************************************/
+
+package com.timvisee.beamercontroller.beamer.transport;
+
+import com.timvisee.beamercontroller.beamer.command.CommandFraming;
+import com.timvisee.beamercontroller.beamer.response.FrameDecoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NetworkTransportTest {
+
+    /**
+     * Time in milliseconds to wait for anything to happen on the loopback connection.
+     */
+    private static final int TIMEOUT = 5000;
+
+    /**
+     * Local stand-in for the beamer, accepting the connections of the transport.
+     */
+    private ServerSocket server;
+
+    /**
+     * Transport under test.
+     */
+    private NetworkTransport transport;
+
+    /**
+     * Frames received by the transport, decoded with the delimiters of a BenQ beamer.
+     */
+    private final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        // Listen on loopback, and create a transport connecting to it
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.server.setSoTimeout(TIMEOUT);
+        this.transport = new NetworkTransport(InetAddress.getLoopbackAddress().getHostAddress(), this.server.getLocalPort(), null, TIMEOUT);
+
+        // Decode received data into frames
+        final FrameDecoder decoder = FrameDecoder.forCommandDelimiters("\r*", "#\r");
+        this.transport.setReceiver((data, offset, length) -> {
+            for(int i = offset; i < offset + length; i++)
+                decoder.decode(data[i], (frame, frameOffset, frameLength) -> this.frames.add(new String(frame, frameOffset, frameLength, CommandFraming.CHARSET)));
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.transport.close();
+        this.server.close();
+    }
+
+    @Test
+    public void connectsAndWrites() throws IOException {
+        this.transport.open();
+        try(Socket peer = this.server.accept()) {
+            assertTrue(this.transport.isConnected());
+
+            this.transport.write(bytes("\r*pow=?#\r"));
+            assertEquals("\r*pow=?#\r", new String(read(peer, 9), CommandFraming.CHARSET));
+        }
+    }
+
+    @Test
+    public void writesDataThatDoesNotFitTheSocketBufferInOrder() throws IOException {
+        this.transport.open();
+        try(Socket peer = this.server.accept()) {
+            // Write much more than the socket buffers hold while the peer isn't reading, the remainder is queued
+            final byte[] data = new byte[4 * 1024 * 1024];
+            for(int i = 0; i < data.length; i++)
+                data[i] = (byte) i;
+            for(int offset = 0; offset < data.length; offset += 64 * 1024)
+                this.transport.write(Arrays.copyOfRange(data, offset, offset + 64 * 1024));
+
+            assertArrayEquals(data, read(peer, data.length));
+        }
+    }
+
+    @Test
+    public void decodesSplitAndBatchedFrames() throws Exception {
+        this.transport.open();
+        try(Socket peer = this.server.accept()) {
+            final OutputStream out = peer.getOutputStream();
+
+            // A frame split over two packets, followed by a frame that is completed in a third packet
+            send(out, "\r*POW");
+            send(out, "=ON#\r\r*SOUR=HD");
+            assertEquals("POW=ON", this.frames.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+            assertNull(this.frames.poll(100, TimeUnit.MILLISECONDS));
+            send(out, "MI#\r");
+            assertEquals("SOUR=HDMI", this.frames.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+
+            // Several frames in a single packet
+            send(out, "\r*POW=OFF#\r\r*Block item#\r");
+            assertEquals("POW=OFF", this.frames.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+            assertEquals("Block item", this.frames.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void detectsPeerClose() throws IOException {
+        this.transport.open();
+        this.server.accept().close();
+
+        waitFor(() -> !this.transport.isConnected());
+        assertTrue(this.transport.isOpen());
+    }
+
+    @Test
+    public void failsWriteWithoutBlockingAndReconnectsAfterPeerClose() throws IOException {
+        this.transport.open();
+        this.server.accept().close();
+        waitFor(() -> !this.transport.isConnected());
+
+        // The first write fails right away, and starts reconnecting in the background
+        final long start = System.nanoTime();
+        try {
+            this.transport.write(bytes("\r*pow=?#\r"));
+            fail("write on a lost connection should fail");
+        } catch(IOException ignored) {}
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+
+        // Writes succeed again once reconnected
+        try(Socket peer = this.server.accept()) {
+            waitFor(this.transport::isConnected);
+            this.transport.write(bytes("\r*sour=?#\r"));
+            assertEquals("\r*sour=?#\r", new String(read(peer, 10), CommandFraming.CHARSET));
+        }
+    }
+
+    @Test
+    public void failsOpenIfNothingListens() throws IOException {
+        final int port = this.server.getLocalPort();
+        this.server.close();
+
+        try {
+            new NetworkTransport(InetAddress.getLoopbackAddress().getHostAddress(), port, null, TIMEOUT).open();
+            fail("opening without a listening server should fail");
+        } catch(IOException ignored) {}
+    }
+
+    @Test
+    public void failsWriteIfNotOpened() {
+        try {
+            this.transport.write(bytes("\r*pow=?#\r"));
+            fail("write on an unopened transport should fail");
+        } catch(IOException ignored) {}
+        assertFalse(this.transport.isConnected());
+    }
+
+    /**
+     * Encode a string with the command charset.
+     *
+     * @param data String to encode.
+     *
+     * @return Bytes.
+     */
+    private static byte[] bytes(String data) {
+        return data.getBytes(CommandFraming.CHARSET);
+    }
+
+    /**
+     * Send a string to the transport as a separate packet.
+     *
+     * @param out Output stream of the peer.
+     * @param data String to send.
+     *
+     * @throws Exception Throws if sending failed or was interrupted.
+     */
+    private static void send(OutputStream out, String data) throws Exception {
+        out.write(bytes(data));
+        out.flush();
+        Thread.sleep(50);
+    }
+
+    /**
+     * Read the given number of bytes written by the transport.
+     *
+     * @param peer Accepted connection of the transport.
+     * @param length Number of bytes to read.
+     *
+     * @return Read bytes.
+     *
+     * @throws IOException Throws if reading failed, or the connection closed early.
+     */
+    private static byte[] read(Socket peer, int length) throws IOException {
+        peer.setSoTimeout(TIMEOUT);
+        final InputStream in = peer.getInputStream();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        final byte[] buffer = new byte[8192];
+        while(out.size() < length) {
+            final int read = in.read(buffer, 0, Math.min(buffer.length, length - out.size()));
+            if(read < 0)
+                throw new IOException("connection closed after " + out.size() + " of " + length + " bytes");
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Wait until the given condition holds, and fail if it doesn't within the timeout.
+     *
+     * @param condition Condition to wait for.
+     */
+    private static void waitFor(BooleanSupplier condition) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT);
+        while(!condition.getAsBoolean()) {
+            if(System.nanoTime() > deadline)
+                fail("condition not met within " + TIMEOUT + " ms");
+            try {
+                Thread.sleep(10);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("interrupted");
+            }
+        }
+    }
+}